@@ -0,0 +1,82 @@
+package ntnu.idata2305.bench;
+
+import ntnu.idata2305.Calculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operator dispatch of {@link Calculator#calculate} and the batch loop of
+ * {@link Calculator#calculateBatch}, reported per calculation.
+ *
+ * <p>With {@code operators=fixed} every calculation is a multiplication, so the branch predictor always
+ * guesses the switch right; with {@code operators=mixed} the operators are random, as in the client's traffic.
+ * A batch applies one operator to all its pairs, so it uses the first operator either way.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CalculateBenchmark {
+  private static final int SIZE = 1024;
+  private static final char[] OPERATORS = {'A', 'S', 'M', 'D'};
+
+  /**
+   * Whether every calculation uses the same operator or a random one.
+   */
+  @Param({"fixed", "mixed"})
+  public String operators;
+
+  private final double[] first = new double[SIZE];
+  private final double[] second = new double[SIZE];
+  private final double[] results = new double[SIZE];
+  private final char[] operatorOf = new char[SIZE];
+  private int index;
+
+  /**
+   * Fills the operands and operators with the same pseudo-random values for every run.
+   */
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    for (int i = 0; i < SIZE; i++) {
+      first[i] = random.nextInt(100) + 1;
+      second[i] = random.nextInt(100) + 1;
+      operatorOf[i] = "fixed".equals(operators) ? 'M' : OPERATORS[random.nextInt(OPERATORS.length)];
+    }
+  }
+
+  /**
+   * Calculates one result, moving on to the next operands and operator every call.
+   */
+  @Benchmark
+  public double calculate() {
+    int i = index = (index + 1) & (SIZE - 1);
+    return Calculator.calculate(first[i], second[i], operatorOf[i]);
+  }
+
+  /**
+   * Calculates {@value #SIZE} results with one operator; the time is per result.
+   */
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void calculateBatch(Blackhole blackhole) {
+    Calculator.calculateBatch(operatorOf[0], first, second, results, SIZE);
+    blackhole.consume(results);
+  }
+}
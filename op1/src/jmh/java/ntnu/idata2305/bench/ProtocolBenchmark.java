@@ -0,0 +1,164 @@
+package ntnu.idata2305.bench;
+
+import ntnu.idata2305.AsciiCodec;
+import ntnu.idata2305.BatchBuffers;
+import ntnu.idata2305.CalculatorProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding one request in each wire format: three text lines through a {@link BufferedReader} and
+ * {@link Double#parseDouble} as the servers used to, the same lines parsed in place by {@link AsciiCodec} as
+ * they do now, a binary frame read from a {@link ByteBuffer}, and a batch frame, reported per operand pair.
+ * Formatting a text response is measured both ways too. Each benchmark reuses its reader or buffers like a
+ * keep-alive connection does, so only the per-request cost is measured.
+ *
+ * <p>Run with {@code -prof gc} to see the bytes allocated per operation; the {@link AsciiCodec} variants
+ * allocate none.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ProtocolBenchmark {
+  private static final int BATCH_SIZE = 256;
+
+  private static final double RESULT = 42.5 / 17.25;
+
+  private BufferedReader textInput;
+  private final byte[] textLines = "42.5\n17.25\nM\n".getBytes(StandardCharsets.US_ASCII);
+  private final byte[] number = new byte[AsciiCodec.MAX_DOUBLE_LENGTH];
+  private ByteBuffer frame;
+  private ByteBuffer batchFrame;
+  private BatchBuffers batch;
+
+  /**
+   * Encodes the same request {@code 42.5 * 17.25} in every format.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    byte[] text = "42.5\n17.25\nM\n".getBytes(StandardCharsets.US_ASCII);
+    textInput = new BufferedReader(new InputStreamReader(new RepeatingInputStream(text), StandardCharsets.US_ASCII));
+
+    frame = ByteBuffer.allocate(CalculatorProtocol.REQUEST_FRAME_BYTES);
+    CalculatorProtocol.encodeRequest(frame, 'M', 42.5, 17.25, 7);
+
+    batchFrame = ByteBuffer.allocate(CalculatorProtocol.BATCH_HEADER_BYTES + 2 * BATCH_SIZE * Double.BYTES);
+    CalculatorProtocol.encodeBatchHeader(batchFrame, 'M', 7, BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      batchFrame.putDouble(CalculatorProtocol.BATCH_HEADER_BYTES + i * Double.BYTES, 42.5 + i);
+      batchFrame.putDouble(CalculatorProtocol.BATCH_HEADER_BYTES + (BATCH_SIZE + i) * Double.BYTES, 17.25 + i);
+    }
+    batch = new BatchBuffers();
+    batch.ensureCapacity(BATCH_SIZE);
+  }
+
+  /**
+   * Decodes a text request: two numbers and an operator on separate lines.
+   */
+  @Benchmark
+  public void text(Blackhole blackhole) throws IOException {
+    blackhole.consume(Double.parseDouble(textInput.readLine()));
+    blackhole.consume(Double.parseDouble(textInput.readLine()));
+    blackhole.consume(Character.toUpperCase(textInput.readLine().charAt(0)));
+  }
+
+  /**
+   * Decodes the same text request from its bytes with {@link AsciiCodec}, without creating strings.
+   */
+  @Benchmark
+  public void textAscii(Blackhole blackhole) {
+    blackhole.consume(AsciiCodec.parseDouble(textLines, 0, 4));
+    blackhole.consume(AsciiCodec.parseDouble(textLines, 5, 5));
+    blackhole.consume(Character.toUpperCase((char) textLines[11]));
+  }
+
+  /**
+   * Formats a text response the way the servers used to, through a string.
+   */
+  @Benchmark
+  public byte[] formatString() {
+    return (RESULT + "\n").getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Formats the same response into a reused buffer with {@link AsciiCodec}.
+   */
+  @Benchmark
+  public int formatAscii() {
+    return AsciiCodec.formatDouble(RESULT, number, 0);
+  }
+
+  /**
+   * Decodes a binary request frame.
+   */
+  @Benchmark
+  public void binary(Blackhole blackhole) {
+    blackhole.consume(Character.toUpperCase(CalculatorProtocol.requestOperator(frame)));
+    blackhole.consume(CalculatorProtocol.requestFirst(frame));
+    blackhole.consume(CalculatorProtocol.requestSecond(frame));
+    blackhole.consume(CalculatorProtocol.requestId(frame));
+  }
+
+  /**
+   * Decodes a batch frame of {@value #BATCH_SIZE} operand pairs; the time is per pair.
+   */
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void batch(Blackhole blackhole) throws IOException {
+    blackhole.consume(Character.toUpperCase(CalculatorProtocol.batchOperator(batchFrame)));
+    blackhole.consume(CalculatorProtocol.batchId(batchFrame));
+    int count = CalculatorProtocol.batchCount(batchFrame);
+    batchFrame.position(CalculatorProtocol.BATCH_HEADER_BYTES);
+    batch.decodeOperands(batchFrame, count);
+    blackhole.consume(batch.first());
+    blackhole.consume(batch.second());
+  }
+
+  /**
+   * An endless stream that repeats the same bytes, like a keep-alive client sending the same request.
+   */
+  private static final class RepeatingInputStream extends InputStream {
+    private final byte[] bytes;
+    private int position;
+
+    RepeatingInputStream(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int read() {
+      int b = bytes[position] & 0xFF;
+      position = (position + 1) % bytes.length;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      int n = Math.min(length, bytes.length - position);
+      System.arraycopy(bytes, position, buffer, offset, n);
+      position = (position + n) % bytes.length;
+      return n;
+    }
+  }
+}
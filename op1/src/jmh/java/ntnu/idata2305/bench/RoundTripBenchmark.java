@@ -0,0 +1,124 @@
+package ntnu.idata2305.bench;
+
+import ntnu.idata2305.cluster.Backend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures end-to-end round trips over loopback against a real server process.
+ *
+ * <p>For every combination of {@code server}, {@code concurrency} and {@code processingDelay}, the server is
+ * started in its own JVM on port {@code bench.port} (5900 unless set with {@code -Dbench.port=#}) and runs
+ * until the trial ends. One invocation has {@code concurrency} clients each open a connection, send one text
+ * request and wait for the answer, like the CalculatorClient does. The score is the time until all of them
+ * have their answer, so the throughput is {@code concurrency} divided by the score.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoundTripBenchmark {
+  private static final byte[] REQUEST = "42\n17\nM\n".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * The server class to benchmark.
+   */
+  @Param({"SingleThreadServer", "MultiThreadServer"})
+  public String server;
+
+  /**
+   * The number of clients that send a request at the same time.
+   */
+  @Param({"1", "8", "32"})
+  public int concurrency;
+
+  /**
+   * The simulated processing delay of the server, in milliseconds.
+   */
+  @Param({"0", "1"})
+  public int processingDelay;
+
+  private Backend backend;
+  private ExecutorService clients;
+  private List<Callable<String>> roundTrips;
+
+  /**
+   * Starts the server and waits until it answers.
+   */
+  @Setup(Level.Trial)
+  public void startServer() throws IOException, InterruptedException, ClassNotFoundException {
+    backend = new Backend("localhost", Integer.getInteger("bench.port", 5900));
+    backend.launch(Class.forName("ntnu.idata2305." + server),
+      "processingDelay=" + processingDelay,
+      "backlog=1024",
+      "cacheSize=0");
+    backend.awaitHealthy(2000, TimeUnit.SECONDS.toMillis(30));
+
+    clients = Executors.newFixedThreadPool(concurrency);
+    roundTrips = new ArrayList<>();
+    for (int i = 0; i < concurrency; i++) {
+      roundTrips.add(this::roundTrip);
+    }
+  }
+
+  /**
+   * Stops the server; it drains before it exits.
+   */
+  @TearDown(Level.Trial)
+  public void stopServer() throws InterruptedException {
+    clients.shutdownNow();
+    backend.stop(TimeUnit.SECONDS.toMillis(10));
+  }
+
+  /**
+   * Sends {@code concurrency} requests at once and waits for every answer.
+   */
+  @Benchmark
+  public int requests() throws InterruptedException, ExecutionException {
+    int answered = 0;
+    for (Future<String> answer : clients.invokeAll(roundTrips)) {
+      if (answer.get() != null) {
+        answered++;
+      }
+    }
+    return answered;
+  }
+
+  private String roundTrip() throws IOException {
+    try (Socket socket = new Socket("localhost", backend.port())) {
+      OutputStream out = socket.getOutputStream();
+      out.write(REQUEST);
+      out.flush();
+      BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      return input.readLine();
+    }
+  }
+}
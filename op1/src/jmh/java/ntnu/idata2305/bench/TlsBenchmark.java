@@ -0,0 +1,153 @@
+package ntnu.idata2305.bench;
+
+import ntnu.idata2305.MultiThreadServer;
+import ntnu.idata2305.cluster.Backend;
+import ntnu.idata2305.tls.Transport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.SSLSocket;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what TLS costs the calculator over loopback, against a {@link MultiThreadServer} in its own JVM.
+ *
+ * <p>{@link #newConnection} opens a connection, sends one text request, reads the answer and closes it, so it
+ * pays for a handshake every time: {@code tls-full} throws the session away after each connection and does
+ * the full handshake with certificate and key exchange, while {@code tls-resumed} resumes the cached session.
+ * {@link #keepAlive} sends one request over a connection that stays open for the whole trial, which is the
+ * per-request cost of encryption alone. {@code plain} is the baseline for both.
+ *
+ * <p>A self-signed key and certificate are generated with {@code keytool} into a temporary directory for
+ * each trial. The server listens on {@code bench.port} (5901 unless set with {@code -Dbench.port=#}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TlsBenchmark {
+  private static final byte[] REQUEST = "42\n17\nM\n".getBytes(StandardCharsets.US_ASCII);
+  private static final String HOST = "localhost";
+  private static final String PASSWORD = "changeit";
+
+  /**
+   * The transport, and for TLS whether new connections resume the previous session.
+   */
+  @Param({"plain", "tls-full", "tls-resumed"})
+  public String transport;
+
+  private Path directory;
+  private Transport client;
+  private Backend backend;
+  private Socket connection;
+  private OutputStream connectionOut;
+  private BufferedReader connectionIn;
+
+  /**
+   * Generates the key store, starts the server and opens the keep-alive connection.
+   */
+  @Setup(Level.Trial)
+  public void start() throws IOException, InterruptedException {
+    int port = Integer.getInteger("bench.port", 5901);
+    if ("plain".equals(transport)) {
+      client = Transport.PLAIN;
+      backend = new Backend(HOST, port);
+      backend.launch(MultiThreadServer.class, "processingDelay=0", "backlog=1024", "cacheSize=0");
+    } else {
+      directory = Files.createTempDirectory("tls-bench");
+      Path keyStore = generateKeyStore(directory);
+      client = Transport.tls(keyStore, keyStore, PASSWORD.toCharArray(), new String[] {"TLSv1.3"}, 1024, 3600);
+      backend = new Backend(HOST, port, client);
+      backend.launch(MultiThreadServer.class, "processingDelay=0", "backlog=1024", "cacheSize=0",
+        "tls=true", "keyStore=" + keyStore, "keyStorePassword=" + PASSWORD);
+    }
+    backend.awaitHealthy(2000, TimeUnit.SECONDS.toMillis(30));
+
+    connection = client.connect(HOST, port, 0);
+    connectionOut = connection.getOutputStream();
+    connectionIn = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+    connectionOut.write("KEEPALIVE\n".getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Closes the keep-alive connection, stops the server and deletes the key store.
+   */
+  @TearDown(Level.Trial)
+  public void stop() throws IOException, InterruptedException {
+    connection.close();
+    backend.stop(TimeUnit.SECONDS.toMillis(10));
+    if (directory != null) {
+      Files.deleteIfExists(directory.resolve("calculator.p12"));
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  /**
+   * Opens a connection, sends one request, reads the answer and closes the connection.
+   */
+  @Benchmark
+  public String newConnection() throws IOException {
+    try (Socket socket = client.connect(HOST, backend.port(), 0)) {
+      OutputStream out = socket.getOutputStream();
+      out.write(REQUEST);
+      out.flush();
+      String answer = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))
+        .readLine();
+      if ("tls-full".equals(transport)) {
+        // An invalidated session is not offered for resumption, so the next handshake is a full one
+        ((SSLSocket) socket).getSession().invalidate();
+      }
+      return answer;
+    }
+  }
+
+  /**
+   * Sends one request over the connection that stays open for the whole trial.
+   */
+  @Benchmark
+  public String keepAlive() throws IOException {
+    connectionOut.write(REQUEST);
+    connectionOut.flush();
+    return connectionIn.readLine();
+  }
+
+  /**
+   * Generates a self-signed EC key and certificate for localhost with the keytool of the running JDK.
+   */
+  private static Path generateKeyStore(Path directory) throws IOException, InterruptedException {
+    Path keyStore = directory.resolve("calculator.p12");
+    Process keytool = new ProcessBuilder(
+      Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+      "-genkeypair", "-alias", "calculator", "-keyalg", "EC", "-groupname", "secp256r1",
+      "-dname", "CN=localhost", "-ext", "san=dns:localhost,ip:127.0.0.1", "-validity", "2",
+      "-storetype", "PKCS12", "-keystore", keyStore.toString(), "-storepass", PASSWORD)
+      .redirectErrorStream(true)
+      .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+      .start();
+    if (keytool.waitFor() != 0) {
+      throw new IOException("keytool failed with exit code " + keytool.exitValue());
+    }
+    return keyStore;
+  }
+}
@@ -0,0 +1,234 @@
+package ntnu.idata2305;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses and formats the numbers of the text protocol directly on ASCII bytes, without creating strings.
+ *
+ * <p>{@link #parseDouble} gives exactly the result of {@link Double#parseDouble} and {@link #formatDouble}
+ * exactly the text of {@link Double#toString(double)}. Both handle the common cases with plain
+ * {@code long} and {@code double} arithmetic. Numbers outside those cases fall back to the JDK methods, which
+ * allocate; the cases are chosen so that the operands and results of the calculator client never do.
+ * <ul>
+ *   <li>Parsing is exact for decimals of at most 15 significant digits and an exponent of at most 22, the
+ *   classic fast path of Clinger: both the digits and the power of ten are exact doubles, so a single
+ *   multiplication or division rounds correctly.</li>
+ *   <li>Formatting covers the plain, non-scientific notation of {@link Double#toString}, i.e. magnitudes from
+ *   10<sup>-3</sup> up to 10<sup>7</sup>, and zero. It looks for the fewest digits that still read back as the
+ *   same double, by rounding the exact product of the value and a power of ten to ever more digits.</li>
+ * </ul>
+ */
+public final class AsciiCodec {
+  /**
+   * The most bytes {@link #formatDouble} writes.
+   */
+  public static final int MAX_DOUBLE_LENGTH = 32;
+
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private static final byte[] NAN = "NaN".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] INFINITY = "Infinity".getBytes(StandardCharsets.US_ASCII);
+
+  private AsciiCodec() {
+  }
+
+  /**
+   * Parses a decimal number such as {@code 42}, {@code -0.5} or {@code 1.5e3}.
+   *
+   * @param bytes  the buffer holding the number
+   * @param offset the index of the first byte
+   * @param length the number of bytes
+   * @return the number
+   * @throws NumberFormatException if the bytes are not a number
+   */
+  public static double parseDouble(byte[] bytes, int offset, int length) {
+    int end = offset + length;
+    int i = offset;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+      negative = bytes[i++] == '-';
+    }
+
+    long digits = 0;
+    int significant = 0;
+    int exponent = 0;
+    boolean anyDigit = false;
+    boolean fraction = false;
+    for (; i < end; i++) {
+      byte b = bytes[i];
+      if (b >= '0' && b <= '9') {
+        anyDigit = true;
+        if (significant < 18) {
+          if (digits != 0 || b != '0') {
+            digits = digits * 10 + (b - '0');
+            significant++;
+          }
+          if (fraction) {
+            exponent--;
+          }
+        } else {
+          // Digits beyond what a long holds only matter to the slow path
+          significant++;
+          if (!fraction) {
+            exponent++;
+          }
+        }
+      } else if (b == '.' && !fraction) {
+        fraction = true;
+      } else {
+        break;
+      }
+    }
+
+    if (anyDigit && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+      int j = i + 1;
+      boolean negativeExponent = false;
+      if (j < end && (bytes[j] == '-' || bytes[j] == '+')) {
+        negativeExponent = bytes[j++] == '-';
+      }
+      int value = 0;
+      int start = j;
+      for (; j < end && bytes[j] >= '0' && bytes[j] <= '9' && value < 10_000; j++) {
+        value = value * 10 + (bytes[j] - '0');
+      }
+      if (j > start) {
+        exponent += negativeExponent ? -value : value;
+        i = j;
+      }
+    }
+
+    if (!anyDigit || i != end || significant > 15 || exponent < -22 || exponent > 22) {
+      return slowParse(bytes, offset, length);
+    }
+    double value = exponent < 0
+      ? digits / POWERS_OF_TEN[-exponent]
+      : digits * POWERS_OF_TEN[exponent];
+    return negative ? -value : value;
+  }
+
+  /**
+   * Writes a double the way {@link Double#toString(double)} does, e.g. {@code 3.0} or {@code 2.4705882352941178}.
+   *
+   * @param value  the number
+   * @param bytes  the buffer to write to; it needs {@link #MAX_DOUBLE_LENGTH} bytes from {@code offset}
+   * @param offset the index to write the first byte to
+   * @return the number of bytes written
+   */
+  public static int formatDouble(double value, byte[] bytes, int offset) {
+    if (Double.isNaN(value)) {
+      return copy(NAN, bytes, offset, false);
+    }
+    boolean negative = Double.doubleToRawLongBits(value) < 0;
+    double magnitude = Math.abs(value);
+    if (Double.isInfinite(value)) {
+      return copy(INFINITY, bytes, offset, negative);
+    }
+    if (magnitude == 0) {
+      return writePlain(0, 1, bytes, offset, negative);
+    }
+    if (magnitude < 1e-3 || magnitude >= 1e7) {
+      return copy(Double.toString(value).getBytes(StandardCharsets.US_ASCII), bytes, offset, false);
+    }
+
+    int decimalExponent = decimalExponent(magnitude);
+    double halfUlp = Math.ulp(magnitude) / 2;
+    // Try ever more fractional digits, starting where the number has two significant digits, up to 17 of them
+    int first = Math.max(0, 1 - decimalExponent);
+    int last = Math.min(POWERS_OF_TEN.length - 1, 16 - decimalExponent);
+    for (int scale = first; scale <= last; scale++) {
+      double power = POWERS_OF_TEN[scale];
+      // magnitude * power is exactly high + low; the floor of high is exact, so is what is left of it
+      double high = magnitude * power;
+      double low = Math.fma(magnitude, power, -high);
+      double whole = Math.floor(high);
+      double rest = (high - whole) + low;
+      long rounded = Math.round(rest);
+      if (rounded - rest == 0.5 && (((long) whole + rounded) & 1) != 0) {
+        // Halfway between two candidates: like Double.toString, take the even one
+        rounded--;
+      }
+      // The candidate reads back as the same double if it is closer than half an ulp, scaled the same way
+      if (Math.abs(rounded - rest) < halfUlp * power) {
+        return writePlain((long) whole + rounded, scale, bytes, offset, negative);
+      }
+    }
+    return copy(Double.toString(value).getBytes(StandardCharsets.US_ASCII), bytes, offset, false);
+  }
+
+  /**
+   * Returns the power of ten of the leading digit, for magnitudes from 10<sup>-3</sup> to 10<sup>7</sup>.
+   */
+  private static int decimalExponent(double magnitude) {
+    int exponent = (int) Math.floor(Math.log10(magnitude));
+    // log10 may be off by one right at a power of ten
+    if (magnitude < powerOfTen(exponent)) {
+      exponent--;
+    } else if (magnitude >= powerOfTen(exponent + 1)) {
+      exponent++;
+    }
+    return exponent;
+  }
+
+  private static double powerOfTen(int exponent) {
+    return exponent >= 0 ? POWERS_OF_TEN[exponent] : 1 / POWERS_OF_TEN[-exponent];
+  }
+
+  /**
+   * Writes {@code digits * 10^-scale} with at least one digit on each side of the point, dropping
+   * trailing zeros of the fraction.
+   */
+  private static int writePlain(long digits, int scale, byte[] bytes, int offset, boolean negative) {
+    int position = offset;
+    if (negative) {
+      bytes[position++] = '-';
+    }
+    while (scale > 1 && digits % 10 == 0) {
+      digits /= 10;
+      scale--;
+    }
+    if (scale == 0) {
+      // A whole number still gets its ".0"
+      digits *= 10;
+      scale = 1;
+    }
+
+    int count = Math.max(digitCount(digits), scale + 1);
+    int point = count - scale;
+    int end = position + count + 1;
+    // Write the digits from the right, skipping over the point
+    for (int i = end - 1; i >= position; i--) {
+      if (i == position + point) {
+        bytes[i] = '.';
+      } else {
+        bytes[i] = (byte) ('0' + digits % 10);
+        digits /= 10;
+      }
+    }
+    return end - offset;
+  }
+
+  private static int digitCount(long value) {
+    int count = 1;
+    while (value >= 10) {
+      value /= 10;
+      count++;
+    }
+    return count;
+  }
+
+  private static int copy(byte[] source, byte[] bytes, int offset, boolean negative) {
+    int position = offset;
+    if (negative) {
+      bytes[position++] = '-';
+    }
+    System.arraycopy(source, 0, bytes, position, source.length);
+    return position + source.length - offset;
+  }
+
+  private static double slowParse(byte[] bytes, int offset, int length) {
+    return Double.parseDouble(new String(bytes, offset, length, StandardCharsets.US_ASCII));
+  }
+}
@@ -0,0 +1,181 @@
+package ntnu.idata2305;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable buffers for one connection's batch frames: the operand and result arrays, and the byte
+ * buffer they are encoded in. The arrays only grow, so a connection that keeps sending batches of the
+ * same size allocates nothing after its first batch.
+ */
+public class BatchBuffers {
+  private double[] first = new double[0];
+  private double[] second = new double[0];
+  private double[] results = new double[0];
+  private ByteBuffer bytes = ByteBuffer.allocate(0);
+  private final ByteBuffer responseHeader = ByteBuffer.allocate(CalculatorProtocol.BATCH_RESPONSE_HEADER_BYTES);
+
+  /**
+   * Returns the first operands of the current batch.
+   */
+  public double[] first() {
+    return first;
+  }
+
+  /**
+   * Returns the second operands of the current batch.
+   */
+  public double[] second() {
+    return second;
+  }
+
+  /**
+   * Returns the results of the current batch.
+   */
+  public double[] results() {
+    return results;
+  }
+
+  /**
+   * Makes room for a batch of {@code n} pairs.
+   *
+   * @param n the number of pairs
+   * @throws IOException if {@code n} is negative or larger than {@link CalculatorProtocol#MAX_BATCH}
+   */
+  public void ensureCapacity(int n) throws IOException {
+    if (n < 0 || n > CalculatorProtocol.MAX_BATCH) {
+      throw new IOException("Invalid batch size: " + n);
+    }
+    if (first.length < n) {
+      first = new double[n];
+      second = new double[n];
+      results = new double[n];
+    }
+    int byteCount = Math.max(CalculatorProtocol.BATCH_HEADER_BYTES, CalculatorProtocol.BATCH_RESPONSE_HEADER_BYTES)
+      + 2 * n * Double.BYTES;
+    if (bytes.capacity() < byteCount) {
+      bytes = ByteBuffer.allocate(byteCount);
+    }
+  }
+
+  /**
+   * Reads {@code n} first operands followed by {@code n} second operands from the stream.
+   *
+   * @param in the stream positioned after a batch header
+   * @param n  the number of pairs
+   * @throws IOException if the stream ends early or the size is invalid
+   */
+  public void readOperands(InputStream in, int n) throws IOException {
+    ensureCapacity(n);
+    int length = 2 * n * Double.BYTES;
+    if (in.readNBytes(bytes.array(), 0, length) < length) {
+      throw new EOFException("Connection closed inside a batch frame");
+    }
+    bytes.clear().limit(length);
+    decodeOperands(bytes, n);
+  }
+
+  /**
+   * Decodes {@code n} first operands followed by {@code n} second operands from the buffer's position.
+   *
+   * @param source a buffer holding at least {@code 16 * n} readable bytes; its position is advanced
+   * @param n      the number of pairs
+   * @throws IOException if the size is invalid
+   */
+  public void decodeOperands(ByteBuffer source, int n) throws IOException {
+    ensureCapacity(n);
+    for (int i = 0; i < n; i++) {
+      first[i] = source.getDouble();
+    }
+    for (int i = 0; i < n; i++) {
+      second[i] = source.getDouble();
+    }
+  }
+
+  /**
+   * Encodes a batch request frame for the current operands and writes it to the stream.
+   *
+   * @param out       the stream to write to
+   * @param operator  the operator applied to every pair
+   * @param requestId the id echoed back in the response
+   * @param n         the number of pairs
+   * @throws IOException if writing fails or the size is invalid
+   */
+  public void writeRequest(OutputStream out, char operator, int requestId, int n) throws IOException {
+    ensureCapacity(n);
+    bytes.clear();
+    CalculatorProtocol.encodeBatchHeader(bytes, operator, requestId, n);
+    bytes.position(CalculatorProtocol.BATCH_HEADER_BYTES);
+    for (int i = 0; i < n; i++) {
+      bytes.putDouble(first[i]);
+    }
+    for (int i = 0; i < n; i++) {
+      bytes.putDouble(second[i]);
+    }
+    out.write(bytes.array(), 0, bytes.position());
+  }
+
+  /**
+   * Encodes the batch response for the current results into a new byte array.
+   *
+   * @param requestId the id of the batch being answered
+   * @param n         the number of results
+   * @return the encoded response frame
+   */
+  public byte[] encodeResponse(int requestId, int n) {
+    ByteBuffer response = ByteBuffer.allocate(CalculatorProtocol.BATCH_RESPONSE_HEADER_BYTES + n * Double.BYTES);
+    putResponse(response, requestId, n);
+    return response.array();
+  }
+
+  /**
+   * Encodes the batch response for the current results and writes it to the stream.
+   *
+   * @param out       the stream to write to
+   * @param requestId the id of the batch being answered
+   * @param n         the number of results
+   * @throws IOException if writing fails
+   */
+  public void writeResponse(OutputStream out, int requestId, int n) throws IOException {
+    bytes.clear();
+    putResponse(bytes, requestId, n);
+    out.write(bytes.array(), 0, bytes.position());
+  }
+
+  /**
+   * Reads a batch response from the stream into the result array.
+   *
+   * @param in the stream to read from
+   * @return the request id of the response
+   * @throws IOException if the stream ends early or the size is invalid
+   */
+  public int readResponse(InputStream in) throws IOException {
+    byte[] header = responseHeader.array();
+    if (in.readNBytes(header, 0, header.length) < header.length) {
+      throw new EOFException("Server closed the connection");
+    }
+    int requestId = responseHeader.getInt(0);
+    int n = responseHeader.getInt(4);
+    ensureCapacity(n);
+    int length = n * Double.BYTES;
+    if (in.readNBytes(bytes.array(), 0, length) < length) {
+      throw new EOFException("Connection closed inside a batch response");
+    }
+    bytes.clear().limit(length);
+    for (int i = 0; i < n; i++) {
+      results[i] = bytes.getDouble();
+    }
+    return requestId;
+  }
+
+  private void putResponse(ByteBuffer target, int requestId, int n) {
+    target.putInt(requestId);
+    target.putInt(n);
+    for (int i = 0; i < n; i++) {
+      target.putDouble(results[i]);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package ntnu.idata2305;
+
+import java.util.Arrays;
+
+/**
+ * The arithmetic shared by every calculator server.
+ */
+public final class Calculator {
+
+  private Calculator() {
+  }
+
+  /**
+   * Performs a basic arithmetic operation on two operands.
+   *
+   * @param a  the first operand
+   * @param b  the second operand
+   * @param op the operator: 'A' (add), 'S' (subtract), 'M' (multiply), 'D' (divide)
+   * @return the result of the operation, or 0 for an invalid operator or division by zero
+   */
+  public static double calculate(double a, double b, char op) {
+    switch (op) {
+      case 'A': return a + b;
+      case 'S': return a - b;
+      case 'M': return a * b;
+      case 'D': return b != 0 ? a / b : 0;
+      default: return 0;
+    }
+  }
+
+  /**
+   * Performs the same operation on {@code n} pairs of operands. The operator is dispatched once,
+   * and each operation is a simple counted loop over primitive arrays that the JIT can auto-vectorise.
+   *
+   * @param op      the operator: 'A' (add), 'S' (subtract), 'M' (multiply), 'D' (divide)
+   * @param a       the first operands
+   * @param b       the second operands
+   * @param results receives the results; division by zero and an invalid operator give 0
+   * @param n       the number of pairs to calculate
+   */
+  public static void calculateBatch(char op, double[] a, double[] b, double[] results, int n) {
+    switch (op) {
+      case 'A':
+        for (int i = 0; i < n; i++) {
+          results[i] = a[i] + b[i];
+        }
+        break;
+      case 'S':
+        for (int i = 0; i < n; i++) {
+          results[i] = a[i] - b[i];
+        }
+        break;
+      case 'M':
+        for (int i = 0; i < n; i++) {
+          results[i] = a[i] * b[i];
+        }
+        break;
+      case 'D':
+        for (int i = 0; i < n; i++) {
+          results[i] = b[i] != 0 ? a[i] / b[i] : 0;
+        }
+        break;
+      default:
+        Arrays.fill(results, 0, n, 0);
+    }
+  }
+}
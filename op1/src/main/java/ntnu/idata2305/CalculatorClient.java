@@ -1,8 +1,20 @@
 package ntnu.idata2305;
 
+import ntnu.idata2305.client.AsyncCalculatorClient;
+import ntnu.idata2305.load.LoadGenerator;
+import ntnu.idata2305.load.LoadSummary;
+import ntnu.idata2305.load.ReplaySummary;
+import ntnu.idata2305.load.TraceReplayer;
+import ntnu.idata2305.tls.Transport;
+
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * The CalculatorClient class simulates multiple clients connecting to a calculator server.
@@ -15,12 +27,13 @@ public class CalculatorClient {
    * Simulates a single client packet by connecting to the server, sending two random numbers and an operator,
    * and printing the result received from the server.
    *
-   * @param port     the port number to connect to the server
-   * @param clientId the unique identifier for the client instance
+   * @param transport plaintext or TLS
+   * @param port      the port number to connect to the server
+   * @param clientId  the unique identifier for the client instance
    */
-  private static void simulatePacket(int port, int clientId){
+  private static void simulatePacket(Transport transport, int port, int clientId){
     try {
-      Socket socket = new Socket("localhost", port);
+      Socket socket = transport.connect("localhost", port, 0);
 
       BufferedReader input = new BufferedReader(
         new InputStreamReader(socket.getInputStream()));
@@ -54,34 +67,317 @@ public class CalculatorClient {
     }
   }
 
+  /**
+   * Simulates a keep-alive client that sends many requests over one connection.
+   * Requests are pipelined: up to {@code pipelineDepth} requests are written before their
+   * responses are read, and the responses arrive in the order the requests were sent.
+   *
+   * @param transport     plaintext or TLS
+   * @param port          the port number to connect to the server
+   * @param clientId      the unique identifier for the client instance
+   * @param requests      the number of requests to send over the connection
+   * @param pipelineDepth the number of requests to send before reading responses
+   */
+  private static void simulateSession(Transport transport, int port, int clientId, int requests, int pipelineDepth) {
+    try (Socket socket = transport.connect("localhost", port, 0)) {
+      BufferedReader input = new BufferedReader(
+        new InputStreamReader(socket.getInputStream()));
+      PrintWriter output = new PrintWriter(
+        new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())));
+
+      Random rand = new Random();
+      char[] ops = {'A', 'S', 'M', 'D'};
+
+      output.println(CalculatorProtocol.KEEP_ALIVE);
+
+      int sent = 0;
+      while (sent < requests) {
+        int batch = Math.min(pipelineDepth, requests - sent);
+
+        // Send a whole batch before waiting for any response
+        for (int i = 0; i < batch; i++) {
+          output.println((double) (rand.nextInt(100) + 1));
+          output.println((double) (rand.nextInt(100) + 1));
+          output.println(ops[rand.nextInt(ops.length)]);
+        }
+        output.flush();
+
+        for (int i = 0; i < batch; i++) {
+          String result = input.readLine();
+          System.out.println("Client " + clientId + " recieved result " + (sent + i + 1)
+            + " from server: " + result);
+        }
+        sent += batch;
+      }
+    }
+    catch (IOException e){
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Simulates a client that uses the binary frame format over one connection.
+   * Requests are pipelined in the same way as {@link #simulateSession}, and the request id of each
+   * response is checked against the request it answers.
+   *
+   * @param transport     plaintext or TLS
+   * @param port          the port number to connect to the server
+   * @param clientId      the unique identifier for the client instance
+   * @param requests      the number of requests to send over the connection
+   * @param pipelineDepth the number of requests to send before reading responses
+   */
+  private static void simulateBinarySession(Transport transport, int port, int clientId, int requests,
+                                            int pipelineDepth) {
+    try (Socket socket = transport.connect("localhost", port, 0)) {
+      InputStream input = new BufferedInputStream(socket.getInputStream());
+      OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+
+      byte[] requestBytes = new byte[CalculatorProtocol.REQUEST_FRAME_BYTES];
+      byte[] responseBytes = new byte[CalculatorProtocol.RESPONSE_FRAME_BYTES];
+      ByteBuffer request = ByteBuffer.wrap(requestBytes);
+      ByteBuffer response = ByteBuffer.wrap(responseBytes);
+
+      Random rand = new Random();
+      char[] ops = {'A', 'S', 'M', 'D'};
+
+      output.write(CalculatorProtocol.BINARY_MAGIC);
+      output.flush();
+      if (input.read() != (CalculatorProtocol.BINARY_MAGIC & 0xFF)) {
+        throw new IOException("Server did not accept the binary format");
+      }
+
+      int sent = 0;
+      while (sent < requests) {
+        int batch = Math.min(pipelineDepth, requests - sent);
+
+        // Send a whole batch before waiting for any response
+        for (int i = 0; i < batch; i++) {
+          CalculatorProtocol.encodeRequest(request, ops[rand.nextInt(ops.length)],
+            rand.nextInt(100) + 1, rand.nextInt(100) + 1, sent + i);
+          output.write(requestBytes);
+        }
+        output.flush();
+
+        for (int i = 0; i < batch; i++) {
+          if (input.readNBytes(responseBytes, 0, responseBytes.length) < responseBytes.length) {
+            throw new EOFException("Server closed the connection");
+          }
+          if (CalculatorProtocol.responseId(response) != sent + i) {
+            throw new IOException("Response out of order: " + CalculatorProtocol.responseId(response));
+          }
+          System.out.println("Client " + clientId + " recieved result " + (sent + i + 1)
+            + " from server: " + CalculatorProtocol.responseResult(response));
+        }
+        sent += batch;
+      }
+    }
+    catch (IOException e){
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Simulates a client that sends batch frames over one binary connection. Every batch applies one
+   * random operator to {@code batchSize} random operand pairs, so framing and system calls are paid
+   * once per batch instead of once per pair.
+   *
+   * @param transport     plaintext or TLS
+   * @param port          the port number to connect to the server
+   * @param clientId      the unique identifier for the client instance
+   * @param batches       the number of batches to send over the connection
+   * @param batchSize     the number of operand pairs per batch
+   * @param pipelineDepth the number of batches to send before reading responses
+   */
+  private static void simulateBatchSession(Transport transport, int port, int clientId, int batches, int batchSize,
+                                           int pipelineDepth) {
+    try (Socket socket = transport.connect("localhost", port, 0)) {
+      InputStream input = new BufferedInputStream(socket.getInputStream());
+      OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+      BatchBuffers batch = new BatchBuffers();
+      batch.ensureCapacity(batchSize);
+
+      Random rand = new Random();
+      char[] ops = {'A', 'S', 'M', 'D'};
+
+      output.write(CalculatorProtocol.BINARY_MAGIC);
+      output.flush();
+      if (input.read() != (CalculatorProtocol.BINARY_MAGIC & 0xFF)) {
+        throw new IOException("Server did not accept the binary format");
+      }
+
+      int sent = 0;
+      while (sent < batches) {
+        int depth = Math.min(pipelineDepth, batches - sent);
+
+        for (int i = 0; i < depth; i++) {
+          for (int j = 0; j < batchSize; j++) {
+            batch.first()[j] = rand.nextInt(100) + 1;
+            batch.second()[j] = rand.nextInt(100) + 1;
+          }
+          batch.writeRequest(output, ops[rand.nextInt(ops.length)], sent + i, batchSize);
+        }
+        output.flush();
+
+        for (int i = 0; i < depth; i++) {
+          int requestId = batch.readResponse(input);
+          if (requestId != sent + i) {
+            throw new IOException("Response out of order: " + requestId);
+          }
+          System.out.println("Client " + clientId + " recieved batch " + (sent + i + 1)
+            + " from server: " + batchSize + " results, first " + batch.results()[0]);
+        }
+        sent += depth;
+      }
+    }
+    catch (IOException e){
+      e.printStackTrace();
+    }
+  }
+
   /**
    * The main entry point of the client application.
    * Reads configuration, starts multiple client threads, and waits for their completion.
+   * With {@code keepAlive=true} every client thread reuses one connection for
+   * {@code requestsPerConnection} pipelined requests, and with {@code protocol=binary} the requests
+   * are sent as binary frames instead of text lines. A binary client with {@code batchSize} above 1
+   * sends each request as a batch of that many operand pairs. With {@code clientMode=load} the
+   * client runs the {@link LoadGenerator} instead, with {@code clientMode=async} it sends every request
+   * from the main thread through an {@link AsyncCalculatorClient}, and with {@code clientMode=replay} it
+   * replays a recorded {@code traceFile} with the {@link TraceReplayer}. With {@code tls=true} every mode
+   * connects over TLS.
    *
    * @param args command-line arguments (not used)
    */
   public static void main(String[] args) {
     Config config = new Config("project.properties");
 
+    String clientMode = config.getString("clientMode", "simple");
+    if ("load".equalsIgnoreCase(clientMode)) {
+      runLoad(config);
+      return;
+    }
+    if ("async".equalsIgnoreCase(clientMode)) {
+      runAsync(config);
+      return;
+    }
+    if ("replay".equalsIgnoreCase(clientMode)) {
+      runReplay(config);
+      return;
+    }
+
     int port = config.getInt("port", 5000);
     int sends = config.getInt("maxClients", 10);
+    boolean keepAlive = Boolean.parseBoolean(config.getString("keepAlive", "false"));
+    int requestsPerConnection = config.getInt("requestsPerConnection", 1);
+    int pipelineDepth = config.getInt("pipelineDepth", 1);
+    boolean binary = "binary".equalsIgnoreCase(config.getString("protocol", "text"));
+    int requests = keepAlive ? requestsPerConnection : 1;
+    int batchSize = config.getInt("batchSize", 1);
 
     Thread[] threads = new Thread[sends];
 
     try {
+      Transport transport = Transport.fromConfig(config);
+      long startTime = System.nanoTime();
+
       for(int i = 0; i < sends; i++){
         final int clientId = i + 1;
-        threads[i] = new Thread(() -> simulatePacket(port, clientId));
+        if (binary && batchSize > 1) {
+          threads[i] = new Thread(() ->
+            simulateBatchSession(transport, port, clientId, requests, batchSize, pipelineDepth));
+        } else if (binary) {
+          threads[i] = new Thread(() -> simulateBinarySession(transport, port, clientId, requests, pipelineDepth));
+        } else if (keepAlive) {
+          threads[i] = new Thread(() -> simulateSession(transport, port, clientId, requests, pipelineDepth));
+        } else {
+          threads[i] = new Thread(() -> simulatePacket(transport, port, clientId));
+        }
         threads[i].start();
       }
       for(int i = 0; i < sends; i++) {
         threads[i].join();
       }
 
+      long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+      long total = (long) sends * requests * (binary ? batchSize : 1);
       System.out.println("All client requests completed.");
+      System.out.println(total + " requests in " + elapsedMillis + " ms ("
+        + (total * 1000 / Math.max(1, elapsedMillis)) + " requests/s)");
 
     } catch (Exception e) {
       e.printStackTrace();
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Sends {@code maxClients * requestsPerConnection} random requests from the main thread through one
+   * {@link AsyncCalculatorClient}, waits for all of them and prints how many completed and how fast.
+   *
+   * @param config the configuration to read
+   */
+  private static void runAsync(Config config) {
+    int requests = config.getInt("maxClients", 10) * config.getInt("requestsPerConnection", 1);
+    Random rand = new Random();
+    char[] ops = {'A', 'S', 'M', 'D'};
+    LongAdder failed = new LongAdder();
+    CompletableFuture<?>[] calls = new CompletableFuture<?>[requests];
+
+    try (AsyncCalculatorClient client = new AsyncCalculatorClient(config)) {
+      long startTime = System.nanoTime();
+      for (int i = 0; i < requests; i++) {
+        calls[i] = client.calculate(rand.nextInt(100) + 1, rand.nextInt(100) + 1, ops[rand.nextInt(ops.length)])
+          .exceptionally(e -> {
+            failed.increment();
+            return null;
+          });
+      }
+      CompletableFuture.allOf(calls).join();
+
+      long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+      long completed = requests - failed.sum();
+      System.out.println(completed + " requests completed and " + failed.sum() + " failed in "
+        + elapsedMillis + " ms (" + (completed * 1000 / Math.max(1, elapsedMillis)) + " requests/s)");
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Runs the load generator and prints its summary as one JSON line. The summary is also written
+   * to {@code summaryFile} if that property is set.
+   *
+   * @param config the configuration to read
+   */
+  private static void runLoad(Config config) {
+    try {
+      LoadSummary summary = new LoadGenerator(config).run();
+      printSummary(config, summary.toJson());
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Replays the recorded {@code traceFile} at {@code replaySpeed} and prints its summary as one JSON line,
+   * which is also written to {@code summaryFile} if that property is set.
+   *
+   * @param config the configuration to read
+   */
+  private static void runReplay(Config config) {
+    try {
+      ReplaySummary summary = new TraceReplayer(config).run();
+      printSummary(config, summary.toJson());
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static void printSummary(Config config, String json) throws IOException {
+    System.out.println(json);
+
+    String summaryFile = config.getString("summaryFile", "");
+    if (!summaryFile.isEmpty()) {
+      Files.writeString(Path.of(summaryFile), json + System.lineSeparator());
+    }
+  }
+}
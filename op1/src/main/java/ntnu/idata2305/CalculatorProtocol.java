@@ -0,0 +1,209 @@
+package ntnu.idata2305;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and frame layouts of the calculator wire protocol shared by the servers and the client.
+ *
+ * <p>The text format sends a request as three lines: the first operand, the second operand and the
+ * operator ('A', 'S', 'M' or 'D'). The response is one line holding the result. By default a connection
+ * carries exactly one request and is closed after the response. A client that opens the connection
+ * with the {@link #KEEP_ALIVE} line may send any number of requests, and may pipeline several of them
+ * before reading responses. Responses are always written in request order, and the connection stays
+ * open until the client closes it.
+ *
+ * <p>The binary format is negotiated by sending {@link #BINARY_MAGIC} as the first byte of the connection.
+ * The server acknowledges by echoing the same byte, after which the connection carries fixed-size frames
+ * until the client closes it. A request frame is the operator as a 1-byte opcode, the two operands as
+ * 8-byte IEEE 754 doubles and a 4-byte request id. A response frame is the request id followed by the
+ * result as an 8-byte double. All values are big-endian. Binary connections support pipelining in the
+ * same way as keep-alive text connections.
+ *
+ * <p>A binary connection may also send batch frames, which start with the {@link #OP_BATCH} opcode.
+ * A batch frame is the opcode, the operator as one byte, a 4-byte request id and a 4-byte pair count
+ * {@code n}, followed by the {@code n} first operands and then the {@code n} second operands as doubles.
+ * The response is the request id, the count and the {@code n} results as doubles. A batch costs one
+ * processing delay, however many pairs it holds.
+ *
+ * <p>A server that cannot admit another connection writes the {@link #BUSY} line instead of serving it
+ * and closes the connection. A binary client sees the {@code 'B'} of the line in place of the acknowledgement.
+ */
+public final class CalculatorProtocol {
+  /**
+   * First line sent by a client that wants to reuse the connection for many requests.
+   */
+  public static final String KEEP_ALIVE = "KEEPALIVE";
+
+  /**
+   * Line written to a connection that the server rejects because it is at its admission limit.
+   */
+  public static final String BUSY = "BUSY";
+
+  /**
+   * First byte sent by a client that wants to use binary frames. It can never start a text request.
+   */
+  public static final byte BINARY_MAGIC = (byte) 0xCA;
+
+  /**
+   * Size in bytes of a binary request frame: opcode, two operands and the request id.
+   */
+  public static final int REQUEST_FRAME_BYTES = 1 + 8 + 8 + 4;
+
+  /**
+   * Size in bytes of a binary response frame: the request id and the result.
+   */
+  public static final int RESPONSE_FRAME_BYTES = 4 + 8;
+
+  /**
+   * Opcode of a batch request frame.
+   */
+  public static final byte OP_BATCH = 'B';
+
+  /**
+   * Size in bytes of a batch request header: opcode, operator, request id and pair count.
+   */
+  public static final int BATCH_HEADER_BYTES = 1 + 1 + 4 + 4;
+
+  /**
+   * Size in bytes of a batch response header: request id and pair count.
+   */
+  public static final int BATCH_RESPONSE_HEADER_BYTES = 4 + 4;
+
+  /**
+   * The largest number of pairs a batch frame may hold.
+   */
+  public static final int MAX_BATCH = 65_536;
+
+  private static final int REJECT_TIMEOUT_MILLIS = 1000;
+
+  private CalculatorProtocol() {
+  }
+
+  /**
+   * Writes a request frame at the start of the buffer, without changing its position.
+   *
+   * @param frame     a buffer of at least {@link #REQUEST_FRAME_BYTES} bytes
+   * @param operator  the operator
+   * @param a         the first operand
+   * @param b         the second operand
+   * @param requestId the id echoed back in the response
+   */
+  public static void encodeRequest(ByteBuffer frame, char operator, double a, double b, int requestId) {
+    frame.put(0, (byte) operator);
+    frame.putDouble(1, a);
+    frame.putDouble(9, b);
+    frame.putInt(17, requestId);
+  }
+
+  /**
+   * Returns the operator of the request frame at the start of the buffer.
+   */
+  public static char requestOperator(ByteBuffer frame) {
+    return (char) frame.get(0);
+  }
+
+  /**
+   * Returns the first operand of the request frame at the start of the buffer.
+   */
+  public static double requestFirst(ByteBuffer frame) {
+    return frame.getDouble(1);
+  }
+
+  /**
+   * Returns the second operand of the request frame at the start of the buffer.
+   */
+  public static double requestSecond(ByteBuffer frame) {
+    return frame.getDouble(9);
+  }
+
+  /**
+   * Returns the request id of the request frame at the start of the buffer.
+   */
+  public static int requestId(ByteBuffer frame) {
+    return frame.getInt(17);
+  }
+
+  /**
+   * Writes a response frame at the start of the buffer, without changing its position.
+   *
+   * @param frame     a buffer of at least {@link #RESPONSE_FRAME_BYTES} bytes
+   * @param requestId the id of the request being answered
+   * @param result    the result of the calculation
+   */
+  public static void encodeResponse(ByteBuffer frame, int requestId, double result) {
+    frame.putInt(0, requestId);
+    frame.putDouble(4, result);
+  }
+
+  /**
+   * Returns the request id of the response frame at the start of the buffer.
+   */
+  public static int responseId(ByteBuffer frame) {
+    return frame.getInt(0);
+  }
+
+  /**
+   * Returns the result of the response frame at the start of the buffer.
+   */
+  public static double responseResult(ByteBuffer frame) {
+    return frame.getDouble(4);
+  }
+
+  /**
+   * Writes a batch request header at the start of the buffer, without changing its position.
+   *
+   * @param header    a buffer of at least {@link #BATCH_HEADER_BYTES} bytes
+   * @param operator  the operator applied to every pair
+   * @param requestId the id echoed back in the response
+   * @param count     the number of operand pairs that follow
+   */
+  public static void encodeBatchHeader(ByteBuffer header, char operator, int requestId, int count) {
+    header.put(0, OP_BATCH);
+    header.put(1, (byte) operator);
+    header.putInt(2, requestId);
+    header.putInt(6, count);
+  }
+
+  /**
+   * Returns the operator of the batch request header at the start of the buffer.
+   */
+  public static char batchOperator(ByteBuffer header) {
+    return (char) header.get(1);
+  }
+
+  /**
+   * Returns the request id of the batch request header at the start of the buffer.
+   */
+  public static int batchId(ByteBuffer header) {
+    return header.getInt(2);
+  }
+
+  /**
+   * Returns the pair count of the batch request header at the start of the buffer.
+   */
+  public static int batchCount(ByteBuffer header) {
+    return header.getInt(6);
+  }
+
+  /**
+   * Turns a connection away with the {@link #BUSY} line and closes it. Over TLS this can block for up to a
+   * second, so the threaded servers call it off their accepting thread.
+   *
+   * @param socket the connection to reject
+   */
+  public static void rejectBusy(Socket socket) {
+    try (socket) {
+      // Over TLS the write runs the handshake first; give up on a client that stalls it
+      socket.setSoTimeout(REJECT_TIMEOUT_MILLIS);
+      OutputStream out = socket.getOutputStream();
+      out.write((BUSY + "\n").getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+    } catch (IOException ignored) {
+      // The client is gone either way
+    }
+  }
+}
@@ -0,0 +1,467 @@
+package ntnu.idata2305;
+
+import ntnu.idata2305.cache.ResultCache;
+import ntnu.idata2305.events.EventLog;
+import ntnu.idata2305.limit.AdaptiveLimiter;
+import ntnu.idata2305.metrics.ServerMetrics;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ClientHandler class handles communication with a single client.
+ * It receives two numbers and an operator, performs the calculation, simulates a processing delay,
+ * and sends the result back to the client. It is a plain task so that every {@link ExecutionMode}
+ * can run it, whether on a dedicated platform thread, a pooled thread or a virtual thread, and so that
+ * the SingleThreadServer can run it inline.
+ *
+ * <p>Keep-alive text connections and binary connections (see {@link CalculatorProtocol}) are served until the
+ * client closes them. Requests on such a connection are answered in order, and responses to pipelined
+ * requests are flushed together once no further request is buffered. Text lines are read into and
+ * answered from byte buffers with {@link AsciiCodec}, so requests allocate nothing once the connection is set
+ * up. The buffers are pooled {@link HandlerBuffers}, taken from the {@link ServerContext} for the life of the
+ * connection.
+ *
+ * <p>Every request is timed into the server's {@link ServerMetrics}: decoding, calculating (including the
+ * simulated delay) and the whole service time from receiving the request to writing the response.
+ * With an {@link EventLog}, every request is also logged with its operands and result, instead of being
+ * echoed to the console.
+ * Results found in the server's {@link ResultCache} skip the calculation and the delay; batches are not cached.
+ *
+ * <p>With an {@link AdaptiveLimiter}, every calculation and its delay first takes a slot of the limiter.
+ * A request that gets no slot in time ends the connection: a text client is answered with the BUSY line,
+ * a binary client sees the connection close after the responses to its earlier requests.
+ *
+ * <p>Waiting for the next request is bounded by the idle timeout and reading the rest of a started request
+ * by the read timeout. The idle timeout is counted in steps of the read timeout (see {@link #awaitRequest}),
+ * so it is rounded up to a multiple of it. While the server drains, the handler answers the request it is
+ * working on and any requests already buffered, then closes the connection.
+ */
+class ClientHandler implements Runnable, ServerLifecycle.IdleCloseable {
+  private static final byte[] KEEP_ALIVE = CalculatorProtocol.KEEP_ALIVE.getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] BUSY = (CalculatorProtocol.BUSY + "\n").getBytes(StandardCharsets.US_ASCII);
+
+  private final Socket socket;
+  private final ServerContext context;
+  private final ServerMetrics metrics;
+  private final EventLog events;
+  private final long id;
+  private final boolean echo;
+  private HandlerBuffers buffers;
+  private byte[] line;
+  private int soTimeout = -1;
+
+  /**
+   * Whether the handler is waiting for the next request, and may be closed without losing work.
+   */
+  private volatile boolean idle;
+
+  /**
+   * Constructs a new ClientHandler for the given client socket.
+   *
+   * @param socket  the client socket
+   * @param context the settings and services of the server
+   */
+  public ClientHandler(Socket socket, ServerContext context) {
+    this(socket, context, false);
+  }
+
+  /**
+   * Constructs a new ClientHandler that optionally prints the operands of every request.
+   *
+   * @param socket  the client socket
+   * @param context the settings and services of the server
+   * @param echo    whether to print the operands and operator of each request
+   */
+  public ClientHandler(Socket socket, ServerContext context, boolean echo) {
+    this.socket = socket;
+    this.context = context;
+    this.metrics = context.metrics();
+    this.events = context.events();
+    this.id = context.nextConnectionId();
+    this.echo = echo;
+  }
+
+  /**
+   * Returns the id of the connection in the server's event log.
+   */
+  public long id() {
+    return id;
+  }
+
+  /**
+   * Handles the client requests by reading input, performing calculation, and sending the result.
+   * Simulates a processing delay before responding. The first byte decides whether the connection
+   * uses the text or the binary format.
+   */
+  @Override
+  public void run() {
+    context.lifecycle().register(this);
+    buffers = context.takeBuffers();
+    line = buffers.line;
+    try (socket) {
+      setTimeout(context.readTimeout());
+      // Every response is flushed whole; over TLS Nagle's algorithm would hold it back behind the session ticket
+      socket.setTcpNoDelay(true);
+      BufferedInputStream in = new BufferedInputStream(socket.getInputStream());
+      BufferedOutputStream out = new BufferedOutputStream(socket.getOutputStream());
+
+      in.mark(1);
+      int first = awaitRequest(in);
+      if (first == (CalculatorProtocol.BINARY_MAGIC & 0xFF)) {
+        serveBinary(in, out);
+      } else if (first >= 0) {
+        in.reset();
+        serveText(in, out);
+      }
+
+    } catch (SocketException e) {
+      // Closing an idle connection during shutdown is expected
+      if (!context.lifecycle().isDraining()) {
+        metrics.error();
+        e.printStackTrace();
+      }
+    } catch (NumberFormatException | EOFException e) {
+      // A client error, not a server one; one line is enough
+      metrics.error();
+      System.err.println("Malformed request: " + e.getMessage());
+    } catch (Exception e) {
+      metrics.error();
+      e.printStackTrace();
+    } finally {
+      context.returnBuffers(buffers);
+      context.lifecycle().unregister(this);
+      metrics.connectionClosed();
+      if (events != null) {
+        events.connectionClosed(id);
+      }
+    }
+  }
+
+  /**
+   * Returns whether the handler is waiting for the next request.
+   */
+  @Override
+  public boolean isIdle() {
+    return idle;
+  }
+
+  /**
+   * Closes the connection; a blocked read then fails and the handler finishes.
+   */
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+
+  /**
+   * Waits for the first byte of the next request under the idle timeout. The byte is consumed; use
+   * mark/reset to keep it.
+   *
+   * <p>The socket timeout stays at the read timeout, which bounds the rest of the request, and the idle
+   * timeout is a deadline checked each time a wait for it runs out. Switching the socket timeout per request
+   * would box an Integer on every blocking wait. Only with no read timeout does the socket wait for the idle
+   * timeout itself and switch back afterwards.
+   *
+   * @return the first byte, or -1 if the client disconnected, the idle timeout passed or the server is draining
+   */
+  private int awaitRequest(InputStream in) throws IOException {
+    if (in.available() > 0) {
+      // A pipelined request is already buffered and is served even while draining
+      return in.read();
+    }
+    int readTimeout = context.readTimeout();
+    int idleTimeout = context.idleTimeout();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+    idle = true;
+    setTimeout(readTimeout > 0 ? readTimeout : idleTimeout);
+    try {
+      while (true) {
+        // Checked after marking the handler idle, so a concurrent shutdown either sees it idle or is seen here
+        if (context.lifecycle().isDraining()) {
+          return -1;
+        }
+        try {
+          return in.read();
+        } catch (SocketTimeoutException e) {
+          if (idleTimeout > 0 && System.nanoTime() - deadline >= 0) {
+            return -1;
+          }
+        }
+      }
+    } finally {
+      idle = false;
+      setTimeout(readTimeout);
+    }
+  }
+
+  /**
+   * Sets the socket timeout unless it already has that value; Socket.setSoTimeout boxes its argument.
+   */
+  private void setTimeout(int timeout) throws SocketException {
+    if (timeout != soTimeout) {
+      socket.setSoTimeout(timeout);
+      soTimeout = timeout;
+    }
+  }
+
+  /**
+   * Waits for the next text request like {@link #awaitRequest} and reads its first line. Requests the
+   * client has already pipelined are still served while the server drains.
+   *
+   * @return the length of the line, or -1 if there is no further request
+   */
+  private int awaitLine(InputStream in) throws IOException {
+    in.mark(1);
+    if (awaitRequest(in) < 0) {
+      return -1;
+    }
+    in.reset();
+    return readLine(in);
+  }
+
+  /**
+   * Reads one line into the line buffer, without its line terminator.
+   *
+   * @return the length of the line, or -1 if the client disconnected before sending any of it
+   * @throws IOException if the line does not fit the buffer
+   */
+  private int readLine(InputStream in) throws IOException {
+    int length = 0;
+    int b;
+    while ((b = in.read()) >= 0 && b != '\n') {
+      if (b == '\r') {
+        continue;
+      }
+      if (length == line.length) {
+        throw new IOException("Request line too long");
+      }
+      line[length++] = (byte) b;
+    }
+    return b < 0 && length == 0 ? -1 : length;
+  }
+
+  /**
+   * Reads a line that has to be there to complete the request.
+   *
+   * @return the length of the line
+   * @throws EOFException if the client disconnected in the middle of the request
+   */
+  private int requireLine(InputStream in) throws IOException {
+    int length = readLine(in);
+    if (length < 0) {
+      throw new EOFException("Client disconnected in the middle of a request");
+    }
+    return length;
+  }
+
+  /**
+   * Serves a text connection: one request, or requests until the client disconnects in keep-alive mode.
+   * Numbers are parsed from and formatted into the handler's own byte buffers by {@link AsciiCodec},
+   * so once a connection is set up its requests allocate nothing.
+   */
+  private void serveText(InputStream in, OutputStream out) throws IOException, InterruptedException {
+    int length = readLine(in);
+    boolean keepAlive = Arrays.equals(line, 0, Math.max(length, 0), KEEP_ALIVE, 0, KEEP_ALIVE.length);
+    if (keepAlive) {
+      length = awaitLine(in);
+    }
+
+    while (length >= 0) {
+      long received = System.nanoTime();
+      double num1 = AsciiCodec.parseDouble(line, 0, length);
+      double num2 = AsciiCodec.parseDouble(line, 0, requireLine(in));
+      if (requireLine(in) == 0) {
+        throw new NumberFormatException("Missing operator");
+      }
+      char operator = (char) line[0];
+      long parsed = System.nanoTime();
+
+      if (echo && events == null) {
+        System.out.println(num1 + " | " + num2 + " | " + operator);
+      }
+
+      double result;
+      try {
+        result = calculate(num1, num2, Character.toUpperCase(operator));
+      } catch (RejectedExecutionException e) {
+        out.write(BUSY);
+        break;
+      }
+
+      long computed = System.nanoTime();
+
+      byte[] number = buffers.number;
+      int n = AsciiCodec.formatDouble(result, number, 0);
+      number[n] = '\n';
+      out.write(number, 0, n + 1);
+      long served = System.nanoTime() - received;
+      metrics.requestServed(parsed - received, computed - parsed, served);
+      if (events != null) {
+        events.request(id, num1, num2, Character.toUpperCase(operator), result, served);
+      }
+
+      // Pipelined requests are answered in one write once the buffered input is used up
+      if (!keepAlive || in.available() == 0) {
+        out.flush();
+      }
+      length = keepAlive ? awaitLine(in) : -1;
+    }
+    out.flush();
+  }
+
+  /**
+   * Serves a binary connection until the client disconnects. Frames are decoded straight from
+   * the pooled buffers, so requests allocate nothing.
+   */
+  private void serveBinary(InputStream in, OutputStream out) throws IOException, InterruptedException {
+    byte[] requestBytes = buffers.requestBytes;
+    byte[] responseBytes = buffers.responseBytes;
+    ByteBuffer request = buffers.request;
+    ByteBuffer response = buffers.response;
+    BatchBuffers batch = buffers.batch;
+
+    // Acknowledge the binary format
+    out.write(CalculatorProtocol.BINARY_MAGIC);
+    out.flush();
+
+    // Read the opcode first, since batch frames have a different layout from single requests
+    int opcode;
+    while ((opcode = awaitRequest(in)) >= 0) {
+      requestBytes[0] = (byte) opcode;
+      if (requestBytes[0] == CalculatorProtocol.OP_BATCH) {
+        if (in.readNBytes(requestBytes, 1, CalculatorProtocol.BATCH_HEADER_BYTES - 1)
+          < CalculatorProtocol.BATCH_HEADER_BYTES - 1) {
+          break;
+        }
+        if (!serveBatch(in, out, request, batch)) {
+          break;
+        }
+      } else {
+        if (in.readNBytes(requestBytes, 1, requestBytes.length - 1) < requestBytes.length - 1) {
+          break;
+        }
+        long received = System.nanoTime();
+        char operator = CalculatorProtocol.requestOperator(request);
+        double num1 = CalculatorProtocol.requestFirst(request);
+        double num2 = CalculatorProtocol.requestSecond(request);
+        long parsed = System.nanoTime();
+
+        if (echo && events == null) {
+          System.out.println(num1 + " | " + num2 + " | " + operator);
+        }
+
+        double result;
+        try {
+          result = calculate(num1, num2, Character.toUpperCase(operator));
+        } catch (RejectedExecutionException e) {
+          break;
+        }
+
+        long computed = System.nanoTime();
+
+        CalculatorProtocol.encodeResponse(response, CalculatorProtocol.requestId(request), result);
+        out.write(responseBytes);
+        long served = System.nanoTime() - received;
+        metrics.requestServed(parsed - received, computed - parsed, served);
+        if (events != null) {
+          events.request(id, num1, num2, Character.toUpperCase(operator), result, served);
+        }
+      }
+
+      // Pipelined requests are answered in one write once the buffered input is used up
+      if (in.available() == 0) {
+        out.flush();
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * Calculates one result and simulates the processing delay, unless the result cache already holds it.
+   *
+   * @throws RejectedExecutionException if the concurrency limiter has no slot for the calculation
+   */
+  private double calculate(double num1, double num2, char operator) throws InterruptedException {
+    ResultCache cache = context.cache();
+    if (cache != null) {
+      long cached = cache.lookup(num1, num2, operator);
+      if (cached != ResultCache.MISS) {
+        return Double.longBitsToDouble(cached);
+      }
+    }
+
+    AdaptiveLimiter limiter = context.limiter();
+    if (limiter != null && !limiter.acquire()) {
+      throw new RejectedExecutionException("Concurrency limit reached");
+    }
+    long started = System.nanoTime();
+    double result;
+    try {
+      result = Calculator.calculate(num1, num2, operator);
+
+      // Simulate processing delay
+      Thread.sleep(context.delay());
+    } finally {
+      if (limiter != null) {
+        limiter.release(System.nanoTime() - started);
+      }
+    }
+
+    if (cache != null) {
+      cache.store(num1, num2, operator, result);
+    }
+    return result;
+  }
+
+  /**
+   * Serves one batch frame whose header has been read into {@code header}.
+   * The whole batch costs a single processing delay and takes a single slot of the concurrency limiter.
+   *
+   * @return false if the limiter rejected the batch, which is then not answered
+   */
+  private boolean serveBatch(InputStream in, OutputStream out, ByteBuffer header, BatchBuffers batch)
+    throws IOException, InterruptedException {
+    long received = System.nanoTime();
+    char operator = Character.toUpperCase(CalculatorProtocol.batchOperator(header));
+    int requestId = CalculatorProtocol.batchId(header);
+    int count = CalculatorProtocol.batchCount(header);
+
+    batch.readOperands(in, count);
+    long parsed = System.nanoTime();
+
+    if (echo && events == null) {
+      System.out.println("Batch of " + count + " | " + operator);
+    }
+
+    AdaptiveLimiter limiter = context.limiter();
+    if (limiter != null && !limiter.acquire()) {
+      return false;
+    }
+    try {
+      Calculator.calculateBatch(operator, batch.first(), batch.second(), batch.results(), count);
+
+      // Simulate processing delay
+      Thread.sleep(context.delay());
+    } finally {
+      if (limiter != null) {
+        limiter.release(System.nanoTime() - parsed);
+      }
+    }
+
+    long computed = System.nanoTime();
+
+    batch.writeResponse(out, requestId, count);
+    long served = System.nanoTime() - received;
+    metrics.requestServed(parsed - received, computed - parsed, served);
+    if (events != null) {
+      events.batch(id, operator, count, served);
+    }
+    return true;
+  }
+}
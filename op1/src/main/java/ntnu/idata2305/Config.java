@@ -1,34 +1,90 @@
 package ntnu.idata2305;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Loads and provides access to configuration properties from a file in the resources directory.
+ * A system property with the same key, e.g. {@code -Dport=5001}, overrides the value from the file.
+ *
+ * <p>With {@code -DconfigFile=path} the properties are read from that file instead, and the classpath file
+ * is only used if it does not exist. Such a file can be watched with {@link #watch()}: whenever it is saved,
+ * it is parsed into a new {@link ConfigSnapshot} that replaces the current one at once, and every
+ * {@link Listener} is told which keys changed. A file that cannot be read, or has a setting that does not
+ * parse, keeps the previous snapshot.
  */
 public class Config {
   /**
-   * The loaded properties.
+   * Receives the configuration after a reload changed it.
    */
-  private Properties properties = new Properties();
+  @FunctionalInterface
+  public interface Listener {
+    /**
+     * Called on the watcher thread after the snapshot was replaced.
+     *
+     * @param current the new snapshot
+     * @param changed the keys whose values changed
+     */
+    void configChanged(ConfigSnapshot current, Set<String> changed);
+  }
+
+  private final String filename;
+  private final Path file;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private volatile ConfigSnapshot snapshot;
+  private Thread watcher;
 
   /**
-   * Loads properties from the specified file in the classpath resources.
-   * If the file is not found or an error occurs, default values will be used.
+   * Loads properties from the specified file in the classpath resources, or from the file named by the
+   * {@code configFile} system property if it exists.
+   * If the file is not found, cannot be read or has a setting that does not parse, default values will be used.
    *
    * @param filename the name of the properties file to load
+   * @throws IllegalArgumentException if a system property overrides a setting with a value that does not parse
    */
   public Config(String filename) {
-    try (InputStream is = getClass().getClassLoader().getResourceAsStream(filename)) {
-      if (is != null) {
-        properties.load(is);
+    this.filename = filename;
+    String external = System.getProperty("configFile");
+    this.file = external != null ? Path.of(external).toAbsolutePath() : null;
+
+    Properties properties = new Properties();
+    ConfigSnapshot loaded;
+    try {
+      if (file != null && Files.isRegularFile(file)) {
+        loadFile(properties);
+        loaded = ConfigSnapshot.of(properties);
+        System.out.println("Config file " + file + " loaded successfully.");
+      } else if (loadResource(properties)) {
+        loaded = ConfigSnapshot.of(properties);
         System.out.println("Config file loaded successfully.");
       } else {
+        loaded = ConfigSnapshot.of(properties);
         System.out.println("Config file not found in resources. Using defaults.");
       }
     } catch (Exception e) {
-      System.out.println("Error loading config. Using defaults.");
+      System.out.println("Error loading config. Using defaults: " + e.getMessage());
+      loaded = ConfigSnapshot.of(new Properties());
     }
+    snapshot = loaded;
+  }
+
+  /**
+   * Returns the current snapshot. Read several related values from one snapshot so that a concurrent
+   * reload cannot mix old and new values.
+   */
+  public ConfigSnapshot snapshot() {
+    return snapshot;
   }
 
   /**
@@ -39,7 +95,29 @@ public class Config {
    * @return the integer property value, or defaultValue if not found
    */
   public int getInt(String key, int defaultValue) {
-    return Integer.parseInt(properties.getProperty(key, String.valueOf(defaultValue)));
+    return snapshot.getInt(key, defaultValue);
+  }
+
+  /**
+   * Retrieves a long property value by key, or returns the default value if not found.
+   *
+   * @param key the property key
+   * @param defaultValue the value to return if the property is not found
+   * @return the long property value, or defaultValue if not found
+   */
+  public long getLong(String key, long defaultValue) {
+    return snapshot.getLong(key, defaultValue);
+  }
+
+  /**
+   * Retrieves a boolean property value by key, or returns the default value if not found.
+   *
+   * @param key the property key
+   * @param defaultValue the value to return if the property is not found
+   * @return the boolean property value, or defaultValue if not found
+   */
+  public boolean getBoolean(String key, boolean defaultValue) {
+    return snapshot.getBoolean(key, defaultValue);
   }
 
   /**
@@ -50,6 +128,117 @@ public class Config {
    * @return the string property value, or defaultValue if not found
    */
   public String getString(String key, String defaultValue) {
-    return properties.getProperty(key, defaultValue);
+    return snapshot.getString(key, defaultValue);
+  }
+
+  /**
+   * Registers a listener that is called after every reload that changes a value.
+   *
+   * @param listener the listener to add
+   */
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Starts watching the {@code configFile} for changes on a daemon thread and reloads it whenever it
+   * is written. Does nothing if no {@code configFile} is set or it is already watched.
+   *
+   * @return this configuration
+   */
+  public synchronized Config watch() {
+    if (file == null || watcher != null) {
+      return this;
+    }
+    try {
+      WatchService watchService = file.getFileSystem().newWatchService();
+      // A directory is watched, not the file, so that editors that replace the file are noticed too
+      file.getParent().register(watchService,
+        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+      watcher = Thread.ofPlatform().daemon().name("config-watcher").start(() -> watchLoop(watchService));
+      System.out.println("Watching " + file + " for changes.");
+    } catch (IOException e) {
+      System.out.println("Cannot watch " + file + ": " + e.getMessage());
+    }
+    return this;
+  }
+
+  /**
+   * Reads the {@code configFile} again and, if any value changed, replaces the snapshot and notifies the
+   * listeners. The previous snapshot is kept if the file cannot be read or a setting does not parse.
+   *
+   * @return true if the snapshot was replaced
+   */
+  public boolean reload() {
+    if (file == null) {
+      return false;
+    }
+    Properties properties = new Properties();
+    ConfigSnapshot current;
+    try {
+      loadFile(properties);
+      if (properties.isEmpty()) {
+        // Most likely an editor truncated the file and has not written it yet; the next event reloads it
+        return false;
+      }
+      current = ConfigSnapshot.of(properties);
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Error reloading " + file + ", keeping the previous config: " + e.getMessage());
+      return false;
+    }
+
+    Set<String> changed;
+    synchronized (this) {
+      changed = current.changedKeys(snapshot);
+      if (changed.isEmpty()) {
+        return false;
+      }
+      snapshot = current;
+    }
+    System.out.println("Config reloaded, changed: " + String.join(", ", changed));
+    for (Listener listener : listeners) {
+      try {
+        listener.configChanged(current, changed);
+      } catch (RuntimeException e) {
+        System.out.println("Config listener failed: " + e);
+      }
+    }
+    return true;
+  }
+
+  private void watchLoop(WatchService watchService) {
+    try (watchService) {
+      while (true) {
+        WatchKey key = watchService.take();
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (file.getFileName().equals(event.context())) {
+            touched = true;
+          }
+        }
+        key.reset();
+        if (touched) {
+          reload();
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException | IOException e) {
+      // Stop watching
+    }
+  }
+
+  private void loadFile(Properties properties) throws IOException {
+    try (InputStream is = Files.newInputStream(file)) {
+      properties.load(is);
+    }
+  }
+
+  private boolean loadResource(Properties properties) throws IOException {
+    try (InputStream is = getClass().getClassLoader().getResourceAsStream(filename)) {
+      if (is == null) {
+        return false;
+      }
+      properties.load(is);
+      return true;
+    }
   }
-}
\ No newline at end of file
+}
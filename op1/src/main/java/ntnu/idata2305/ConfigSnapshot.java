@@ -0,0 +1,208 @@
+package ntnu.idata2305;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * An immutable, parsed view of the configuration as it was loaded at one point in time.
+ * A system property with the same key, e.g. {@code -Dport=5001}, overrides the value from the file.
+ *
+ * <p>Every known integer setting is parsed once, when the snapshot is built, so {@link #getInt} is a map
+ * lookup rather than a parse. The settings a running server reads on every request or connection also
+ * have typed accessors, checked for sensible ranges. A value that does not parse or is out of range makes
+ * building the snapshot fail, so a broken file is rejected as a whole instead of failing later reads.
+ *
+ * <p>A reload never changes a snapshot; it replaces it as a whole, so values read from one snapshot
+ * always belong together.
+ */
+public final class ConfigSnapshot {
+  /**
+   * The integer settings read anywhere in the application, parsed when the snapshot is built.
+   */
+  private static final Set<String> INT_KEYS = Set.of(
+    "port", "maxClients", "backlog", "poolSize", "processingDelay", "idleTimeoutMillis", "readTimeoutMillis",
+    "admissionLimit", "drainTimeoutMillis", "metricsIntervalSeconds", "eventLoops", "cacheSize",
+    "initialLimit", "minLimit", "maxLimit", "limitWaitMillis", "eventLogBuffer", "clusterBackends",
+    "clusterBasePort", "healthCheckMillis", "healthTimeoutMillis", "targetRate", "concurrency",
+    "warmupSeconds", "durationSeconds", "requestsPerConnection", "batchSize", "pipelineDepth",
+    "asyncConnections", "maxOutstanding", "requestTimeoutMillis", "tlsSessionCacheSize",
+    "tlsSessionTimeoutSeconds");
+
+  private final Map<String, String> values;
+  private final Map<String, Integer> ints;
+  private final int processingDelay;
+  private final int idleTimeoutMillis;
+  private final int readTimeoutMillis;
+  private final int admissionLimit;
+  private final int poolSize;
+
+  private ConfigSnapshot(Map<String, String> values) {
+    this.values = values;
+    Map<String, Integer> parsed = new HashMap<>();
+    for (String key : INT_KEYS) {
+      String value = getString(key, null);
+      if (value != null) {
+        try {
+          parsed.put(key, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException(key + " is not an integer: " + value, e);
+        }
+      }
+    }
+    this.ints = Map.copyOf(parsed);
+    this.processingDelay = atLeast("processingDelay", 1000, 0);
+    this.idleTimeoutMillis = atLeast("idleTimeoutMillis", 0, 0);
+    this.readTimeoutMillis = atLeast("readTimeoutMillis", 0, 0);
+    this.admissionLimit = atLeast("admissionLimit", 0, 0);
+    this.poolSize = atLeast("poolSize", 64, 1);
+  }
+
+  /**
+   * Creates a snapshot of loaded properties.
+   *
+   * @param properties the properties read from the file
+   * @return the snapshot
+   * @throws IllegalArgumentException if a known setting is not a valid integer or out of range
+   */
+  static ConfigSnapshot of(Properties properties) {
+    Map<String, String> values = new HashMap<>();
+    for (String key : properties.stringPropertyNames()) {
+      values.put(key, properties.getProperty(key).trim());
+    }
+    return new ConfigSnapshot(Map.copyOf(values));
+  }
+
+  private int atLeast(String key, int defaultValue, int min) {
+    int value = getInt(key, defaultValue);
+    if (value < min) {
+      throw new IllegalArgumentException(key + " must be at least " + min + ": " + value);
+    }
+    return value;
+  }
+
+  /**
+   * Returns the simulated processing delay in milliseconds, {@code processingDelay}, 1000 by default.
+   */
+  public int processingDelay() {
+    return processingDelay;
+  }
+
+  /**
+   * Returns how long a connection may wait for its next request, {@code idleTimeoutMillis}; 0, the default,
+   * waits forever.
+   */
+  public int idleTimeoutMillis() {
+    return idleTimeoutMillis;
+  }
+
+  /**
+   * Returns how long a started request may take to arrive, {@code readTimeoutMillis}; 0, the default,
+   * waits forever.
+   */
+  public int readTimeoutMillis() {
+    return readTimeoutMillis;
+  }
+
+  /**
+   * Returns the largest number of connections served or queued at once, {@code admissionLimit};
+   * 0, the default, means no limit.
+   */
+  public int admissionLimit() {
+    return admissionLimit;
+  }
+
+  /**
+   * Returns the size of the handler pool, {@code poolSize}, 64 by default.
+   */
+  public int poolSize() {
+    return poolSize;
+  }
+
+  /**
+   * Retrieves a string property value by key, or returns the default value if not found.
+   *
+   * @param key the property key
+   * @param defaultValue the value to return if the property is not found
+   * @return the string property value, or defaultValue if not found
+   */
+  public String getString(String key, String defaultValue) {
+    String value = System.getProperty(key);
+    return value != null ? value : values.getOrDefault(key, defaultValue);
+  }
+
+  /**
+   * Retrieves an integer property value by key, or returns the default value if not found.
+   * Known settings were parsed when the snapshot was built; other keys are parsed on every call.
+   *
+   * @param key the property key
+   * @param defaultValue the value to return if the property is not found
+   * @return the integer property value, or defaultValue if not found
+   * @throws NumberFormatException if the value of an unknown key is not an integer
+   */
+  public int getInt(String key, int defaultValue) {
+    Integer parsed = ints.get(key);
+    if (parsed != null) {
+      return parsed;
+    }
+    if (INT_KEYS.contains(key)) {
+      return defaultValue;
+    }
+    String value = getString(key, null);
+    return value != null ? Integer.parseInt(value) : defaultValue;
+  }
+
+  /**
+   * Retrieves a long property value by key, or returns the default value if not found.
+   *
+   * @param key the property key
+   * @param defaultValue the value to return if the property is not found
+   * @return the long property value, or defaultValue if not found
+   * @throws NumberFormatException if the value is not an integer
+   */
+  public long getLong(String key, long defaultValue) {
+    Integer parsed = ints.get(key);
+    if (parsed != null) {
+      return parsed;
+    }
+    String value = getString(key, null);
+    return value != null ? Long.parseLong(value) : defaultValue;
+  }
+
+  /**
+   * Retrieves a boolean property value by key, or returns the default value if not found.
+   * Only "true", ignoring case, is true.
+   *
+   * @param key the property key
+   * @param defaultValue the value to return if the property is not found
+   * @return the boolean property value, or defaultValue if not found
+   */
+  public boolean getBoolean(String key, boolean defaultValue) {
+    String value = getString(key, null);
+    return value != null ? Boolean.parseBoolean(value) : defaultValue;
+  }
+
+  /**
+   * Returns the keys whose values differ between this snapshot and another one, including keys that
+   * only one of them has.
+   *
+   * @param other the snapshot to compare with
+   * @return the changed keys
+   */
+  public Set<String> changedKeys(ConfigSnapshot other) {
+    Set<String> changed = new HashSet<>();
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      if (!entry.getValue().equals(other.values.get(entry.getKey()))) {
+        changed.add(entry.getKey());
+      }
+    }
+    for (String key : other.values.keySet()) {
+      if (!values.containsKey(key)) {
+        changed.add(key);
+      }
+    }
+    return changed;
+  }
+}
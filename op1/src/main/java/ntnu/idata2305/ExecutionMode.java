@@ -0,0 +1,75 @@
+package ntnu.idata2305;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * The execution modes the MultiThreadServer can use to run its client handlers.
+ * The mode is selected with {@code executionMode=#} in {@code project.properties}.
+ */
+public enum ExecutionMode {
+  /**
+   * One new platform (OS) thread per accepted connection. This is the original behaviour.
+   */
+  PLATFORM,
+
+  /**
+   * A fixed pool of {@code poolSize} platform threads shared by all connections.
+   */
+  POOL,
+
+  /**
+   * One new virtual thread per accepted connection. Blocking calls such as socket reads
+   * and {@code Thread.sleep} unmount the virtual thread instead of holding an OS thread.
+   */
+  VIRTUAL;
+
+  /**
+   * Creates the executor service that runs client handlers in this mode.
+   *
+   * @param poolSize the number of threads to use in {@link #POOL} mode, ignored otherwise
+   * @return a new executor service
+   */
+  public ExecutorService newExecutor(int poolSize) {
+    switch (this) {
+      case POOL: return Executors.newFixedThreadPool(poolSize);
+      case VIRTUAL: return Executors.newVirtualThreadPerTaskExecutor();
+      default: return Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory());
+    }
+  }
+
+  /**
+   * Changes the number of threads of an executor created by {@link #newExecutor} in {@link #POOL} mode.
+   * Running handlers keep their threads; a smaller pool retires threads as they become idle.
+   * Does nothing in the other modes, which have no fixed number of threads.
+   *
+   * @param executor the executor to resize
+   * @param poolSize the new number of threads
+   */
+  public void resize(ExecutorService executor, int poolSize) {
+    if (this != POOL || !(executor instanceof ThreadPoolExecutor pool) || poolSize < 1) {
+      return;
+    }
+    // The core size may never exceed the maximum size, so the order depends on the direction
+    if (poolSize > pool.getMaximumPoolSize()) {
+      pool.setMaximumPoolSize(poolSize);
+      pool.setCorePoolSize(poolSize);
+    } else {
+      pool.setCorePoolSize(poolSize);
+      pool.setMaximumPoolSize(poolSize);
+    }
+  }
+
+  /**
+   * Parses an execution mode from its property value, ignoring case.
+   *
+   * @param value the property value, e.g. "virtual"
+   * @return the matching execution mode
+   * @throws IllegalArgumentException if the value does not name a mode
+   */
+  public static ExecutionMode fromString(String value) {
+    return valueOf(value.trim().toUpperCase(Locale.ROOT));
+  }
+}
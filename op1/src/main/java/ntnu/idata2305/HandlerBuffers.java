@@ -0,0 +1,21 @@
+package ntnu.idata2305;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The buffers a {@link ClientHandler} reads and answers requests with: the text line and number buffers,
+ * the binary request and response frames and the {@link BatchBuffers}.
+ *
+ * <p>Handlers take a set from their {@link ServerContext} when the connection starts and give it back when
+ * it closes, so a server that serves many short connections reuses a few sets instead of allocating new ones
+ * for every connection. A set is only ever used by one handler at a time.
+ */
+final class HandlerBuffers {
+  final byte[] line = new byte[64];
+  final byte[] number = new byte[AsciiCodec.MAX_DOUBLE_LENGTH + 1];
+  final byte[] requestBytes = new byte[CalculatorProtocol.REQUEST_FRAME_BYTES];
+  final byte[] responseBytes = new byte[CalculatorProtocol.RESPONSE_FRAME_BYTES];
+  final ByteBuffer request = ByteBuffer.wrap(requestBytes);
+  final ByteBuffer response = ByteBuffer.wrap(responseBytes);
+  final BatchBuffers batch = new BatchBuffers();
+}
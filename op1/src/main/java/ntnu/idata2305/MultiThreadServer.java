@@ -1,14 +1,21 @@
 package ntnu.idata2305;
 
+import ntnu.idata2305.events.EventLog;
+import ntnu.idata2305.metrics.ServerMetrics;
+import ntnu.idata2305.tls.Transport;
+
 import java.io.*;
 import java.net.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The MultiThreadServer class implements a multithreaded server that accepts multiple client connections.
- * Each client is handled in a separate thread, and the server processes a configurable number of clients.
- * The server reads configuration from a properties file, including port, maximum clients, and processing delay.
+ * Each client is handled by a {@link ClientHandler} task, and the server processes a configurable number of clients.
+ * The server reads configuration from a properties file, including port, maximum clients, processing delay
+ * and the {@link ExecutionMode} that decides which threads run the handlers.
  */
 public class MultiThreadServer {
   /**
@@ -18,8 +25,16 @@ public class MultiThreadServer {
 
   /**
    * The main entry point for the server application.
-   * Initializes the server socket, accepts client connections, and starts a handler thread for each client.
-   * Waits for all client threads to finish before shutting down.
+   * Initializes the server socket, accepts client connections, and submits a handler task for each client.
+   * Waits for all handler tasks to finish before shutting down.
+   *
+   * <p>With {@code maxClients=0} the server runs until the JVM is stopped, then drains gracefully:
+   * it stops accepting, lets in-flight requests finish and closes the server socket last.
+   * With {@code admissionLimit} above 0, connections beyond that many are answered with BUSY on a virtual thread,
+   * so that a slow client, or a TLS handshake, never holds up accepting.
+   * The processing delay, timeouts, admission limit and {@code poolSize} follow a watched
+   * {@code configFile} while the server runs. With {@code tls=true} clients connect over TLS, and the
+   * handshake of each connection runs on the thread that serves it.
    *
    * @param args command-line arguments
    */
@@ -28,22 +43,45 @@ public class MultiThreadServer {
 
     int port = config.getInt("port", 5000);
     int maxClients = config.getInt("maxClients", 10);
-    int delay = config.getInt("processingDelay", 1000);
+    int backlog = config.getInt("backlog", 50);
+    int poolSize = config.getInt("poolSize", 64);
+    ExecutionMode mode = ExecutionMode.fromString(config.getString("executionMode", "platform"));
+    ServerContext context = new ServerContext(config, "MultiThreadServer");
+    ServerMetrics metrics = context.metrics();
+    ServerLifecycle lifecycle = context.lifecycle();
+    EventLog events = context.events();
+
+    // The connections being served or waiting for a thread, bounded by the admission limit whatever the mode
+    AtomicInteger admitted = new AtomicInteger();
 
     try {
 
-      ServerSocket serverSocket = new ServerSocket(port);
+      Transport transport = Transport.fromConfig(config);
+      ServerSocket serverSocket = transport.bind(port, backlog);
+      serverSocket.setSoTimeout(ServerLifecycle.ACCEPT_POLL_MILLIS);
 
       System.out.println("Multithreaded Server is running on port " + port);
-      System.out.println("Max clients: " + maxClients);
+      System.out.println("Max clients: " + (maxClients > 0 ? maxClients : "unlimited"));
+      System.out.println("Transport: " + transport);
+      System.out.println("Execution mode: " + mode);
 
       long startTime = 0;
       int clientCount = 0;
 
-      List<Thread> activeThreads = new ArrayList<>();
+      ExecutorService executor = mode.newExecutor(poolSize);
+      // Each rejection lives at most the reject timeout, so their number is bounded by the accept rate
+      ExecutorService rejections = Executors.newVirtualThreadPerTaskExecutor();
+      config.addListener((snapshot, changed) -> {
+        if (changed.contains("poolSize")) {
+          mode.resize(executor, snapshot.poolSize());
+        }
+      });
 
-      while (clientCount < maxClients) {
-        Socket socket = serverSocket.accept();
+      while (maxClients <= 0 || clientCount < maxClients) {
+        Socket socket = lifecycle.accept(serverSocket);
+        if (socket == null) {
+          break;
+        }
 
         // Start timer when first packet has reached the server
         if(!started){
@@ -51,95 +89,57 @@ public class MultiThreadServer {
           started = true;
         }
 
+        int limit = context.admissionLimit();
+        if (limit > 0 && admitted.get() >= limit) {
+          metrics.connectionRejected();
+          if (events != null) {
+            events.connectionRejected();
+          }
+          rejections.execute(() -> CalculatorProtocol.rejectBusy(socket));
+          continue;
+        }
+
+        admitted.incrementAndGet();
         clientCount++;
-        System.out.println("Server accepted connection for Client " + clientCount);
+        metrics.connectionAccepted();
+        ClientHandler handler = new ClientHandler(socket, context);
+        if (events != null) {
+          events.connectionAccepted(handler.id());
+        } else {
+          System.out.println("Server accepted connection for Client " + clientCount);
+        }
 
-        // Create a new thread for each client
-        ClientHandler handler = new ClientHandler(socket, delay);
-        activeThreads.add(handler);
-        handler.start();
+        // Hand the client over to the executor selected by the execution mode
+        metrics.connectionQueued();
+        executor.execute(() -> {
+          metrics.connectionDequeued();
+          try {
+            handler.run();
+          } finally {
+            admitted.decrementAndGet();
+          }
+        });
       }
 
-      for (Thread thread : activeThreads) {
-        thread.join();
-      }
+      // Let every submitted handler finish before measuring the total time
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      rejections.close();
 
       long endTime = System.currentTimeMillis();
-      System.out.println("Server processed " + maxClients + " clients in:"
+      System.out.println("Server processed " + clientCount + " clients in:"
         + (endTime - startTime) + " ms");
 
+      metrics.takeSnapshot();
+      System.out.println(metrics.format());
+      context.close();
+
       serverSocket.close();
 
     } catch (Exception e) {
       e.printStackTrace();
+    } finally {
+      lifecycle.markStopped();
     }
   }
 }
-
-/**
- * The ClientHandler class handles communication with a single client in a separate thread.
- * It receives two numbers and an operator, performs the calculation, simulates a processing delay,
- * and sends the result back to the client.
- */
-class ClientHandler extends Thread {
-  private Socket socket;
-  private int delay;
-
-  /**
-   * Constructs a new ClientHandler for the given client socket and processing delay.
-   *
-   * @param socket the client socket
-   * @param delay  the processing delay in milliseconds
-   */
-  public ClientHandler(Socket socket, int delay) {
-    this.socket = socket;
-    this.delay = delay;
-  }
-
-  /**
-   * Handles the client request by reading input, performing calculation, and sending the result.
-   * Simulates a processing delay before responding.
-   */
-  public void run() {
-    try {
-      BufferedReader input = new BufferedReader(
-        new InputStreamReader(socket.getInputStream()));
-      PrintWriter output = new PrintWriter(
-        socket.getOutputStream(), true);
-
-      double num1 = Double.parseDouble(input.readLine());
-      double num2 = Double.parseDouble(input.readLine());
-      char operator = input.readLine().charAt(0);
-
-      double result = calculate(num1, num2, operator);
-
-      // Simulate processing delay
-      Thread.sleep(delay);
-
-      output.println(result);
-
-      socket.close();
-
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
-  }
-
-  /**
-   * Performs the calculation based on the provided operator.
-   *
-   * @param a  the first operand
-   * @param b  the second operand
-   * @param op the operator ('A' for addition, 'S' for subtraction, 'M' for multiplication, 'D' for division)
-   * @return the result of the calculation
-   */
-  private double calculate(double a, double b, char op) {
-    switch (op) {
-      case 'A': return a + b;
-      case 'S': return a - b;
-      case 'M': return a * b;
-      case 'D': return b != 0 ? a / b : 0;
-      default: return 0;
-    }
-  }
-}
\ No newline at end of file
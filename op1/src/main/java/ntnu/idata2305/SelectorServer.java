@@ -0,0 +1,882 @@
+package ntnu.idata2305;
+
+import ntnu.idata2305.cache.ResultCache;
+import ntnu.idata2305.events.EventLog;
+import ntnu.idata2305.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A non-blocking server that serves the calculator protocol from a small, fixed set of event-loop threads.
+ * Each event loop owns a {@link Selector}, parses requests incrementally from {@link ByteBuffer}s and
+ * writes the result back without blocking. The simulated processing delay is a timer on the event loop
+ * instead of a {@code Thread.sleep}, so a single thread can hold tens of thousands of requests in flight.
+ * The wire protocol is the same as for the other servers, so the CalculatorClient works unchanged.
+ *
+ * <p>Like the blocking servers it supports an admission limit, idle and read timeouts, and with
+ * {@code maxClients=0} a long-running mode that drains gracefully when the JVM is stopped.
+ */
+public class SelectorServer {
+  /**
+   * Indicates whether the server has started processing clients.
+   */
+  public static boolean started = false;
+
+  /**
+   * The main entry point for the server application.
+   * Opens a non-blocking server channel, starts the event loops and waits until
+   * {@code maxClients} connections have been answered, or until the server has drained after a shutdown.
+   *
+   * @param args command-line arguments (not used)
+   */
+  public static void main(String[] args) {
+    Config config = new Config("project.properties");
+
+    int port = config.getInt("port", 5000);
+    int maxClients = config.getInt("maxClients", 10);
+    int backlog = config.getInt("backlog", 50);
+    int loopCount = config.getInt("eventLoops", 2);
+    if (config.getBoolean("tls", false)) {
+      // The event loops work on plaintext buffers; TLS would need an SSLEngine per connection
+      System.out.println("Selector Server does not support tls=true; use the MultiThreadServer instead");
+      return;
+    }
+    ServerContext context = new ServerContext(config, "SelectorServer");
+    ServerMetrics metrics = context.metrics();
+
+    try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+      serverChannel.bind(new InetSocketAddress(port), backlog);
+      serverChannel.configureBlocking(false);
+
+      System.out.println("Selector Server is running on port " + port);
+      System.out.println("Max clients: " + (maxClients > 0 ? maxClients : "unlimited"));
+      System.out.println("Event loops: " + loopCount);
+
+      SelectorTracker tracker = new SelectorTracker();
+      EventLoop[] loops = new EventLoop[loopCount];
+      for (int i = 0; i < loopCount; i++) {
+        loops[i] = new EventLoop(i, context, tracker);
+      }
+
+      // The first event loop also accepts connections and spreads them over all loops
+      loops[0].listen(serverChannel, loops, maxClients);
+
+      for (EventLoop loop : loops) {
+        loop.start();
+      }
+
+      tracker.awaitFinished();
+      long endTime = System.currentTimeMillis();
+      System.out.println("Server processed " + metrics.getAcceptedConnections() + " clients in:"
+        + (endTime - loops[0].startTime) + " ms");
+
+      metrics.takeSnapshot();
+      System.out.println(metrics.format());
+      context.close();
+
+      for (EventLoop loop : loops) {
+        loop.shutdown();
+      }
+
+    } catch (Exception e) {
+      e.printStackTrace();
+    } finally {
+      context.lifecycle().markStopped();
+    }
+  }
+}
+
+/**
+ * Tracks when the selector server is finished: accepting has stopped and every connection is closed.
+ */
+class SelectorTracker {
+  private final AtomicInteger open = new AtomicInteger();
+  private final CountDownLatch finished = new CountDownLatch(1);
+  private volatile boolean acceptingStopped;
+
+  /**
+   * Records an accepted connection.
+   */
+  void opened() {
+    open.incrementAndGet();
+  }
+
+  /**
+   * Records a closed connection.
+   */
+  void closed() {
+    if (open.decrementAndGet() == 0 && acceptingStopped) {
+      finished.countDown();
+    }
+  }
+
+  /**
+   * Returns the number of open connections.
+   */
+  int openConnections() {
+    return open.get();
+  }
+
+  /**
+   * Records that no more connections will be accepted.
+   */
+  void stopAccepting() {
+    acceptingStopped = true;
+    if (open.get() == 0) {
+      finished.countDown();
+    }
+  }
+
+  /**
+   * Waits until accepting has stopped and every connection is closed.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  void awaitFinished() throws InterruptedException {
+    finished.await();
+  }
+}
+
+/**
+ * A single event-loop thread with its own selector and timer queue.
+ * Every connection is owned by exactly one event loop, so connection state is never shared between threads.
+ */
+class EventLoop extends Thread {
+  /**
+   * How long accepting pauses after a failed accept, so a full file descriptor table can drain.
+   */
+  static final int ACCEPT_BACKOFF_MILLIS = 100;
+
+  private final Selector selector;
+  private final ServerContext context;
+  private final SelectorTracker tracker;
+  private final ServerMetrics metrics;
+
+  /**
+   * Connections handed over by the accepting loop, registered on the next wake-up.
+   */
+  private final Queue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Responses whose simulated processing delay is running, ordered by deadline.
+   */
+  private final PriorityQueue<NioResponse> timers = new PriorityQueue<>(
+    Comparator.comparingLong((NioResponse r) -> r.deadline).thenComparingLong(r -> r.sequence));
+
+  private ServerSocketChannel serverChannel;
+  private EventLoop[] loops;
+  private int acceptsLeft;
+  private int nextLoop;
+  private long sequence;
+  private long lastSweep;
+  private boolean acceptPaused;
+  private long acceptResume;
+  private boolean draining;
+  private volatile boolean running = true;
+
+  /**
+   * Time the first connection was accepted; only set on the accepting loop.
+   */
+  volatile long startTime;
+
+  /**
+   * Creates a new event loop.
+   *
+   * @param index   the loop index, used in the thread name
+   * @param context the settings and services of the server
+   * @param tracker tracks open connections across all loops
+   * @throws IOException if the selector cannot be opened
+   */
+  EventLoop(int index, ServerContext context, SelectorTracker tracker) throws IOException {
+    super("event-loop-" + index);
+    this.selector = Selector.open();
+    this.context = context;
+    this.tracker = tracker;
+    this.metrics = context.metrics();
+  }
+
+  /**
+   * Makes this loop accept connections from the given server channel.
+   * Must be called before the loop is started.
+   *
+   * @param serverChannel the non-blocking server channel
+   * @param loops         all event loops, including this one
+   * @param maxClients    the number of connections to accept before the channel is deregistered, or 0 for no limit
+   * @throws IOException if the channel cannot be registered
+   */
+  void listen(ServerSocketChannel serverChannel, EventLoop[] loops, int maxClients) throws IOException {
+    this.serverChannel = serverChannel;
+    this.loops = loops;
+    this.acceptsLeft = maxClients > 0 ? maxClients : -1;
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+  }
+
+  /**
+   * Hands an accepted connection to this loop. Safe to call from any thread.
+   *
+   * @param channel the accepted, non-blocking channel
+   */
+  void adopt(SocketChannel channel) {
+    incoming.add(channel);
+    selector.wakeup();
+  }
+
+  /**
+   * Stops the loop and closes its selector.
+   */
+  void shutdown() {
+    running = false;
+    selector.wakeup();
+  }
+
+  /**
+   * Runs the loop: waits for I/O readiness or the next timer, then handles both.
+   */
+  @Override
+  public void run() {
+    try (selector) {
+      while (running) {
+        selector.select(this::handle, selectTimeout());
+        registerIncoming();
+        fireTimers();
+        resumeAccepting();
+        if (!draining && context.lifecycle().isDraining()) {
+          startDraining();
+        }
+        sweep();
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Returns how long the selector may block, so that the earliest timer fires and paused accepting resumes
+   * on time, and timeouts and shutdowns are noticed within {@link ServerLifecycle#ACCEPT_POLL_MILLIS}.
+   */
+  private long selectTimeout() {
+    long millis = ServerLifecycle.ACCEPT_POLL_MILLIS;
+    NioResponse next = timers.peek();
+    if (next != null) {
+      millis = Math.min(millis, TimeUnit.NANOSECONDS.toMillis(next.deadline - System.nanoTime()));
+    }
+    if (acceptPaused) {
+      millis = Math.min(millis, TimeUnit.NANOSECONDS.toMillis(acceptResume - System.nanoTime()));
+    }
+    // 0 means "block forever" to the selector, so never return it
+    return Math.max(1, millis);
+  }
+
+  /**
+   * Stops accepting, if this is the accepting loop, and closes every idle connection.
+   * Connections with requests in flight are closed once their responses are written.
+   */
+  private void startDraining() {
+    draining = true;
+    if (serverChannel != null && acceptsLeft != 0) {
+      acceptsLeft = 0;
+      serverChannel.keyFor(selector).cancel();
+      tracker.stopAccepting();
+    }
+    for (SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof NioConnection connection && connection.isIdle()) {
+        close(connection);
+      }
+    }
+  }
+
+  /**
+   * Closes connections that have been idle longer than the idle timeout, or that have not
+   * completed a started request within the read timeout. Runs at most every poll interval.
+   */
+  private void sweep() {
+    long now = System.nanoTime();
+    if (now - lastSweep < TimeUnit.MILLISECONDS.toNanos(ServerLifecycle.ACCEPT_POLL_MILLIS)) {
+      return;
+    }
+    lastSweep = now;
+    long idleNanos = TimeUnit.MILLISECONDS.toNanos(context.idleTimeout());
+    long readNanos = TimeUnit.MILLISECONDS.toNanos(context.readTimeout());
+
+    for (SelectionKey key : selector.keys()) {
+      if (!(key.attachment() instanceof NioConnection connection)) {
+        continue;
+      }
+      long quiet = now - connection.lastActivity;
+      if (connection.isIdle() && idleNanos > 0 && quiet > idleNanos) {
+        close(connection);
+      } else if (connection.hasPartialRequest() && readNanos > 0 && quiet > readNanos) {
+        metrics.error();
+        close(connection);
+      }
+    }
+  }
+
+  private void registerIncoming() {
+    SocketChannel channel;
+    while ((channel = incoming.poll()) != null) {
+      try {
+        NioConnection connection = new NioConnection(channel, context.nextConnectionId(), context.cache());
+        channel.register(selector, SelectionKey.OP_READ, connection);
+        if (context.events() != null) {
+          context.events().connectionAccepted(connection.id);
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+        metrics.error();
+        metrics.connectionClosed();
+        tracker.closed();
+      }
+    }
+  }
+
+  private void fireTimers() {
+    long now = System.nanoTime();
+    while (!timers.isEmpty() && timers.peek().deadline - now <= 0) {
+      NioResponse response = timers.poll();
+      response.ready = true;
+      response.computed = now;
+      flush(response.connection);
+    }
+  }
+
+  private void handle(SelectionKey key) {
+    if (key.isAcceptable()) {
+      accept();
+      return;
+    }
+    NioConnection connection = (NioConnection) key.attachment();
+    try {
+      if (key.isReadable()) {
+        read(key, connection);
+      }
+      if (key.isValid() && key.isWritable()) {
+        flush(connection);
+      }
+    } catch (IOException e) {
+      metrics.error();
+      close(connection);
+    }
+  }
+
+  /**
+   * Accepts every pending connection. A failing accept, typically because the process is out of file
+   * descriptors, pauses accepting for {@link #ACCEPT_BACKOFF_MILLIS} instead of spinning on a channel that
+   * stays acceptable; the connections already open keep being served meanwhile.
+   */
+  private void accept() {
+    while (acceptsLeft != 0) {
+      SocketChannel channel;
+      try {
+        channel = serverChannel.accept();
+      } catch (IOException e) {
+        System.err.println("Accept failed, pausing for " + ACCEPT_BACKOFF_MILLIS + " ms: " + e.getMessage());
+        metrics.error();
+        pauseAccepting();
+        return;
+      }
+      if (channel == null) {
+        break;
+      }
+      if (!SelectorServer.started) {
+        startTime = System.currentTimeMillis();
+        SelectorServer.started = true;
+      }
+      int limit = context.admissionLimit();
+      if (limit > 0 && tracker.openConnections() >= limit) {
+        // The channel is still blocking, so the short BUSY line is written in one go
+        metrics.connectionRejected();
+        if (context.events() != null) {
+          context.events().connectionRejected();
+        }
+        CalculatorProtocol.rejectBusy(channel.socket());
+        continue;
+      }
+      try {
+        channel.configureBlocking(false);
+      } catch (IOException e) {
+        metrics.error();
+        closeQuietly(channel);
+        continue;
+      }
+      if (acceptsLeft > 0) {
+        acceptsLeft--;
+      }
+      tracker.opened();
+      metrics.connectionAccepted();
+      loops[nextLoop].adopt(channel);
+      nextLoop = (nextLoop + 1) % loops.length;
+    }
+    if (acceptsLeft == 0) {
+      serverChannel.keyFor(selector).cancel();
+      tracker.stopAccepting();
+    }
+  }
+
+  private void pauseAccepting() {
+    SelectionKey key = serverChannel.keyFor(selector);
+    if (key != null && key.isValid()) {
+      key.interestOps(0);
+      acceptPaused = true;
+      acceptResume = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACCEPT_BACKOFF_MILLIS);
+    }
+  }
+
+  /**
+   * Turns accepting back on once the back-off after a failed accept has passed.
+   */
+  private void resumeAccepting() {
+    if (!acceptPaused || System.nanoTime() - acceptResume < 0) {
+      return;
+    }
+    acceptPaused = false;
+    SelectionKey key = serverChannel.keyFor(selector);
+    if (key != null && key.isValid()) {
+      key.interestOps(SelectionKey.OP_ACCEPT);
+    }
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void read(SelectionKey key, NioConnection connection) throws IOException {
+    int n = connection.channel.read(connection.readBuffer);
+    if (n < 0) {
+      connection.inputClosed = true;
+    } else if (n > 0) {
+      connection.lastActivity = System.nanoTime();
+    }
+    parseRequests(key, connection);
+  }
+
+  /**
+   * Parses the complete requests in the read buffer and starts their processing delay. Parsing stops
+   * while the connection is {@link NioConnection#isBacklogged() backlogged}; {@link #flush} resumes it.
+   */
+  private void parseRequests(SelectionKey key, NioConnection connection) throws IOException {
+    connection.readBuffer.flip();
+    NioResponse response;
+    long received = System.nanoTime();
+    while (!connection.isBacklogged() && (response = connection.parse()) != null) {
+      long parsed = System.nanoTime();
+      response.received = received;
+      response.parsed = parsed;
+      received = parsed;
+
+      // Answer once the delay has passed, never before an earlier request on the same connection.
+      // Cached results skip the delay, but still wait for earlier responses
+      long delay = response.cached ? 0 : context.delay();
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+      response.deadline = Math.max(deadline, connection.lastDeadline);
+      response.sequence = sequence++;
+      connection.lastDeadline = response.deadline;
+      connection.pending.add(response);
+      timers.add(response);
+    }
+    connection.readBuffer.compact();
+    connection.readPaused = connection.isBacklogged();
+
+    if (connection.isFinished()) {
+      close(connection);
+    } else {
+      key.interestOps(connection.interestOps());
+    }
+  }
+
+  /**
+   * Moves the responses that are due, in request order, to the output buffer and writes as much
+   * of it as the socket accepts without blocking.
+   */
+  private void flush(NioConnection connection) {
+    SelectionKey key = connection.channel.keyFor(selector);
+    if (key == null || !key.isValid()) {
+      return;
+    }
+    try {
+      long now = System.nanoTime();
+      EventLog events = context.events();
+      while (!connection.pending.isEmpty() && connection.pending.peek().ready) {
+        NioResponse response = connection.pending.poll();
+        connection.append(response.bytes);
+        metrics.requestServed(response.parsed - response.received, response.computed - response.parsed,
+          now - response.received);
+        if (events != null) {
+          if (response.batchCount > 0) {
+            events.batch(connection.id, response.operator, response.batchCount, now - response.received);
+          } else {
+            events.request(connection.id, response.first, response.second, response.operator, response.result,
+              now - response.received);
+          }
+        }
+      }
+      connection.output.flip();
+      if (connection.channel.write(connection.output) > 0) {
+        connection.lastActivity = now;
+      }
+      connection.output.compact();
+
+      if (connection.readPaused && !connection.isBacklogged()) {
+        // The client has caught up: parse what is still buffered, which also turns reading back on
+        connection.readPaused = false;
+        parseRequests(key, connection);
+      } else if (connection.isFinished() || (draining && connection.isIdle())) {
+        close(connection);
+      } else {
+        key.interestOps(connection.interestOps());
+      }
+    } catch (IOException e) {
+      metrics.error();
+      close(connection);
+    }
+  }
+
+  private void close(NioConnection connection) {
+    if (connection == null || connection.closed) {
+      return;
+    }
+    connection.closed = true;
+    try {
+      connection.channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    metrics.connectionClosed();
+    tracker.closed();
+    if (context.events() != null) {
+      context.events().connectionClosed(connection.id);
+    }
+  }
+}
+
+/**
+ * The per-connection state of the selector server: the read and write buffers, the responses waiting
+ * for their processing delay, and the incremental parser for the three-line {@code num1\nnum2\nop\n}
+ * request or the binary request and batch frames.
+ */
+class NioConnection {
+  /**
+   * Above this many buffered response bytes, or {@link #MAX_PENDING} unanswered requests, the connection
+   * stops reading and parsing until the client has read its answers.
+   */
+  static final int MAX_OUTPUT_BYTES = 64 * 1024;
+  static final int MAX_PENDING = 1024;
+
+  private static final byte[] KEEP_ALIVE = CalculatorProtocol.KEEP_ALIVE.getBytes(StandardCharsets.US_ASCII);
+
+  final SocketChannel channel;
+  final long id;
+  ByteBuffer readBuffer = ByteBuffer.allocate(256);
+  ByteBuffer output = ByteBuffer.allocate(256);
+
+  /**
+   * Parsed requests in arrival order; they are written strictly in this order.
+   */
+  final ArrayDeque<NioResponse> pending = new ArrayDeque<>();
+  long lastDeadline;
+  long lastActivity = System.nanoTime();
+  boolean inputClosed;
+  boolean closed;
+
+  /**
+   * Whether parsing stopped because the connection was backlogged, so that it must resume once it is not.
+   */
+  boolean readPaused;
+
+  private final ResultCache cache;
+  private final ByteBuffer frame = ByteBuffer.allocate(CalculatorProtocol.REQUEST_FRAME_BYTES);
+  private final BatchBuffers batch = new BatchBuffers();
+  private final byte[] line = new byte[64];
+  private final byte[] number = new byte[AsciiCodec.MAX_DOUBLE_LENGTH + 1];
+  private int lineLength;
+  private int linesRead;
+  private int requests;
+  private boolean keepAlive;
+  private boolean binary;
+  private double num1;
+  private double num2;
+  private boolean cacheHit;
+
+  /**
+   * Creates the state for a newly accepted connection.
+   *
+   * @param channel the client channel
+   * @param id      the id of the connection in the event log
+   * @param cache   the result cache of the server, or null
+   */
+  NioConnection(SocketChannel channel, long id, ResultCache cache) {
+    this.channel = channel;
+    this.id = id;
+    this.cache = cache;
+  }
+
+  /**
+   * Consumes readable bytes of the read buffer until a whole request has been read.
+   * Lines and binary frames may be split across any number of reads. A one-shot connection stops
+   * parsing after its first request.
+   *
+   * @return the response to the next complete request, or null if more input is needed
+   * @throws IOException if a line is too long or a number cannot be parsed
+   */
+  NioResponse parse() throws IOException {
+    if (requests == 0 && linesRead == 0 && lineLength == 0 && !keepAlive && readBuffer.hasRemaining()
+      && readBuffer.get(readBuffer.position()) == CalculatorProtocol.BINARY_MAGIC) {
+      // Binary connections stay open like keep-alive ones; acknowledge the format right away
+      readBuffer.get();
+      binary = true;
+      keepAlive = true;
+      append(new byte[] {CalculatorProtocol.BINARY_MAGIC});
+    }
+    if (binary) {
+      return parseFrame();
+    }
+
+    while (readBuffer.hasRemaining() && (keepAlive || requests == 0)) {
+      byte b = readBuffer.get();
+      if (b == '\r') {
+        continue;
+      }
+      if (b != '\n') {
+        if (lineLength == line.length) {
+          throw new IOException("Request line too long");
+        }
+        line[lineLength++] = b;
+        continue;
+      }
+
+      int length = lineLength;
+      lineLength = 0;
+      if (requests == 0 && linesRead == 0 && !keepAlive
+        && Arrays.equals(line, 0, length, KEEP_ALIVE, 0, KEEP_ALIVE.length)) {
+        keepAlive = true;
+        continue;
+      }
+      try {
+        switch (linesRead++) {
+          case 0: num1 = AsciiCodec.parseDouble(line, 0, length); break;
+          case 1: num2 = AsciiCodec.parseDouble(line, 0, length); break;
+          default:
+            if (length == 0) {
+              throw new NumberFormatException("Missing operator");
+            }
+            linesRead = 0;
+            requests++;
+            char operator = Character.toUpperCase((char) line[0]);
+            double result = calculate(num1, num2, operator);
+            int n = AsciiCodec.formatDouble(result, number, 0);
+            number[n] = '\n';
+            return new NioResponse(this, Arrays.copyOf(number, n + 1), cacheHit)
+              .request(num1, num2, operator, result);
+        }
+      } catch (NumberFormatException e) {
+        throw new IOException("Malformed request line: " + new String(line, 0, length, StandardCharsets.US_ASCII), e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Decodes the next binary request frame, if the read buffer holds a whole one.
+   */
+  private NioResponse parseFrame() throws IOException {
+    if (readBuffer.hasRemaining() && readBuffer.get(readBuffer.position()) == CalculatorProtocol.OP_BATCH) {
+      return parseBatch();
+    }
+    if (readBuffer.remaining() < CalculatorProtocol.REQUEST_FRAME_BYTES) {
+      return null;
+    }
+    readBuffer.get(frame.array());
+    requests++;
+    double first = CalculatorProtocol.requestFirst(frame);
+    double second = CalculatorProtocol.requestSecond(frame);
+    char operator = Character.toUpperCase(CalculatorProtocol.requestOperator(frame));
+    double result = calculate(first, second, operator);
+
+    byte[] bytes = new byte[CalculatorProtocol.RESPONSE_FRAME_BYTES];
+    CalculatorProtocol.encodeResponse(ByteBuffer.wrap(bytes), CalculatorProtocol.requestId(frame), result);
+    return new NioResponse(this, bytes, cacheHit).request(first, second, operator, result);
+  }
+
+  /**
+   * Calculates one result, taking it from the result cache if possible, and records in
+   * {@code cacheHit} whether the processing delay can be skipped.
+   */
+  private double calculate(double a, double b, char operator) {
+    if (cache != null) {
+      long cached = cache.lookup(a, b, operator);
+      if (cached != ResultCache.MISS) {
+        cacheHit = true;
+        return Double.longBitsToDouble(cached);
+      }
+    }
+    cacheHit = false;
+    double result = Calculator.calculate(a, b, operator);
+    if (cache != null) {
+      cache.store(a, b, operator, result);
+    }
+    return result;
+  }
+
+  /**
+   * Decodes the next batch frame, if the read buffer holds a whole one. The read buffer grows
+   * to fit a batch that is larger than its capacity.
+   */
+  private NioResponse parseBatch() throws IOException {
+    if (readBuffer.remaining() < CalculatorProtocol.BATCH_HEADER_BYTES) {
+      return null;
+    }
+    int start = readBuffer.position();
+    readBuffer.get(frame.array(), 0, CalculatorProtocol.BATCH_HEADER_BYTES);
+    int count = CalculatorProtocol.batchCount(frame);
+    batch.ensureCapacity(count);
+
+    int frameLength = CalculatorProtocol.BATCH_HEADER_BYTES + 2 * count * Double.BYTES;
+    if (readBuffer.remaining() < frameLength - CalculatorProtocol.BATCH_HEADER_BYTES) {
+      readBuffer.position(start);
+      if (readBuffer.capacity() < frameLength) {
+        ByteBuffer larger = ByteBuffer.allocate(frameLength);
+        readBuffer = larger.put(readBuffer).flip();
+      }
+      return null;
+    }
+
+    char operator = Character.toUpperCase(CalculatorProtocol.batchOperator(frame));
+    batch.decodeOperands(readBuffer, count);
+    Calculator.calculateBatch(operator, batch.first(), batch.second(), batch.results(), count);
+    requests++;
+    NioResponse response = new NioResponse(this, batch.encodeResponse(CalculatorProtocol.batchId(frame), count), false);
+    response.operator = operator;
+    response.batchCount = count;
+    return response;
+  }
+
+  /**
+   * Appends a response to the output buffer, growing it if needed.
+   *
+   * @param bytes the encoded response
+   */
+  void append(byte[] bytes) {
+    if (output.remaining() < bytes.length) {
+      ByteBuffer larger = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + bytes.length));
+      output.flip();
+      output = larger.put(output);
+    }
+    output.put(bytes);
+  }
+
+  /**
+   * Returns whether part of a request has been received but not yet parsed completely.
+   */
+  boolean hasPartialRequest() {
+    return readBuffer.position() > 0 || lineLength > 0 || linesRead > 0;
+  }
+
+  /**
+   * Returns whether the connection is waiting for its next request with nothing left to answer,
+   * so that closing it loses no work.
+   */
+  boolean isIdle() {
+    return pending.isEmpty() && output.position() == 0 && !hasPartialRequest();
+  }
+
+  /**
+   * Returns whether every request this connection will send has been answered and written.
+   */
+  boolean isFinished() {
+    boolean noMoreRequests = inputClosed || (!keepAlive && requests > 0);
+    return noMoreRequests && pending.isEmpty() && output.position() == 0;
+  }
+
+  /**
+   * Returns whether so many answers are waiting for the client to read them that no more requests
+   * should be taken in. A client that pipelines without reading is then held back by TCP flow control
+   * instead of growing the output buffer without bound.
+   */
+  boolean isBacklogged() {
+    return output.position() >= MAX_OUTPUT_BYTES || pending.size() >= MAX_PENDING;
+  }
+
+  /**
+   * Returns the selector interest set for the current state: keep reading while more requests
+   * may arrive and the connection is not backlogged, and wait for writability while output is left over.
+   */
+  int interestOps() {
+    boolean wantsRead = !inputClosed && (keepAlive || requests == 0) && !isBacklogged();
+    return (wantsRead ? SelectionKey.OP_READ : 0) | (output.position() > 0 ? SelectionKey.OP_WRITE : 0);
+  }
+}
+
+/**
+ * A computed response waiting for its simulated processing delay to pass.
+ */
+class NioResponse {
+  final NioConnection connection;
+  final byte[] bytes;
+  final boolean cached;
+  long deadline;
+  long sequence;
+  boolean ready;
+
+  /**
+   * Timestamps for the server metrics: when parsing of the request started, when it finished
+   * and when the processing delay ended.
+   */
+  long received;
+  long parsed;
+  long computed;
+
+  /**
+   * The request, for the event log; a batch only has its operator and the number of pairs.
+   */
+  double first;
+  double second;
+  double result;
+  char operator;
+  int batchCount;
+
+  /**
+   * Creates a response for the given connection.
+   *
+   * @param connection the connection the response belongs to
+   * @param bytes      the encoded response line
+   * @param cached     whether the result came from the cache, so that no processing delay applies
+   */
+  NioResponse(NioConnection connection, byte[] bytes, boolean cached) {
+    this.connection = connection;
+    this.bytes = bytes;
+    this.cached = cached;
+  }
+
+  /**
+   * Records the request this response answers.
+   *
+   * @return this response
+   */
+  NioResponse request(double first, double second, char operator, double result) {
+    this.first = first;
+    this.second = second;
+    this.operator = operator;
+    this.result = result;
+    return this;
+  }
+}
@@ -0,0 +1,166 @@
+package ntnu.idata2305;
+
+import ntnu.idata2305.cache.ResultCache;
+import ntnu.idata2305.events.EventLog;
+import ntnu.idata2305.limit.AdaptiveLimiter;
+import ntnu.idata2305.metrics.ServerMetrics;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The settings and shared services of one running server, handed to every connection it serves.
+ *
+ * <p>The processing delay, the timeouts and the admission limit follow the configuration: when a watched
+ * {@link Config} is reloaded, the new values apply to the next request or connection without a restart.
+ *
+ * <p>The context also pools the {@link HandlerBuffers} of finished connections for the next ones.
+ */
+public class ServerContext {
+  /**
+   * The most buffer sets kept for reuse; a set that would exceed it is left to the garbage collector.
+   */
+  private static final int BUFFER_POOL_SIZE = 64;
+
+  private volatile int delay;
+  private volatile int idleTimeout;
+  private volatile int readTimeout;
+  private volatile int admissionLimit;
+  private final ServerMetrics metrics;
+  private final ServerLifecycle lifecycle;
+  private final ResultCache cache;
+  private final AdaptiveLimiter limiter;
+  private final EventLog events;
+  private final AtomicLong connectionIds = new AtomicLong();
+  // A bounded array queue, so taking and returning a set allocates nothing
+  private final ArrayBlockingQueue<HandlerBuffers> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+
+  /**
+   * Creates the context of a server from the configuration, starts its metrics, installs
+   * its shutdown hook and starts watching the configuration for changes.
+   *
+   * @param config     the configuration to read
+   * @param serverName the name of the server, used for its metrics
+   */
+  public ServerContext(Config config, String serverName) {
+    apply(config.snapshot());
+    this.metrics = new ServerMetrics(serverName).start(
+      config.getInt("metricsIntervalSeconds", 10),
+      Boolean.parseBoolean(config.getString("printMetrics", "true")));
+    this.lifecycle = new ServerLifecycle().installShutdownHook(config.getInt("drainTimeoutMillis", 10000));
+    this.cache = ResultCache.fromConfig(config);
+    metrics.trackCache(cache);
+    this.limiter = AdaptiveLimiter.fromConfig(config);
+    metrics.trackLimiter(limiter);
+    this.events = EventLog.fromConfig(config);
+    metrics.trackEvents(events);
+    config.addListener((snapshot, changed) -> apply(snapshot));
+    config.watch();
+  }
+
+  /**
+   * Takes over the settings that can change while the server runs.
+   */
+  private void apply(ConfigSnapshot snapshot) {
+    // The snapshot was validated when it was built, so there is nothing left to parse
+    delay = snapshot.processingDelay();
+    idleTimeout = snapshot.idleTimeoutMillis();
+    readTimeout = snapshot.readTimeoutMillis();
+    admissionLimit = snapshot.admissionLimit();
+  }
+
+  /**
+   * Returns the simulated processing delay in milliseconds.
+   */
+  public int delay() {
+    return delay;
+  }
+
+  /**
+   * Returns how long a connection may wait for its next request, in milliseconds; 0 waits forever.
+   */
+  public int idleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * Returns how long a started request may take to arrive completely, in milliseconds; 0 waits forever.
+   */
+  public int readTimeout() {
+    return readTimeout;
+  }
+
+  /**
+   * Returns the largest number of connections served or queued at once; 0 means no limit.
+   */
+  public int admissionLimit() {
+    return admissionLimit;
+  }
+
+  /**
+   * Returns the metrics of the server.
+   */
+  public ServerMetrics metrics() {
+    return metrics;
+  }
+
+  /**
+   * Returns the lifecycle of the server.
+   */
+  public ServerLifecycle lifecycle() {
+    return lifecycle;
+  }
+
+  /**
+   * Returns the result cache, or null if caching is disabled.
+   */
+  public ResultCache cache() {
+    return cache;
+  }
+
+  /**
+   * Returns the adaptive concurrency limiter of the calculations, or null if the limit is disabled.
+   */
+  public AdaptiveLimiter limiter() {
+    return limiter;
+  }
+
+  /**
+   * Returns the structured event log, or null if the server logs connections to the console instead.
+   */
+  public EventLog events() {
+    return events;
+  }
+
+  /**
+   * Returns a new id for an accepted connection; ids count up from 1.
+   */
+  public long nextConnectionId() {
+    return connectionIds.incrementAndGet();
+  }
+
+  /**
+   * Takes a set of buffers for a connection from the pool, or creates one if the pool is empty.
+   */
+  HandlerBuffers takeBuffers() {
+    HandlerBuffers buffers = bufferPool.poll();
+    return buffers != null ? buffers : new HandlerBuffers();
+  }
+
+  /**
+   * Returns the buffers of a closed connection to the pool.
+   */
+  void returnBuffers(HandlerBuffers buffers) {
+    bufferPool.offer(buffers);
+  }
+
+  /**
+   * Stops the metrics and writes out and closes the event log. Called once the server has finished.
+   */
+  public void close() {
+    metrics.stop();
+    if (events != null) {
+      events.close();
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package ntnu.idata2305;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates a graceful shutdown of a long-running server.
+ *
+ * <p>When the JVM is asked to stop, the shutdown hook calls {@link #shutdown(long)}. The server then stops
+ * accepting, connections that are waiting for their next request are closed, and requests that are already
+ * being processed are answered. Once the server has drained it closes its listening socket and calls
+ * {@link #markStopped()}, which lets the shutdown hook, and with it the JVM, finish.
+ */
+public class ServerLifecycle {
+  /**
+   * How often, in milliseconds, a blocking accept loop checks whether the server is draining.
+   */
+  public static final int ACCEPT_POLL_MILLIS = 200;
+
+  private final Set<IdleCloseable> connections = ConcurrentHashMap.newKeySet();
+  private final CountDownLatch stopped = new CountDownLatch(1);
+  private volatile boolean draining;
+
+  /**
+   * A connection that can be closed by the lifecycle while it waits for a request.
+   */
+  public interface IdleCloseable extends Closeable {
+    /**
+     * Returns whether the connection is between requests, so that closing it loses no work.
+     */
+    boolean isIdle();
+  }
+
+  /**
+   * Installs a JVM shutdown hook that drains this server for up to {@code drainTimeoutMillis}.
+   *
+   * @param drainTimeoutMillis how long to wait for in-flight requests
+   * @return this lifecycle
+   */
+  public ServerLifecycle installShutdownHook(long drainTimeoutMillis) {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(drainTimeoutMillis), "server-shutdown"));
+    return this;
+  }
+
+  /**
+   * Returns whether the server is shutting down and must not start new work.
+   */
+  public boolean isDraining() {
+    return draining;
+  }
+
+  /**
+   * Accepts the next connection, polling so that a shutdown is noticed while no client connects.
+   * The server socket must have a short accept timeout set with {@link ServerSocket#setSoTimeout}.
+   *
+   * @param serverSocket the listening socket
+   * @return the accepted connection, or null once the server is draining
+   * @throws IOException if accepting fails
+   */
+  public Socket accept(ServerSocket serverSocket) throws IOException {
+    while (!draining) {
+      try {
+        return serverSocket.accept();
+      } catch (SocketTimeoutException e) {
+        // Check the draining flag again
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Tracks an open connection so that it can be closed when idle during a shutdown.
+   *
+   * @param connection the connection
+   */
+  public void register(IdleCloseable connection) {
+    connections.add(connection);
+  }
+
+  /**
+   * Stops tracking a closed connection.
+   *
+   * @param connection the connection
+   */
+  public void unregister(IdleCloseable connection) {
+    connections.remove(connection);
+  }
+
+  /**
+   * Starts draining, closes idle connections and waits for the server to report that it has stopped.
+   *
+   * @param timeoutMillis how long to wait for the server to stop
+   */
+  public void shutdown(long timeoutMillis) {
+    if (stopped.getCount() == 0) {
+      // The server finished on its own, e.g. after maxClients connections
+      return;
+    }
+    System.out.println("Shutting down: draining in-flight requests");
+    stopAccepting();
+    try {
+      if (!stopped.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        System.out.println("Shutdown timed out with " + connections.size() + " connections open");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Starts draining without waiting: the accept loop stops and idle connections are closed.
+   */
+  public void stopAccepting() {
+    draining = true;
+    closeIdleConnections();
+  }
+
+  /**
+   * Closes every connection that is waiting for its next request.
+   * Connections check {@link #isDraining()} themselves after finishing a request.
+   */
+  public void closeIdleConnections() {
+    for (IdleCloseable connection : connections) {
+      if (connection.isIdle()) {
+        try {
+          connection.close();
+        } catch (IOException ignored) {
+          // The connection is going away anyway
+        }
+      }
+    }
+  }
+
+  /**
+   * Reports that the server has drained and closed its listening socket.
+   */
+  public void markStopped() {
+    stopped.countDown();
+  }
+}
@@ -1,5 +1,8 @@
 package ntnu.idata2305;
 
+import ntnu.idata2305.metrics.ServerMetrics;
+import ntnu.idata2305.tls.Transport;
+
 import java.io.*;
 import java.net.*;
 
@@ -18,6 +21,9 @@ public class SingleThreadServer {
    * Starts the single-threaded server, accepts client connections, processes arithmetic requests,
    * and sends results back to clients.
    *
+   * <p>With {@code maxClients=0} the server runs until the JVM is stopped, then finishes the client
+   * it is serving before closing the server socket. With {@code tls=true} clients connect over TLS.
+   *
    * @param args Command-line arguments (not used).
    */
   public static void main(String[] args) {
@@ -25,19 +31,27 @@ public class SingleThreadServer {
 
     int port = config.getInt("port", 5000);
     int maxClients = config.getInt("maxClients", 10);
-    int delay = config.getInt("processingDelay", 1000);
+    int backlog = config.getInt("backlog", 50);
+    ServerContext context = new ServerContext(config, "SingleThreadServer");
+    ServerMetrics metrics = context.metrics();
 
     try {
-      ServerSocket serverSocket = new ServerSocket(port);
+      Transport transport = Transport.fromConfig(config);
+      ServerSocket serverSocket = transport.bind(port, backlog);
+      serverSocket.setSoTimeout(ServerLifecycle.ACCEPT_POLL_MILLIS);
 
       System.out.println("Single-threaded Server is running on port " + port);
-      System.out.println("Max clients: " + maxClients);
+      System.out.println("Max clients: " + (maxClients > 0 ? maxClients : "unlimited"));
+      System.out.println("Transport: " + transport);
 
       long startTime = 0;
       int clientCount = 0;
 
-      while (clientCount < maxClients) { // Handle 10 clients
-        Socket socket = serverSocket.accept(); // Blocking call
+      while (maxClients <= 0 || clientCount < maxClients) {
+        Socket socket = context.lifecycle().accept(serverSocket); // Blocking call
+        if (socket == null) {
+          break;
+        }
 
         // Start timer when first packet has reached the server
         if(!started){
@@ -46,56 +60,32 @@ public class SingleThreadServer {
         }
 
         clientCount++;
+        metrics.connectionAccepted();
+        ClientHandler handler = new ClientHandler(socket, context, true);
+        if (context.events() != null) {
+          context.events().connectionAccepted(handler.id());
+        } else {
+          System.out.println("Client " + clientCount + " connected");
+        }
 
-        System.out.println("Client " + clientCount + " connected");
-
-        BufferedReader input = new BufferedReader(
-          new InputStreamReader(socket.getInputStream()));
-        PrintWriter output = new PrintWriter(
-          socket.getOutputStream(), true);
-
-        double num1 = Double.parseDouble(input.readLine());
-        double num2 = Double.parseDouble(input.readLine());
-        char operator = input.readLine().charAt(0);
-
-        System.out.println(num1 + " | "+ num2 + " | " + operator);
-
-        double result = calculate(num1, num2, Character.toUpperCase(operator));
-
-        // Simulate processing delay (to show OS effect)
-        Thread.sleep(delay);
-
-        output.println(result);
-
-        socket.close();
+        // Serve the client on this thread; a keep-alive client is served until it disconnects
+        handler.run();
       }
 
       long endTime = System.currentTimeMillis();
       System.out.println("Total execution time (Single-threaded): "
         + (endTime - startTime) + " ms");
 
+      metrics.takeSnapshot();
+      System.out.println(metrics.format());
+      context.close();
+
       serverSocket.close();
 
     } catch (Exception e) {
       e.printStackTrace();
-    }
-  }
-
-  /**
-   * Performs a basic arithmetic operation on two operands.
-   *
-   * @param a   The first operand.
-   * @param b   The second operand.
-   * @param op  The operator: 'A' (add), 'S' (subtract), 'M' (multiply), 'D' (divide).
-   * @return    The result of the operation, or 0 for invalid operator or division by zero.
-   */
-  private static double calculate(double a, double b, char op) {
-    switch (op) {
-      case 'A': return a + b;
-      case 'S': return a - b;
-      case 'M': return a * b;
-      case 'D': return b != 0 ? a / b : 0;
-      default: return 0;
+    } finally {
+      context.lifecycle().markStopped();
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,346 @@
+package ntnu.idata2305.cache;
+
+import ntnu.idata2305.Config;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, thread-safe cache of calculator results keyed on {@code (num1, num2, operator)}.
+ *
+ * <p>The cache is set-associative: a key hashes to one set of {@link #WAYS} entries, and only that set is
+ * searched and evicted from. Keys and results are stored in parallel primitive arrays as the raw bits of the
+ * doubles, so neither lookups nor stores box or allocate. Sets are guarded by a fixed number of striped
+ * locks; handlers that touch different stripes never contend.
+ *
+ * <p>Within a set the least recently used entry is the eviction victim. With {@link Policy#TINY_LFU} a new
+ * entry must also have been requested more often than the victim, as estimated by a small count-min sketch
+ * of recent requests, before it may replace it. This is the admission filter of W-TinyLFU; it keeps
+ * one-off calculations from pushing out frequently repeated ones.
+ */
+public final class ResultCache {
+  /**
+   * The value {@link #lookup} returns for a miss. It is an unusual NaN bit pattern; a result with exactly
+   * these bits, which only a NaN operand with the same payload can produce, is simply never cached.
+   */
+  public static final long MISS = 0x7ff8_dead_beef_cafeL;
+
+  /**
+   * The number of entries per set.
+   */
+  public static final int WAYS = 8;
+
+  private static final int STRIPES = 64;
+
+  /**
+   * How the cache chooses which entries to keep.
+   */
+  public enum Policy {
+    /**
+     * Replace the least recently used entry of the set.
+     */
+    LRU,
+
+    /**
+     * Replace the least recently used entry of the set, but only with a key that is requested more often.
+     */
+    TINY_LFU;
+
+    /**
+     * Parses a policy from its property value, ignoring case, e.g. "lru" or "tiny-lfu".
+     *
+     * @param value the property value
+     * @return the matching policy
+     */
+    public static Policy fromString(String value) {
+      String name = value.trim().replace('-', '_').toUpperCase(Locale.ROOT);
+      return "TINYLFU".equals(name) ? TINY_LFU : valueOf(name);
+    }
+  }
+
+  private final Policy policy;
+  private final int setMask;
+  private final long[] firstKeys;
+  private final long[] secondKeys;
+  private final long[] results;
+  private final char[] operators;
+  private final long[] stamps;
+  private final long[] clocks;
+  private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+  private final FrequencySketch sketch;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+
+  /**
+   * Creates a cache that holds at least {@code capacity} results.
+   *
+   * @param capacity the number of results to hold; rounded up to a power of two of at least {@link #WAYS}
+   * @param policy   the eviction policy
+   */
+  public ResultCache(int capacity, Policy policy) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+    }
+    int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS) * 2 - 1);
+    int entries = sets * WAYS;
+    this.policy = policy;
+    this.setMask = sets - 1;
+    this.firstKeys = new long[entries];
+    this.secondKeys = new long[entries];
+    this.results = new long[entries];
+    this.operators = new char[entries];
+    this.stamps = new long[entries];
+    this.clocks = new long[sets];
+    for (int i = 0; i < STRIPES; i++) {
+      // ReentrantLock rather than synchronized, so virtual threads never pin their carrier here
+      locks[i] = new ReentrantLock();
+    }
+    this.sketch = policy == Policy.TINY_LFU ? new FrequencySketch(entries) : null;
+  }
+
+  /**
+   * Creates the cache described by the {@code cacheSize} and {@code cachePolicy} properties.
+   *
+   * @param config the configuration to read
+   * @return the cache, or null if {@code cacheSize} is 0 or missing
+   */
+  public static ResultCache fromConfig(Config config) {
+    int size = config.getInt("cacheSize", 0);
+    if (size <= 0) {
+      return null;
+    }
+    return new ResultCache(size, Policy.fromString(config.getString("cachePolicy", "lru")));
+  }
+
+  /**
+   * Looks up the result of a calculation.
+   *
+   * @param a        the first operand
+   * @param b        the second operand
+   * @param operator the operator, already upper-case
+   * @return the raw bits of the cached result, or {@link #MISS}
+   */
+  public long lookup(double a, double b, char operator) {
+    long first = Double.doubleToRawLongBits(a);
+    long second = Double.doubleToRawLongBits(b);
+    long hash = hash(first, second, operator);
+    if (sketch != null) {
+      sketch.increment(hash);
+    }
+
+    int set = (int) hash & setMask;
+    int base = set * WAYS;
+    ReentrantLock lock = locks[set & (STRIPES - 1)];
+    lock.lock();
+    try {
+      for (int i = base; i < base + WAYS; i++) {
+        if (operators[i] == operator && firstKeys[i] == first && secondKeys[i] == second) {
+          stamps[i] = ++clocks[set];
+          hits.increment();
+          return results[i];
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    misses.increment();
+    return MISS;
+  }
+
+  /**
+   * Stores the result of a calculation, evicting from the key's set if it is full.
+   *
+   * @param a        the first operand
+   * @param b        the second operand
+   * @param operator the operator, already upper-case
+   * @param result   the result
+   */
+  public void store(double a, double b, char operator, double result) {
+    long first = Double.doubleToRawLongBits(a);
+    long second = Double.doubleToRawLongBits(b);
+    long bits = Double.doubleToRawLongBits(result);
+    if (bits == MISS || operator == 0) {
+      return;
+    }
+    long hash = hash(first, second, operator);
+
+    int set = (int) hash & setMask;
+    int base = set * WAYS;
+    ReentrantLock lock = locks[set & (STRIPES - 1)];
+    lock.lock();
+    try {
+      int victim = base;
+      for (int i = base; i < base + WAYS; i++) {
+        if (operators[i] == operator && firstKeys[i] == first && secondKeys[i] == second) {
+          // Another handler stored the same calculation first
+          return;
+        }
+        if (operators[i] == 0) {
+          victim = i;
+          break;
+        }
+        if (stamps[i] < stamps[victim]) {
+          victim = i;
+        }
+      }
+
+      if (operators[victim] != 0) {
+        if (sketch != null && sketch.frequency(hash)
+          <= sketch.frequency(hash(firstKeys[victim], secondKeys[victim], operators[victim]))) {
+          rejections.increment();
+          return;
+        }
+        evictions.increment();
+      }
+      firstKeys[victim] = first;
+      secondKeys[victim] = second;
+      operators[victim] = operator;
+      results[victim] = bits;
+      stamps[victim] = ++clocks[set];
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the eviction policy.
+   */
+  public Policy policy() {
+    return policy;
+  }
+
+  /**
+   * Returns the number of results the cache can hold.
+   */
+  public int capacity() {
+    return operators.length;
+  }
+
+  /**
+   * Returns the number of lookups that found a result.
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of lookups that found nothing.
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of results replaced by newer ones.
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns the number of results not stored because the TinyLFU filter preferred the entry already there.
+   */
+  public long rejections() {
+    return rejections.sum();
+  }
+
+  /**
+   * Returns the share of lookups that found a result, between 0 and 1.
+   */
+  public double hitRate() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  /**
+   * Mixes the key into a well-spread 64-bit hash (the MurmurHash3 finalizer).
+   */
+  private static long hash(long first, long second, char operator) {
+    long h = first * 0x9E3779B97F4A7C15L + second;
+    h = h * 0xC2B2AE3D27D4EB4FL + operator;
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * A count-min sketch of 4-bit counters that estimates how often a key was requested recently.
+   * Every key updates four counters, and its frequency is the smallest of them. After ten requests per
+   * cache entry all counters are halved, so the estimate follows changes in the traffic.
+   */
+  private static final class FrequencySketch {
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+
+    private final AtomicLongArray table;
+    private final int counterMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(int entries) {
+      // Sixteen counters per long, four counters per cache entry
+      int words = Math.max(8, entries / 4);
+      this.table = new AtomicLongArray(words);
+      this.counterMask = words * 16 - 1;
+      this.sampleSize = 10 * entries;
+    }
+
+    void increment(long hash) {
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        added |= incrementAt(counterIndex(hash, i));
+      }
+      if (added && additions.incrementAndGet() >= sampleSize) {
+        reset();
+      }
+    }
+
+    int frequency(long hash) {
+      int min = 15;
+      for (int i = 0; i < 4; i++) {
+        int index = counterIndex(hash, i);
+        int count = (int) (table.get(index >>> 4) >>> ((index & 15) << 2)) & 0xF;
+        min = Math.min(min, count);
+      }
+      return min;
+    }
+
+    private int counterIndex(long hash, int i) {
+      long h = (hash + i * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+      return (int) (h >>> 32) & counterMask;
+    }
+
+    private boolean incrementAt(int index) {
+      int word = index >>> 4;
+      int shift = (index & 15) << 2;
+      while (true) {
+        long current = table.get(word);
+        if (((current >>> shift) & 0xF) == 0xF) {
+          return false;
+        }
+        if (table.compareAndSet(word, current, current + (1L << shift))) {
+          return true;
+        }
+      }
+    }
+
+    private void reset() {
+      additions.set(0);
+      for (int i = 0; i < table.length(); i++) {
+        long current;
+        do {
+          current = table.get(i);
+        } while (!table.compareAndSet(i, current, (current >>> 1) & RESET_MASK));
+      }
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package ntnu.idata2305.client;
+
+import ntnu.idata2305.Config;
+import ntnu.idata2305.tls.Transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A reusable, thread-safe calculator client with an asynchronous API.
+ *
+ * <p>Calls are spread round robin over a small pool of connections, and each connection carries many
+ * calls at once using the request ids of the binary protocol (see {@link CalculatorProtocol}). A few
+ * application threads can therefore keep thousands of calculations in flight. Connections are opened on
+ * first use and reopened after a failure.
+ *
+ * <p>At most {@code maxOutstanding} calls are in flight; {@link #calculate} blocks the caller until a slot is
+ * free, which slows down a caller that produces calls faster than the server answers them. Every call fails
+ * with a {@link TimeoutException} if it is not answered within the timeout.
+ *
+ * <p>Futures are completed on the connection's reader thread, so dependent stages should be cheap or use
+ * the {@code ...Async} variants of {@link CompletableFuture}.
+ *
+ * <p>Servers answer the requests of one connection in order, so a blocking server such as the
+ * {@link ntnu.idata2305.MultiThreadServer} serves at most one call per connection at a time; the
+ * {@link ntnu.idata2305.SelectorServer} runs the processing delays of all calls in flight concurrently.
+ */
+public class AsyncCalculatorClient implements Closeable {
+  private final String host;
+  private final int port;
+  private final Transport transport;
+  private final int timeoutMillis;
+  private final AtomicReferenceArray<MultiplexedConnection> connections;
+  private final ReentrantLock[] connecting;
+  private final Semaphore outstanding;
+  private final AtomicInteger nextConnection = new AtomicInteger();
+  private volatile boolean closed;
+
+  /**
+   * Creates a client. No connection is opened until the first call.
+   *
+   * @param host           the server host
+   * @param port           the server port
+   * @param connections    the number of pooled connections
+   * @param maxOutstanding the largest number of calls in flight at once
+   * @param timeoutMillis  how long a call may take, including connecting, before it fails
+   */
+  public AsyncCalculatorClient(String host, int port, int connections, int maxOutstanding, int timeoutMillis) {
+    this(host, port, Transport.PLAIN, connections, maxOutstanding, timeoutMillis);
+  }
+
+  /**
+   * Creates a client whose connections use the given transport. No connection is opened until the first call.
+   *
+   * @param host           the server host
+   * @param port           the server port
+   * @param transport      plaintext or TLS
+   * @param connections    the number of pooled connections
+   * @param maxOutstanding the largest number of calls in flight at once
+   * @param timeoutMillis  how long a call may take, including connecting, before it fails
+   */
+  public AsyncCalculatorClient(String host, int port, Transport transport, int connections, int maxOutstanding,
+                               int timeoutMillis) {
+    if (connections < 1 || maxOutstanding < 1 || timeoutMillis < 1) {
+      throw new IllegalArgumentException("connections, maxOutstanding and timeoutMillis must be positive");
+    }
+    this.host = host;
+    this.port = port;
+    this.transport = transport;
+    this.timeoutMillis = timeoutMillis;
+    this.connections = new AtomicReferenceArray<>(connections);
+    this.connecting = new ReentrantLock[connections];
+    for (int i = 0; i < connections; i++) {
+      // ReentrantLock rather than synchronized, so a virtual thread waiting for a reconnect never pins its carrier
+      this.connecting[i] = new ReentrantLock();
+    }
+    this.outstanding = new Semaphore(maxOutstanding);
+  }
+
+  /**
+   * Creates a client from the {@code host}, {@code port}, {@code tls}, {@code asyncConnections},
+   * {@code maxOutstanding} and {@code requestTimeoutMillis} properties.
+   *
+   * @param config the configuration to read
+   * @throws IOException if TLS is enabled and its key or trust store cannot be loaded
+   */
+  public AsyncCalculatorClient(Config config) throws IOException {
+    this(config.getString("host", "localhost"),
+      config.getInt("port", 5000),
+      Transport.fromConfig(config),
+      config.getInt("asyncConnections", 4),
+      config.getInt("maxOutstanding", 1024),
+      config.getInt("requestTimeoutMillis", 5000));
+  }
+
+  /**
+   * Sends a calculation to the server.
+   *
+   * <p>Blocks while {@code maxOutstanding} calls are in flight. If no slot frees up within the timeout, the
+   * returned future fails with a {@link RejectedExecutionException}.
+   *
+   * @param a        the first operand
+   * @param b        the second operand
+   * @param operator the operator: 'A' (add), 'S' (subtract), 'M' (multiply), 'D' (divide)
+   * @return a future that completes with the result, or fails with a {@link TimeoutException},
+   *         an {@link IOException} or a {@link RejectedExecutionException}
+   */
+  public CompletableFuture<Double> calculate(double a, double b, char operator) {
+    CompletableFuture<Double> future = new CompletableFuture<>();
+    if (closed) {
+      future.completeExceptionally(new IOException("Client closed"));
+      return future;
+    }
+    try {
+      if (!outstanding.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        future.completeExceptionally(new RejectedExecutionException("Too many outstanding calls"));
+        return future;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    future.whenComplete((result, failure) -> outstanding.release());
+    future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    try {
+      connection().send(a, b, operator, future);
+    } catch (IOException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Returns the number of calls that can still be started before {@link #calculate} blocks.
+   */
+  public int availableSlots() {
+    return outstanding.availablePermits();
+  }
+
+  /**
+   * Returns the next pooled connection, opening it if it is not open. Each slot has its own lock, so a slow
+   * connect or TLS handshake only holds up the calls that were given the same slot.
+   */
+  private MultiplexedConnection connection() throws IOException {
+    int slot = Math.floorMod(nextConnection.getAndIncrement(), connections.length());
+    MultiplexedConnection connection = connections.get(slot);
+    if (connection != null && connection.isOpen()) {
+      return connection;
+    }
+    ReentrantLock lock = connecting[slot];
+    lock.lock();
+    try {
+      connection = connections.get(slot);
+      if (connection == null || !connection.isOpen()) {
+        if (closed) {
+          throw new IOException("Client closed");
+        }
+        connection = MultiplexedConnection.open(host, port, transport, timeoutMillis);
+        connections.set(slot, connection);
+      }
+      return connection;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Closes every connection. Calls that have not been answered yet fail.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (int i = 0; i < connections.length(); i++) {
+      MultiplexedConnection connection = connections.getAndSet(i, null);
+      if (connection != null) {
+        connection.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package ntnu.idata2305.client;
+
+import ntnu.idata2305.CalculatorProtocol;
+import ntnu.idata2305.tls.Transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One binary-protocol connection shared by many calls in flight at once.
+ *
+ * <p>Callers only queue their request; a writer thread writes everything that is queued and flushes once,
+ * so concurrent calls share system calls and packets. A reader thread matches every response frame to its
+ * call by request id and completes the call's future, so responses may come back in any order. If the
+ * connection fails, every call still waiting on it fails with the same exception.
+ */
+class MultiplexedConnection implements Closeable {
+  private final Socket socket;
+  private final InputStream in;
+  private final OutputStream out;
+  private final BlockingQueue<Call> queue = new LinkedBlockingQueue<>();
+  private final ConcurrentHashMap<Integer, CompletableFuture<Double>> pending = new ConcurrentHashMap<>();
+  private final AtomicInteger nextId = new AtomicInteger();
+  private final Thread writer;
+  private volatile boolean closed;
+
+  /**
+   * A queued request.
+   */
+  private record Call(int id, double a, double b, char operator) {
+  }
+
+  private MultiplexedConnection(Socket socket) throws IOException {
+    this.socket = socket;
+    this.in = new BufferedInputStream(socket.getInputStream());
+    this.out = new BufferedOutputStream(socket.getOutputStream());
+    this.writer = Thread.ofVirtual().name("calculator-writer").unstarted(this::writeLoop);
+  }
+
+  /**
+   * Connects to a server, negotiates the binary format and starts the reader and writer threads.
+   *
+   * @param host          the server host
+   * @param port          the server port
+   * @param transport     plaintext or TLS
+   * @param timeoutMillis the connect and handshake timeout
+   * @return the open connection
+   * @throws IOException if the server cannot be reached or does not acknowledge the binary format
+   */
+  static MultiplexedConnection open(String host, int port, Transport transport, int timeoutMillis)
+    throws IOException {
+    Socket socket = transport.connect(host, port, timeoutMillis);
+    try {
+      socket.setSoTimeout(timeoutMillis);
+
+      MultiplexedConnection connection = new MultiplexedConnection(socket);
+      connection.out.write(CalculatorProtocol.BINARY_MAGIC);
+      connection.out.flush();
+      if (connection.in.read() != (CalculatorProtocol.BINARY_MAGIC & 0xFF)) {
+        throw new IOException("Server did not acknowledge the binary format");
+      }
+      socket.setSoTimeout(0);
+
+      connection.writer.start();
+      Thread.ofVirtual().name("calculator-reader").start(connection::readLoop);
+      return connection;
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns whether calls can still be sent over this connection.
+   */
+  boolean isOpen() {
+    return !closed;
+  }
+
+  /**
+   * Queues a calculation. The future is completed by the reader thread, or fails if the connection does.
+   * If the future is completed by anyone else first, for example by a timeout, a late response is ignored.
+   *
+   * @param a        the first operand
+   * @param b        the second operand
+   * @param operator the operator
+   * @param future   the future to complete with the result
+   */
+  void send(double a, double b, char operator, CompletableFuture<Double> future) {
+    int id = nextId.getAndIncrement();
+    pending.put(id, future);
+    future.whenComplete((result, failure) -> pending.remove(id));
+
+    // Checked after registering, so a concurrent failure either sees this call or is seen here
+    if (closed) {
+      future.completeExceptionally(new IOException("Connection closed"));
+      return;
+    }
+    queue.add(new Call(id, a, b, operator));
+  }
+
+  private void writeLoop() {
+    byte[] bytes = new byte[CalculatorProtocol.REQUEST_FRAME_BYTES];
+    ByteBuffer frame = ByteBuffer.wrap(bytes);
+    try {
+      while (!closed) {
+        Call call = queue.take();
+        // Write every queued call, then flush them together
+        do {
+          CalculatorProtocol.encodeRequest(frame, call.operator(), call.a(), call.b(), call.id());
+          out.write(bytes);
+        } while ((call = queue.poll()) != null);
+        out.flush();
+      }
+    } catch (IOException e) {
+      fail(e);
+    } catch (InterruptedException e) {
+      // Closed
+    }
+  }
+
+  private void readLoop() {
+    byte[] bytes = new byte[CalculatorProtocol.RESPONSE_FRAME_BYTES];
+    ByteBuffer frame = ByteBuffer.wrap(bytes);
+    try {
+      while (in.readNBytes(bytes, 0, bytes.length) == bytes.length) {
+        CompletableFuture<Double> future = pending.remove(CalculatorProtocol.responseId(frame));
+        if (future != null) {
+          future.complete(CalculatorProtocol.responseResult(frame));
+        }
+      }
+      fail(new EOFException("Server closed the connection"));
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Closes the connection and fails every call that is still waiting on it.
+   */
+  private void fail(IOException cause) {
+    closed = true;
+    writer.interrupt();
+    try {
+      socket.close();
+    } catch (IOException ignored) {
+      // Already failing
+    }
+    for (Integer id : pending.keySet()) {
+      CompletableFuture<Double> future = pending.remove(id);
+      if (future != null) {
+        future.completeExceptionally(cause);
+      }
+    }
+  }
+
+  /**
+   * Closes the connection. Calls that have not been answered yet fail.
+   */
+  @Override
+  public void close() {
+    fail(new IOException("Client closed"));
+  }
+}
@@ -0,0 +1,226 @@
+package ntnu.idata2305.cluster;
+
+import ntnu.idata2305.MultiThreadServer;
+import ntnu.idata2305.tls.Transport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One {@link MultiThreadServer} behind the {@link LoadBalancer}, started as a local process on its own port.
+ *
+ * <p>The back end keeps the count of connections the balancer is currently forwarding to it, which the
+ * least-outstanding and power-of-two strategies compare, and whether the last health check passed.
+ */
+public class Backend {
+  private final String host;
+  private final int port;
+  private final Transport transport;
+  private final AtomicInteger outstanding = new AtomicInteger();
+  private final LongAdder forwarded = new LongAdder();
+  private volatile boolean healthy;
+  private Process process;
+
+  /**
+   * Creates a back end at the given address. It is unhealthy until a health check passes.
+   *
+   * @param host the host the back end listens on
+   * @param port the port the back end listens on
+   */
+  public Backend(String host, int port) {
+    this(host, port, Transport.PLAIN);
+  }
+
+  /**
+   * Creates a back end whose server speaks the given transport. Health checks use it; connections
+   * forwarded by the balancer pass through unchanged.
+   *
+   * @param host      the host the back end listens on
+   * @param port      the port the back end listens on
+   * @param transport plaintext or TLS
+   */
+  public Backend(String host, int port, Transport transport) {
+    this.host = host;
+    this.port = port;
+    this.transport = transport;
+  }
+
+  /**
+   * Starts a {@link MultiThreadServer} for this back end in a new JVM with the same classpath. It reads the
+   * same {@code project.properties}, but listens on this back end's port and runs until it is stopped.
+   *
+   * @throws IOException if the process cannot be started
+   */
+  public void launch() throws IOException {
+    launch(MultiThreadServer.class);
+  }
+
+  /**
+   * Starts the given server for this back end in a new JVM with the same classpath, like {@link #launch()}.
+   *
+   * @param server     the server class whose {@code main} to run
+   * @param properties extra properties for the server as {@code name=value}, overriding project.properties
+   * @throws IOException if the process cannot be started
+   */
+  public void launch(Class<?> server, String... properties) throws IOException {
+    List<String> command = new ArrayList<>(List.of(
+      ProcessHandle.current().info().command().orElse("java"),
+      "-cp", System.getProperty("java.class.path"),
+      "-Dport=" + port,
+      "-DmaxClients=0",
+      "-DprintMetrics=false"));
+    for (String property : properties) {
+      command.add("-D" + property);
+    }
+    command.add(server.getName());
+
+    process = new ProcessBuilder(command)
+      .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+      .redirectError(ProcessBuilder.Redirect.INHERIT)
+      .start();
+  }
+
+  /**
+   * Stops the back end process. The server drains its in-flight requests before it exits.
+   *
+   * @param timeoutMillis how long to wait for the process to exit before killing it
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void stop(long timeoutMillis) throws InterruptedException {
+    healthy = false;
+    if (process == null) {
+      return;
+    }
+    process.destroy();
+    if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+      process.destroyForcibly().waitFor();
+    }
+  }
+
+  /**
+   * Sends one calculation to the back end and checks the answer.
+   *
+   * @param timeoutMillis the connect and read timeout
+   * @return whether the back end process is running and answered correctly in time
+   */
+  public boolean check(int timeoutMillis) {
+    if (process != null && !process.isAlive()) {
+      return false;
+    }
+    try (Socket socket = transport.connect(host, port, timeoutMillis)) {
+      socket.setSoTimeout(timeoutMillis);
+      OutputStream output = socket.getOutputStream();
+      output.write("1\n2\nA\n".getBytes(StandardCharsets.US_ASCII));
+      output.flush();
+      BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      return "3.0".equals(input.readLine());
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Waits until the back end passes a health check, for example after {@link #launch()}, and marks it healthy.
+   *
+   * @param checkTimeoutMillis the timeout of each health check
+   * @param timeoutMillis      how long to keep trying
+   * @throws IOException if the back end does not pass a check in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void awaitHealthy(int checkTimeoutMillis, long timeoutMillis) throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (!check(checkTimeoutMillis)) {
+      if (System.nanoTime() - deadline > 0) {
+        throw new IOException("Backend " + this + " did not start");
+      }
+      Thread.sleep(100);
+    }
+    healthy = true;
+  }
+
+  /**
+   * Opens a connection to the back end.
+   *
+   * @param timeoutMillis the connect timeout
+   * @return the connected socket
+   * @throws IOException if the back end cannot be reached
+   */
+  public Socket connect(int timeoutMillis) throws IOException {
+    Socket socket = new Socket();
+    try {
+      socket.setTcpNoDelay(true);
+      socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+      return socket;
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Records that a client connection is now forwarded to this back end.
+   */
+  void acquire() {
+    outstanding.incrementAndGet();
+    forwarded.increment();
+  }
+
+  /**
+   * Records that a forwarded client connection has closed.
+   */
+  void release() {
+    outstanding.decrementAndGet();
+  }
+
+  /**
+   * Returns the number of client connections currently forwarded to this back end.
+   */
+  public int outstanding() {
+    return outstanding.get();
+  }
+
+  /**
+   * Returns the total number of client connections forwarded to this back end.
+   */
+  public long forwarded() {
+    return forwarded.sum();
+  }
+
+  /**
+   * Returns whether the last health check passed and no connection has failed since.
+   */
+  public boolean isHealthy() {
+    return healthy;
+  }
+
+  /**
+   * Records the outcome of a health check or a failed connection attempt.
+   *
+   * @param healthy whether the back end can take connections
+   */
+  void setHealthy(boolean healthy) {
+    this.healthy = healthy;
+  }
+
+  /**
+   * Returns the port the back end listens on.
+   */
+  public int port() {
+    return port;
+  }
+
+  @Override
+  public String toString() {
+    return host + ":" + port;
+  }
+}
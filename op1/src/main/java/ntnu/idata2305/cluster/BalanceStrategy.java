@@ -0,0 +1,90 @@
+package ntnu.idata2305.cluster;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How the {@link LoadBalancer} picks a back end for a new client connection.
+ * The strategy is selected with {@code balanceStrategy=#} in {@code project.properties}.
+ * Unhealthy back ends are never picked.
+ */
+public enum BalanceStrategy {
+  /**
+   * Takes the healthy back ends in turn.
+   */
+  ROUND_ROBIN,
+
+  /**
+   * Takes the healthy back end with the fewest connections in flight.
+   */
+  LEAST_OUTSTANDING,
+
+  /**
+   * Samples two healthy back ends at random and takes the one with fewer connections in flight.
+   * This is nearly as balanced as {@link #LEAST_OUTSTANDING} without comparing every back end.
+   */
+  POWER_OF_TWO;
+
+  /**
+   * Picks a back end.
+   *
+   * @param backends all back ends, healthy or not
+   * @param ticket   a number that increases with every pick, used to rotate between back ends
+   * @return the chosen back end, or null if none is healthy
+   */
+  public Backend select(Backend[] backends, long ticket) {
+    int n = backends.length;
+    int start = (int) Math.floorMod(ticket, (long) n);
+    switch (this) {
+      case ROUND_ROBIN:
+        for (int i = 0; i < n; i++) {
+          Backend backend = backends[(start + i) % n];
+          if (backend.isHealthy()) {
+            return backend;
+          }
+        }
+        return null;
+      case POWER_OF_TWO:
+        if (n > 1) {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          int first = random.nextInt(n);
+          int second = (first + 1 + random.nextInt(n - 1)) % n;
+          Backend a = backends[first];
+          Backend b = backends[second];
+          if (a.isHealthy() && b.isHealthy()) {
+            return a.outstanding() <= b.outstanding() ? a : b;
+          }
+        }
+        // Too few healthy samples: fall back to comparing every back end
+        return leastOutstanding(backends, start);
+      default:
+        return leastOutstanding(backends, start);
+    }
+  }
+
+  /**
+   * Returns the healthy back end with the fewest connections in flight. Ties go to the first one
+   * found from {@code start}, so that equally loaded back ends take turns.
+   */
+  private static Backend leastOutstanding(Backend[] backends, int start) {
+    Backend best = null;
+    for (int i = 0; i < backends.length; i++) {
+      Backend backend = backends[(start + i) % backends.length];
+      if (backend.isHealthy() && (best == null || backend.outstanding() < best.outstanding())) {
+        best = backend;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Parses a strategy from its property value, ignoring case, e.g. "round-robin" or "power-of-two".
+   *
+   * @param value the property value
+   * @return the matching strategy
+   * @throws IllegalArgumentException if the value does not name a strategy
+   */
+  public static BalanceStrategy fromString(String value) {
+    return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,70 @@
+package ntnu.idata2305.cluster;
+
+import ntnu.idata2305.Config;
+import ntnu.idata2305.load.LoadGenerator;
+import ntnu.idata2305.load.LoadSummary;
+import ntnu.idata2305.tls.Transport;
+
+import java.util.Locale;
+
+/**
+ * Measures how aggregate throughput scales as back ends are added to the {@link LoadBalancer}.
+ *
+ * <p>For every cluster size from 1 to {@code clusterBackends}, a balancer with that many back ends is
+ * started on this machine and driven by a closed-loop {@link LoadGenerator} with {@code concurrency}
+ * connections for {@code durationSeconds}, after {@code warmupSeconds} of warmup. Each back end's capacity
+ * comes from the usual server properties: with {@code executionMode=pool}, {@code poolSize=#} and
+ * {@code processingDelay=#} one back end serves at most poolSize * 1000 / processingDelay requests/s.
+ * After each line, the number of connections each back end received is printed.
+ */
+public class ClusterBenchmark {
+
+  /**
+   * Runs the benchmark and prints one line per cluster size.
+   *
+   * @param args command-line arguments (not used)
+   */
+  public static void main(String[] args) {
+    Config config = new Config("project.properties");
+    int maxBackends = config.getInt("clusterBackends", 3);
+    int port = config.getInt("port", 5000);
+    int concurrency = config.getInt("concurrency", 16);
+    int warmupSeconds = config.getInt("warmupSeconds", 5);
+    int durationSeconds = config.getInt("durationSeconds", 30);
+    boolean keepAlive = Boolean.parseBoolean(config.getString("keepAlive", "false"));
+    boolean binary = "binary".equalsIgnoreCase(config.getString("protocol", "text"));
+
+    System.out.println("backends  requests/s  p50 (ms)  p99 (ms)  errors");
+    try {
+      for (int n = 1; n <= maxBackends; n++) {
+        LoadSummary summary;
+        String distribution;
+        try (LoadBalancer balancer = new LoadBalancer(config, n)) {
+          balancer.start();
+          Thread acceptor = Thread.ofPlatform().name("balancer").start(() -> {
+            try {
+              balancer.serve(0);
+            } catch (Exception e) {
+              e.printStackTrace();
+            }
+          });
+
+          summary = new LoadGenerator("localhost", port, Transport.PLAIN, LoadGenerator.Mode.CLOSED, 0, concurrency,
+            warmupSeconds, durationSeconds, keepAlive, binary).run();
+
+          balancer.lifecycle().stopAccepting();
+          acceptor.join();
+          distribution = balancer.format();
+        }
+        System.out.println(String.format(Locale.ROOT, "%8d  %10.1f  %8.2f  %8.2f  %6d",
+          n, summary.throughput(),
+          summary.service().getValueAtPercentile(50) / 1e6,
+          summary.service().getValueAtPercentile(99) / 1e6,
+          summary.errors()));
+        System.out.println(distribution);
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,261 @@
+package ntnu.idata2305.cluster;
+
+import ntnu.idata2305.CalculatorProtocol;
+import ntnu.idata2305.Config;
+import ntnu.idata2305.ServerLifecycle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A front-end proxy that spreads client connections across several calculator back ends.
+ *
+ * <p>The balancer starts {@code clusterBackends} {@link Backend} processes on the ports from
+ * {@code clusterBasePort} upwards, and listens for clients on {@code port}. Every client connection is
+ * forwarded byte for byte to one back end chosen by the {@link BalanceStrategy}, so text, keep-alive and
+ * binary clients all work unchanged. Each forwarded connection runs on its own virtual thread.
+ *
+ * <p>Every {@code healthCheckMillis} each back end is sent a calculation; back ends that do not answer
+ * correctly are taken out of rotation until they pass again. If connecting to the chosen back end fails,
+ * it is marked unhealthy and the connection fails over to the next choice. When no back end is healthy the
+ * client is answered with BUSY. A connection that has already been forwarded is not moved, since the
+ * requests it sent cannot be replayed.
+ */
+public class LoadBalancer implements Closeable {
+  private final int port;
+  private final int backlog;
+  private final Backend[] backends;
+  private final BalanceStrategy strategy;
+  private final int healthCheckMillis;
+  private final int healthTimeoutMillis;
+  private final int drainTimeoutMillis;
+  private final ServerLifecycle lifecycle = new ServerLifecycle();
+  private final AtomicLong tickets = new AtomicLong();
+  private final LongAdder failovers = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+  private final ScheduledExecutorService healthChecks = Executors.newSingleThreadScheduledExecutor(
+    Thread.ofPlatform().name("health-check").daemon().factory());
+  private ServerSocket serverSocket;
+
+  /**
+   * Creates a balancer for the given number of back ends from the {@code cluster*}, {@code port},
+   * {@code backlog}, {@code balanceStrategy} and {@code healthCheck*} properties. Nothing is started yet.
+   *
+   * @param config       the configuration to read
+   * @param backendCount the number of back ends to start
+   */
+  public LoadBalancer(Config config, int backendCount) {
+    this.port = config.getInt("port", 5000);
+    this.backlog = config.getInt("backlog", 50);
+    this.strategy = BalanceStrategy.fromString(config.getString("balanceStrategy", "round-robin"));
+    this.healthCheckMillis = config.getInt("healthCheckMillis", 1000);
+    this.healthTimeoutMillis = config.getInt("healthTimeoutMillis", 2000);
+    this.drainTimeoutMillis = config.getInt("drainTimeoutMillis", 10000);
+
+    int basePort = config.getInt("clusterBasePort", port + 1);
+    this.backends = new Backend[backendCount];
+    for (int i = 0; i < backendCount; i++) {
+      backends[i] = new Backend("localhost", basePort + i);
+    }
+  }
+
+  /**
+   * Starts the back end processes, waits until every one of them passes a health check, starts the
+   * periodic health checks and opens the listening socket.
+   *
+   * @throws IOException if a back end cannot be started, does not become healthy or the port is taken
+   * @throws InterruptedException if interrupted while waiting for the back ends
+   */
+  public void start() throws IOException, InterruptedException {
+    for (Backend backend : backends) {
+      backend.launch();
+    }
+
+    for (Backend backend : backends) {
+      backend.awaitHealthy(healthTimeoutMillis, TimeUnit.SECONDS.toMillis(30));
+    }
+
+    healthChecks.scheduleWithFixedDelay(this::checkHealth, healthCheckMillis, healthCheckMillis, TimeUnit.MILLISECONDS);
+
+    serverSocket = new ServerSocket();
+    serverSocket.setReuseAddress(true);
+    serverSocket.bind(new InetSocketAddress(port), backlog);
+    serverSocket.setSoTimeout(ServerLifecycle.ACCEPT_POLL_MILLIS);
+  }
+
+  /**
+   * Accepts client connections and forwards each one to a back end until {@code maxClients} connections
+   * have been accepted, or until the balancer is draining.
+   *
+   * @param maxClients the number of connections to accept, or 0 for no limit
+   * @throws IOException if accepting fails
+   */
+  public void serve(int maxClients) throws IOException {
+    int clientCount = 0;
+    while (maxClients <= 0 || clientCount < maxClients) {
+      Socket client = lifecycle.accept(serverSocket);
+      if (client == null) {
+        break;
+      }
+      clientCount++;
+      connections.execute(() -> forward(client));
+    }
+  }
+
+  /**
+   * Forwards one client connection to a back end until either side closes it.
+   */
+  private void forward(Socket client) {
+    Backend backend = null;
+    Socket upstream = null;
+    for (int attempt = 0; attempt < backends.length && upstream == null; attempt++) {
+      backend = strategy.select(backends, tickets.getAndIncrement());
+      if (backend == null) {
+        break;
+      }
+      try {
+        upstream = backend.connect(healthTimeoutMillis);
+      } catch (IOException e) {
+        // Take the back end out of rotation until a health check passes again
+        backend.setHealthy(false);
+        failovers.increment();
+      }
+    }
+    if (upstream == null) {
+      rejected.increment();
+      CalculatorProtocol.rejectBusy(client);
+      return;
+    }
+
+    backend.acquire();
+    Socket server = upstream;
+    try (client; server) {
+      client.setTcpNoDelay(true);
+      Thread responses = Thread.ofVirtual().start(() -> copyResponses(server, client));
+      try {
+        client.getInputStream().transferTo(server.getOutputStream());
+        server.shutdownOutput();
+      } catch (IOException e) {
+        // The client or the back end closed the connection; the response side finishes on its own
+      }
+      responses.join();
+    } catch (IOException | InterruptedException e) {
+      // Nothing left to forward
+    } finally {
+      backend.release();
+    }
+  }
+
+  /**
+   * Copies responses from the back end to the client, and closes the client once the back end is done
+   * so that a client still sending requests notices.
+   */
+  private static void copyResponses(Socket server, Socket client) {
+    try {
+      server.getInputStream().transferTo(client.getOutputStream());
+    } catch (IOException e) {
+      // Either side went away
+    } finally {
+      try {
+        client.close();
+      } catch (IOException ignored) {
+        // Already closed
+      }
+    }
+  }
+
+  /**
+   * Checks every back end and updates whether it is in rotation.
+   */
+  private void checkHealth() {
+    for (Backend backend : backends) {
+      boolean healthy = backend.check(healthTimeoutMillis);
+      if (healthy != backend.isHealthy()) {
+        System.out.println("Backend " + backend + (healthy ? " is up" : " is down"));
+        backend.setHealthy(healthy);
+      }
+    }
+  }
+
+  /**
+   * Returns the lifecycle that stops the accept loop.
+   */
+  public ServerLifecycle lifecycle() {
+    return lifecycle;
+  }
+
+  /**
+   * Formats how many connections each back end received, and how many failed over or were rejected.
+   */
+  public String format() {
+    StringBuilder text = new StringBuilder("[LoadBalancer] strategy=").append(strategy);
+    for (Backend backend : backends) {
+      text.append(' ').append(backend.port()).append('=').append(backend.forwarded());
+    }
+    return text.append(" failovers=").append(failovers.sum())
+      .append(" rejected=").append(rejected.sum())
+      .toString();
+  }
+
+  /**
+   * Stops accepting, stops the back ends, which drain their in-flight requests, waits for the forwarded
+   * connections to finish and closes the listening socket.
+   */
+  @Override
+  public void close() throws IOException {
+    lifecycle.stopAccepting();
+    healthChecks.shutdownNow();
+    try {
+      // A check still running could otherwise report a back end that is being stopped
+      healthChecks.awaitTermination((long) healthTimeoutMillis * backends.length, TimeUnit.MILLISECONDS);
+      for (Backend backend : backends) {
+        backend.stop(drainTimeoutMillis);
+      }
+      connections.close();
+      if (serverSocket != null) {
+        serverSocket.close();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lifecycle.markStopped();
+    }
+  }
+
+  /**
+   * Starts a cluster of {@code clusterBackends} back ends behind a balancer on {@code port}, and serves
+   * clients until {@code maxClients} connections have been forwarded, or with {@code maxClients=0}
+   * until the JVM is stopped.
+   *
+   * @param args command-line arguments (not used)
+   */
+  public static void main(String[] args) {
+    Config config = new Config("project.properties");
+    int backendCount = config.getInt("clusterBackends", 3);
+    int maxClients = config.getInt("maxClients", 10);
+
+    try (LoadBalancer balancer = new LoadBalancer(config, backendCount)) {
+      balancer.lifecycle().installShutdownHook(config.getInt("drainTimeoutMillis", 10000));
+      balancer.start();
+
+      System.out.println("Load balancer is running on port " + balancer.port
+        + " with " + backendCount + " back ends (" + balancer.strategy + ")");
+      System.out.println("Max clients: " + (maxClients > 0 ? maxClients : "unlimited"));
+
+      balancer.serve(maxClients);
+      System.out.println(balancer.format());
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+}
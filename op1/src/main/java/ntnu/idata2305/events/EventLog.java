@@ -0,0 +1,340 @@
+package ntnu.idata2305.events;
+
+import ntnu.idata2305.Config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A structured event log that never blocks the threads that log to it.
+ *
+ * <p>Handlers publish fixed-layout records into a bounded ring buffer, and a background thread writes them
+ * to a memory-mapped file in batches. The ring buffer is the bounded queue of Dmitry Vyukov: every slot
+ * carries a sequence number that tells producers when it is free and the writer when it is filled, so a
+ * producer only needs one compare-and-set to claim a slot and takes no lock. When the buffer is full the
+ * record is dropped and counted instead of waiting.
+ *
+ * <p>The file starts with a {@value #HEADER_BYTES}-byte header, which begins with the bytes "CEVT", followed by
+ * records of {@value #RECORD_BYTES} bytes. Apart from those magic bytes everything is little-endian:
+ * <pre>
+ *  0  long   timestamp, nanoseconds since the epoch
+ *  8  long   connection id
+ * 16  double first operand
+ * 24  double second operand
+ * 32  double result, or the number of pairs of a batch
+ * 40  int    service time in microseconds
+ * 44  char   operator
+ * 46  byte   {@link EventType} code
+ * 47  byte   unused
+ * </pre>
+ * The file grows in chunks of {@value #CHUNK_BYTES} bytes and is cut to the records written when the log is
+ * closed. {@link EventLogReader} reads it back.
+ */
+public final class EventLog implements Closeable {
+  /**
+   * The bytes "CEVT" that start every event log file, as a big-endian int; unlike the rest of the file,
+   * the magic is written big-endian so that it reads as text.
+   */
+  public static final int MAGIC = 0x43455654;
+
+  /**
+   * The version of the file layout.
+   */
+  public static final short VERSION = 1;
+
+  /**
+   * The size of the file header: magic, version, record size and eight unused bytes.
+   */
+  public static final int HEADER_BYTES = 16;
+
+  /**
+   * The size of one record.
+   */
+  public static final int RECORD_BYTES = 48;
+
+  private static final long CHUNK_BYTES = 16L << 20;
+  private static final int BATCH = 1024;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final Path path;
+  private final FileChannel channel;
+  private final long epochNanos;
+  private final long startNanos = System.nanoTime();
+
+  // The ring buffer: one sequence number per slot and the fields of the record in parallel arrays
+  private final int mask;
+  private final AtomicLongArray sequences;
+  private final long[] timestamps;
+  private final long[] connections;
+  private final double[] firsts;
+  private final double[] seconds;
+  private final double[] values;
+  private final int[] serviceMicros;
+  private final char[] operators;
+  private final byte[] types;
+  private final AtomicLong tail = new AtomicLong();
+  private long head;
+
+  private final LongAdder dropped = new LongAdder();
+  private final Thread writer;
+  private volatile boolean closed;
+  private volatile long written;
+  private MappedByteBuffer mapped;
+  private long mappedStart;
+
+  /**
+   * Creates the log file, truncating an existing one, and starts the writer thread.
+   *
+   * @param path     the file to write
+   * @param capacity the number of records the ring buffer holds, rounded up to a power of two
+   * @throws IOException if the file cannot be created
+   */
+  public EventLog(Path path, int capacity) throws IOException {
+    this.path = path;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+      StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    Instant now = Instant.now();
+    this.epochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    this.mask = size - 1;
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    this.timestamps = new long[size];
+    this.connections = new long[size];
+    this.firsts = new double[size];
+    this.seconds = new double[size];
+    this.values = new double[size];
+    this.serviceMicros = new int[size];
+    this.operators = new char[size];
+    this.types = new byte[size];
+
+    map(0);
+    mapped.order(ByteOrder.BIG_ENDIAN).putInt(MAGIC)
+      .order(ByteOrder.LITTLE_ENDIAN).putShort(VERSION).putShort((short) RECORD_BYTES).putLong(0);
+    this.writer = Thread.ofPlatform().daemon().name("event-log-writer").start(this::writeLoop);
+  }
+
+  /**
+   * Creates the event log described by the {@code eventLog} and {@code eventLogBuffer} properties.
+   *
+   * @param config the configuration to read
+   * @return the log, or null if {@code eventLog} is empty or the file cannot be created
+   */
+  public static EventLog fromConfig(Config config) {
+    String file = config.getString("eventLog", "");
+    if (file.isEmpty()) {
+      return null;
+    }
+    try {
+      return new EventLog(Path.of(file), config.getInt("eventLogBuffer", 65536));
+    } catch (IOException e) {
+      System.out.println("Cannot create event log " + file + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Logs an accepted connection.
+   *
+   * @param connection the connection id
+   */
+  public void connectionAccepted(long connection) {
+    publish(EventType.CONNECTION_ACCEPTED, connection, 0, 0, '\0', 0, 0);
+  }
+
+  /**
+   * Logs a connection turned away with BUSY; it never got an id.
+   */
+  public void connectionRejected() {
+    publish(EventType.CONNECTION_REJECTED, 0, 0, 0, '\0', 0, 0);
+  }
+
+  /**
+   * Logs a closed connection.
+   *
+   * @param connection the connection id
+   */
+  public void connectionClosed(long connection) {
+    publish(EventType.CONNECTION_CLOSED, connection, 0, 0, '\0', 0, 0);
+  }
+
+  /**
+   * Logs an answered request.
+   *
+   * @param connection   the connection id
+   * @param first        the first operand
+   * @param second       the second operand
+   * @param operator     the operator
+   * @param result       the result sent to the client
+   * @param serviceNanos the time from receiving the request to answering it
+   */
+  public void request(long connection, double first, double second, char operator, double result, long serviceNanos) {
+    publish(EventType.REQUEST, connection, first, second, operator, result, serviceNanos);
+  }
+
+  /**
+   * Logs an answered batch.
+   *
+   * @param connection   the connection id
+   * @param operator     the operator
+   * @param count        the number of operand pairs
+   * @param serviceNanos the time from receiving the batch to answering it
+   */
+  public void batch(long connection, char operator, int count, long serviceNanos) {
+    publish(EventType.BATCH, connection, 0, 0, operator, count, serviceNanos);
+  }
+
+  /**
+   * Returns the number of records dropped because the ring buffer was full.
+   */
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * Returns the number of records written to the file so far.
+   */
+  public long written() {
+    return written;
+  }
+
+  /**
+   * Returns the file the log is written to.
+   */
+  public Path path() {
+    return path;
+  }
+
+  /**
+   * Claims a slot, fills it and hands it to the writer, or drops the record if the buffer is full.
+   */
+  private void publish(EventType type, long connection, double first, double second, char operator,
+                       double value, long serviceNanos) {
+    if (closed) {
+      return;
+    }
+    long position = tail.get();
+    int slot;
+    while (true) {
+      slot = (int) position & mask;
+      long difference = sequences.getAcquire(slot) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          break;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        // The writer has not freed this slot since the last lap, so the buffer is full
+        dropped.increment();
+        return;
+      } else {
+        // Another producer claimed this position first
+        position = tail.get();
+      }
+    }
+
+    timestamps[slot] = epochNanos + (System.nanoTime() - startNanos);
+    connections[slot] = connection;
+    firsts[slot] = first;
+    seconds[slot] = second;
+    values[slot] = value;
+    serviceMicros[slot] = (int) Math.min(Integer.MAX_VALUE, serviceNanos / 1000);
+    operators[slot] = operator;
+    types[slot] = type.code();
+    sequences.setRelease(slot, position + 1);
+  }
+
+  private void writeLoop() {
+    try {
+      while (true) {
+        int count = drain();
+        if (count == 0) {
+          if (closed && tail.get() == head) {
+            break;
+          }
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+      }
+    } catch (IOException e) {
+      System.out.println("Event log " + path + " failed: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes up to {@value #BATCH} filled slots in order and frees them.
+   *
+   * @return the number of records written
+   */
+  private int drain() throws IOException {
+    int count = 0;
+    while (count < BATCH) {
+      int slot = (int) head & mask;
+      if (sequences.getAcquire(slot) != head + 1) {
+        break;
+      }
+      if (mapped.remaining() < RECORD_BYTES) {
+        map(mappedStart + mapped.position());
+      }
+      mapped.putLong(timestamps[slot])
+        .putLong(connections[slot])
+        .putDouble(firsts[slot])
+        .putDouble(seconds[slot])
+        .putDouble(values[slot])
+        .putInt(serviceMicros[slot])
+        .putChar(operators[slot])
+        .put(types[slot])
+        .put((byte) 0);
+      sequences.setRelease(slot, head + mask + 1);
+      head++;
+      count++;
+    }
+    if (count > 0) {
+      written += count;
+    }
+    return count;
+  }
+
+  /**
+   * Maps the next chunk of the file, which grows the file to cover it.
+   */
+  private void map(long start) throws IOException {
+    mappedStart = start;
+    mapped = channel.map(FileChannel.MapMode.READ_WRITE, start, CHUNK_BYTES);
+    mapped.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Stops taking records, lets the writer write what is buffered, and cuts the file to its records.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      writer.join();
+      mapped.force();
+      channel.truncate(HEADER_BYTES + written * RECORD_BYTES);
+      channel.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      System.out.println("Cannot close event log " + path + ": " + e.getMessage());
+    }
+  }
+}
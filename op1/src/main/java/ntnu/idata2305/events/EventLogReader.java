@@ -0,0 +1,83 @@
+package ntnu.idata2305.events;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads the records of an {@link EventLog} file back, and prints them as JSON lines from the command line:
+ * <pre>
+ * java -cp target/classes ntnu.idata2305.events.EventLogReader events.log
+ * </pre>
+ */
+public final class EventLogReader {
+  private EventLogReader() {
+  }
+
+  /**
+   * Calls the action for every record of the file, in the order they were written. Reading stops at the
+   * first unused record, so a file of a server that is still running, or that crashed before it closed its
+   * log, can be read too.
+   *
+   * @param path   the event log file
+   * @param action the action to call for each record
+   * @return the number of records read
+   * @throws IOException if the file cannot be read or is not an event log
+   */
+  public static long forEach(Path path, Consumer<EventRecord> action) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < EventLog.HEADER_BYTES || buffer.getInt() != EventLog.MAGIC) {
+        throw new IOException(path + " is not an event log");
+      }
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      short version = buffer.getShort();
+      short recordBytes = buffer.getShort();
+      if (version != EventLog.VERSION || recordBytes != EventLog.RECORD_BYTES) {
+        throw new IOException(path + " has unsupported version " + version);
+      }
+      buffer.position(EventLog.HEADER_BYTES);
+
+      long count = 0;
+      while (buffer.remaining() >= EventLog.RECORD_BYTES) {
+        int start = buffer.position();
+        EventType type = EventType.fromCode(buffer.get(start + 46));
+        if (type == null) {
+          break;
+        }
+        long timestamp = buffer.getLong();
+        long connection = buffer.getLong();
+        double first = buffer.getDouble();
+        double second = buffer.getDouble();
+        double value = buffer.getDouble();
+        int serviceMicros = buffer.getInt();
+        char operator = buffer.getChar();
+        buffer.position(start + EventLog.RECORD_BYTES);
+        action.accept(new EventRecord(timestamp, type, connection, first, second, operator, value, serviceMicros));
+        count++;
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Prints every record of an event log file as one JSON line.
+   *
+   * @param args the path of the file
+   */
+  public static void main(String[] args) {
+    if (args.length != 1) {
+      System.out.println("Usage: EventLogReader <event log file>");
+      return;
+    }
+    try {
+      EventLogReader.forEach(Path.of(args[0]), record -> System.out.println(record.toJson()));
+    } catch (IOException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package ntnu.idata2305.events;
+
+import java.util.Locale;
+
+/**
+ * One record read back from an {@link EventLog} file.
+ *
+ * @param timestampNanos the time of the event, in nanoseconds since the epoch
+ * @param type           the kind of event
+ * @param connection     the connection id, or 0 for a rejected connection
+ * @param first          the first operand of a request
+ * @param second         the second operand of a request
+ * @param operator       the operator of a request or batch
+ * @param value          the result of a request, or the number of pairs of a batch
+ * @param serviceMicros  the service time of a request or batch, in microseconds
+ */
+public record EventRecord(long timestampNanos, EventType type, long connection, double first, double second,
+                          char operator, double value, int serviceMicros) {
+
+  /**
+   * Formats the record as one JSON object; fields that do not apply to its type are left out.
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder(128)
+      .append("{\"timestampNanos\":").append(timestampNanos)
+      .append(",\"type\":\"").append(type.name().toLowerCase(Locale.ROOT)).append('"')
+      .append(",\"connection\":").append(connection);
+    if (type == EventType.REQUEST) {
+      json.append(",\"first\":").append(first)
+        .append(",\"second\":").append(second)
+        .append(",\"operator\":\"").append(operator).append('"')
+        .append(",\"result\":").append(Double.isFinite(value) ? String.valueOf(value) : "\"" + value + "\"")
+        .append(",\"serviceMicros\":").append(serviceMicros);
+    } else if (type == EventType.BATCH) {
+      json.append(",\"operator\":\"").append(operator).append('"')
+        .append(",\"count\":").append((long) value)
+        .append(",\"serviceMicros\":").append(serviceMicros);
+    }
+    return json.append('}').toString();
+  }
+}
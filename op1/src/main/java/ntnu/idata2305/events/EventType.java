@@ -0,0 +1,62 @@
+package ntnu.idata2305.events;
+
+/**
+ * The kinds of records in an {@link EventLog}. The code is what is stored in the record.
+ */
+public enum EventType {
+  /**
+   * A connection was accepted and handed to a handler.
+   */
+  CONNECTION_ACCEPTED(1),
+
+  /**
+   * A connection was turned away with a BUSY response.
+   */
+  CONNECTION_REJECTED(2),
+
+  /**
+   * A connection was closed.
+   */
+  CONNECTION_CLOSED(3),
+
+  /**
+   * A request was answered; the record holds its operands, operator, result and service time.
+   */
+  REQUEST(4),
+
+  /**
+   * A batch was answered; the record holds its operator, the number of pairs and its service time.
+   */
+  BATCH(5);
+
+  private static final EventType[] BY_CODE = new EventType[6];
+
+  static {
+    for (EventType type : values()) {
+      BY_CODE[type.code] = type;
+    }
+  }
+
+  private final byte code;
+
+  EventType(int code) {
+    this.code = (byte) code;
+  }
+
+  /**
+   * Returns the code stored in the record.
+   */
+  public byte code() {
+    return code;
+  }
+
+  /**
+   * Returns the type with the given code.
+   *
+   * @param code the stored code
+   * @return the type, or null if no type has this code, e.g. 0 for the unused end of a log file
+   */
+  public static EventType fromCode(int code) {
+    return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+  }
+}
@@ -0,0 +1,206 @@
+package ntnu.idata2305.limit;
+
+import ntnu.idata2305.Config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limit that adapts to the measured latency of the work it guards, in the style of the
+ * gradient limiters of RPC frameworks, which apply the idea of TCP Vegas to requests instead of packets.
+ *
+ * <p>Every finished calculation reports how long it took. The limiter keeps a slow moving average of these
+ * times as the latency the server can sustain, and compares each new sample with it. While samples stay
+ * close to the average, the limit grows by a little more than its square root, probing for more capacity.
+ * When samples get slower, because {@code processingDelay} spiked or the host is contended, the ratio
+ * between the two shrinks the limit, by at most half per sample. The new limit is blended into the old
+ * one so that a single outlier does not swing it. The limit only grows while at least half of it is in use,
+ * so an idle server does not drift to the maximum.
+ *
+ * <p>Work beyond the limit waits in line for up to {@code maxWaitMillis} and is rejected after that, so
+ * the wait for a slot, and with it the tail latency, stays bounded.
+ */
+public final class AdaptiveLimiter {
+  /**
+   * How much slower than the long-term average a sample may be before the limit shrinks.
+   */
+  private static final double TOLERANCE = 1.5;
+
+  /**
+   * The weight of a new limit in the blended limit.
+   */
+  private static final double SMOOTHING = 0.2;
+
+  /**
+   * The number of samples the long-term average covers.
+   */
+  private static final int LONG_WINDOW = 600;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long maxWaitNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition slotFreed = lock.newCondition();
+  private double limit;
+  private double longRtt;
+  private long samples;
+  private int inFlight;
+  private int waiting;
+
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * Creates a limiter.
+   *
+   * @param initialLimit  the limit to start with
+   * @param minLimit      the smallest limit
+   * @param maxLimit      the largest limit
+   * @param maxWaitMillis how long work may wait for a slot before it is rejected
+   */
+  public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, long maxWaitMillis) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= maxLimit");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+  }
+
+  /**
+   * Creates the limiter described by the {@code adaptiveLimit}, {@code initialLimit}, {@code minLimit},
+   * {@code maxLimit} and {@code limitWaitMillis} properties.
+   *
+   * @param config the configuration to read
+   * @return the limiter, or null if {@code adaptiveLimit} is not true
+   */
+  public static AdaptiveLimiter fromConfig(Config config) {
+    if (!config.getBoolean("adaptiveLimit", false)) {
+      return null;
+    }
+    return new AdaptiveLimiter(config.getInt("initialLimit", 16),
+      config.getInt("minLimit", 2),
+      config.getInt("maxLimit", 256),
+      config.getInt("limitWaitMillis", 200));
+  }
+
+  /**
+   * Takes a slot for one unit of work, waiting in line while the limit is reached.
+   * A successful call must be followed by exactly one {@link #release}.
+   *
+   * @return true if a slot was taken, false if the work has to be rejected
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean acquire() throws InterruptedException {
+    lock.lock();
+    try {
+      long remaining = maxWaitNanos;
+      waiting++;
+      try {
+        while (inFlight >= (int) limit) {
+          if (remaining <= 0) {
+            rejected.increment();
+            return false;
+          }
+          remaining = slotFreed.awaitNanos(remaining);
+        }
+      } finally {
+        waiting--;
+      }
+      inFlight++;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gives back the slot of finished work and adapts the limit to how long the work took.
+   *
+   * @param rttNanos how long the work took, without the wait for the slot
+   */
+  public void release(long rttNanos) {
+    lock.lock();
+    try {
+      int busy = inFlight--;
+      update(Math.max(1, rttNanos), busy);
+      // The limit may have grown by more than one slot
+      slotFreed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Applies one latency sample to the limit. Called with the lock held.
+   */
+  private void update(double rtt, int busy) {
+    samples++;
+    if (samples == 1) {
+      longRtt = rtt;
+    } else {
+      double weight = 2.0 / (Math.min(samples, LONG_WINDOW) + 1);
+      longRtt += (rtt - longRtt) * weight;
+    }
+
+    // After a lasting drop in latency, let the average catch up rather than keep the limit pinned at the top
+    if (longRtt / rtt > 2) {
+      longRtt *= 0.95;
+    }
+
+    // A server that is not using its limit says nothing about whether it could use more
+    if (busy < limit / 2) {
+      return;
+    }
+
+    double gradient = Math.clamp(TOLERANCE * longRtt / rtt, 0.5, 1.0);
+    double target = limit * gradient + Math.sqrt(limit);
+    limit = Math.clamp(limit * (1 - SMOOTHING) + target * SMOOTHING, minLimit, maxLimit);
+  }
+
+  /**
+   * Returns the current limit.
+   */
+  public int limit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of units of work holding a slot.
+   */
+  public int inFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of units of work waiting for a slot.
+   */
+  public int waiting() {
+    lock.lock();
+    try {
+      return waiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns how much work was rejected because no slot freed up in time.
+   */
+  public long rejected() {
+    return rejected.sum();
+  }
+}
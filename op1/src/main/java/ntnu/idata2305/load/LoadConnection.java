@@ -0,0 +1,136 @@
+package ntnu.idata2305.load;
+
+import ntnu.idata2305.CalculatorProtocol;
+import ntnu.idata2305.tls.Transport;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * A client connection used by the load generator. It sends one calculation at a time and waits for the
+ * result, either over a persistent keep-alive or binary connection, or over a new connection per request
+ * like the original client. The socket is opened lazily and reopened after a failure.
+ */
+class LoadConnection implements Closeable {
+  private final String host;
+  private final int port;
+  private final Transport transport;
+  private final boolean keepAlive;
+  private final boolean binary;
+
+  private final byte[] requestBytes = new byte[CalculatorProtocol.REQUEST_FRAME_BYTES];
+  private final byte[] responseBytes = new byte[CalculatorProtocol.RESPONSE_FRAME_BYTES];
+  private final ByteBuffer request = ByteBuffer.wrap(requestBytes);
+  private final ByteBuffer response = ByteBuffer.wrap(responseBytes);
+
+  private Socket socket;
+  private InputStream in;
+  private OutputStream out;
+  private BufferedReader reader;
+  private PrintWriter writer;
+  private int nextId;
+
+  /**
+   * Creates a connection that is opened on the first call.
+   *
+   * @param host      the server host
+   * @param port      the server port
+   * @param transport plaintext or TLS
+   * @param keepAlive whether to reuse the connection for every call
+   * @param binary    whether to use binary frames; binary connections are always reused
+   */
+  LoadConnection(String host, int port, Transport transport, boolean keepAlive, boolean binary) {
+    this.host = host;
+    this.port = port;
+    this.transport = transport;
+    this.keepAlive = keepAlive || binary;
+    this.binary = binary;
+  }
+
+  /**
+   * Sends one calculation and waits for its result.
+   *
+   * @param a        the first operand
+   * @param b        the second operand
+   * @param operator the operator
+   * @return the result sent by the server
+   * @throws IOException if the request fails; the connection is closed and reopened on the next call
+   */
+  double call(double a, double b, char operator) throws IOException {
+    try {
+      if (socket == null) {
+        open();
+      }
+      double result = binary ? callBinary(a, b, operator) : callText(a, b, operator);
+      if (!keepAlive) {
+        close();
+      }
+      return result;
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e instanceof IOException io ? io : new IOException(e);
+    }
+  }
+
+  private void open() throws IOException {
+    socket = transport.connect(host, port, 0);
+    in = new BufferedInputStream(socket.getInputStream());
+    out = new BufferedOutputStream(socket.getOutputStream());
+
+    if (binary) {
+      out.write(CalculatorProtocol.BINARY_MAGIC);
+      out.flush();
+      if (in.read() != (CalculatorProtocol.BINARY_MAGIC & 0xFF)) {
+        throw new IOException("Server did not accept the binary format");
+      }
+    } else {
+      reader = new BufferedReader(new InputStreamReader(in));
+      writer = new PrintWriter(new OutputStreamWriter(out));
+      if (keepAlive) {
+        writer.println(CalculatorProtocol.KEEP_ALIVE);
+      }
+    }
+  }
+
+  private double callText(double a, double b, char operator) throws IOException {
+    writer.println(a);
+    writer.println(b);
+    writer.println(operator);
+    writer.flush();
+    String line = reader.readLine();
+    if (line == null) {
+      throw new EOFException("Server closed the connection");
+    }
+    return Double.parseDouble(line);
+  }
+
+  private double callBinary(double a, double b, char operator) throws IOException {
+    int id = nextId++;
+    CalculatorProtocol.encodeRequest(request, operator, a, b, id);
+    out.write(requestBytes);
+    out.flush();
+    if (in.readNBytes(responseBytes, 0, responseBytes.length) < responseBytes.length) {
+      throw new EOFException("Server closed the connection");
+    }
+    if (CalculatorProtocol.responseId(response) != id) {
+      throw new IOException("Response out of order: " + CalculatorProtocol.responseId(response));
+    }
+    return CalculatorProtocol.responseResult(response);
+  }
+
+  /**
+   * Closes the socket, if open.
+   */
+  @Override
+  public void close() {
+    if (socket != null) {
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+        // Nothing left to clean up
+      }
+      socket = null;
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package ntnu.idata2305.load;
+
+import ntnu.idata2305.Config;
+import ntnu.idata2305.metrics.LatencyHistogram;
+import ntnu.idata2305.tls.Transport;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates calculator load for a fixed duration and records the latency of every request.
+ *
+ * <p>In {@link Mode#RATE} mode (open loop) requests are scheduled at {@code targetRate} requests per second,
+ * independent of how fast the server answers, and {@code concurrency} connections take turns sending them.
+ * Latency is measured from the time a request was scheduled to be sent, so time spent waiting behind a slow
+ * request is included; this avoids coordinated omission. In {@link Mode#CLOSED} mode each of the
+ * {@code concurrency} connections sends its next request as soon as the previous one is answered, optionally
+ * paced so that all connections together aim for {@code targetRate}; long responses are then corrected for
+ * the requests they held back, and the pacing picks up from the end of the long response rather than
+ * catching up on them.
+ *
+ * <p>A warmup phase of the same shape runs first and is not recorded. Nothing is printed per request.
+ */
+public class LoadGenerator {
+
+  /**
+   * How requests are scheduled.
+   */
+  public enum Mode {
+    /**
+     * Open loop: requests are sent at a fixed rate.
+     */
+    RATE,
+
+    /**
+     * Closed loop: every connection waits for its response before sending the next request.
+     */
+    CLOSED;
+
+    /**
+     * Parses a mode from its property value, ignoring case.
+     *
+     * @param value the property value, e.g. "rate"
+     * @return the matching mode
+     */
+    public static Mode fromString(String value) {
+      return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+  }
+
+  private static final char[] OPERATORS = {'A', 'S', 'M', 'D'};
+
+  private final String host;
+  private final int port;
+  private final Transport transport;
+  private final Mode mode;
+  private final double targetRate;
+  private final int concurrency;
+  private final long warmupNanos;
+  private final long durationNanos;
+  private final boolean keepAlive;
+  private final boolean binary;
+
+  /**
+   * Creates a load generator from the {@code load*}, {@code port}, {@code keepAlive}, {@code protocol} and
+   * {@code tls} properties.
+   *
+   * @param config the configuration to read
+   * @throws IOException if TLS is enabled and its key or trust store cannot be loaded
+   */
+  public LoadGenerator(Config config) throws IOException {
+    this(config.getString("host", "localhost"),
+      config.getInt("port", 5000),
+      Transport.fromConfig(config),
+      Mode.fromString(config.getString("loadMode", "rate")),
+      config.getInt("targetRate", 1000),
+      config.getInt("concurrency", 16),
+      config.getInt("warmupSeconds", 5),
+      config.getInt("durationSeconds", 30),
+      Boolean.parseBoolean(config.getString("keepAlive", "false")),
+      "binary".equalsIgnoreCase(config.getString("protocol", "text")));
+  }
+
+  /**
+   * Creates a load generator.
+   *
+   * @param host            the server host
+   * @param port            the server port
+   * @param transport       plaintext or TLS
+   * @param mode            how requests are scheduled
+   * @param targetRate      the total request rate in requests per second; 0 disables pacing in closed mode
+   * @param concurrency     the number of concurrent connections
+   * @param warmupSeconds   the length of the unrecorded warmup phase
+   * @param durationSeconds the length of the measured phase
+   * @param keepAlive       whether each connection is reused for all of its requests
+   * @param binary          whether to use binary frames instead of text lines
+   */
+  public LoadGenerator(String host, int port, Transport transport, Mode mode, double targetRate, int concurrency,
+                       int warmupSeconds, int durationSeconds, boolean keepAlive, boolean binary) {
+    if (mode == Mode.RATE && targetRate <= 0) {
+      throw new IllegalArgumentException("targetRate must be positive in rate mode: " + targetRate);
+    }
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be at least 1: " + concurrency);
+    }
+    this.host = host;
+    this.port = port;
+    this.transport = transport;
+    this.mode = mode;
+    this.targetRate = targetRate;
+    this.concurrency = concurrency;
+    this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+    this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+    this.keepAlive = keepAlive;
+    this.binary = binary;
+  }
+
+  /**
+   * Runs the warmup phase followed by the measured phase.
+   *
+   * @return the summary of the measured phase
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  public LoadSummary run() throws InterruptedException {
+    LoadConnection[] connections = new LoadConnection[concurrency];
+    for (int i = 0; i < concurrency; i++) {
+      connections[i] = new LoadConnection(host, port, transport, keepAlive, binary);
+    }
+
+    try {
+      if (warmupNanos > 0) {
+        runPhase(connections, warmupNanos);
+      }
+      Phase measured = runPhase(connections, durationNanos);
+
+      return new LoadSummary(mode, targetRate, concurrency,
+        TimeUnit.NANOSECONDS.toMillis(measured.elapsedNanos),
+        measured.requests.sum(), measured.errors.sum(), measured.latency, measured.service);
+    } finally {
+      for (LoadConnection connection : connections) {
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * Runs one phase with one virtual thread per connection and waits until all of them are done.
+   */
+  private Phase runPhase(LoadConnection[] connections, long lengthNanos) throws InterruptedException {
+    Phase phase = new Phase(System.nanoTime(), lengthNanos);
+    Thread[] workers = new Thread[connections.length];
+    for (int i = 0; i < connections.length; i++) {
+      LoadConnection connection = connections[i];
+      workers[i] = Thread.ofVirtual().name("load-" + i).start(() -> work(connection, phase));
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    phase.elapsedNanos = System.nanoTime() - phase.start;
+    return phase;
+  }
+
+  /**
+   * Sends requests on one connection until the phase ends.
+   */
+  private void work(LoadConnection connection, Phase phase) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    double rateInterval = targetRate > 0 ? 1e9 / targetRate : 0;
+    long workerInterval = (long) (rateInterval * concurrency);
+    long nextSend = phase.start;
+
+    while (true) {
+      long intended;
+      if (mode == Mode.RATE) {
+        // Take the next slot of the shared schedule, whichever connection is free first
+        intended = phase.start + (long) (phase.tickets.getAndIncrement() * rateInterval);
+      } else {
+        intended = workerInterval > 0 ? nextSend : System.nanoTime();
+        nextSend = intended + workerInterval;
+      }
+      if (intended - phase.end >= 0) {
+        return;
+      }
+      waitUntil(intended);
+
+      long sent = System.nanoTime();
+      try {
+        connection.call(random.nextInt(100) + 1, random.nextInt(100) + 1,
+          OPERATORS[random.nextInt(OPERATORS.length)]);
+        long done = System.nanoTime();
+
+        if (mode == Mode.RATE) {
+          phase.latency.record(done - intended);
+        } else {
+          phase.latency.recordWithExpectedInterval(done - sent, workerInterval);
+          // The correction already stands in for the requests a long response held back; sending
+          // them late as well would count the stall twice, so the schedule restarts from now
+          nextSend = Math.max(nextSend, done);
+        }
+        phase.service.record(done - sent);
+        phase.requests.increment();
+      } catch (IOException e) {
+        phase.errors.increment();
+      }
+    }
+  }
+
+  /**
+   * Parks the calling thread until {@code deadline}, a {@link System#nanoTime} value.
+   */
+  static void waitUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  /**
+   * The shared state and recordings of one warmup or measured phase.
+   */
+  private static class Phase {
+    final long start;
+    final long end;
+    final AtomicLong tickets = new AtomicLong();
+    final LongAdder requests = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram service = new LatencyHistogram();
+    long elapsedNanos;
+
+    Phase(long start, long lengthNanos) {
+      this.start = start;
+      this.end = start + lengthNanos;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package ntnu.idata2305.load;
+
+import ntnu.idata2305.metrics.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * The outcome of a load-generator run, as a single machine-readable JSON line.
+ *
+ * @param mode        the load mode
+ * @param targetRate  the target request rate in requests per second, or 0 for an unpaced closed loop
+ * @param concurrency the number of concurrent connections
+ * @param durationMs  the length of the measured phase in milliseconds
+ * @param requests    the number of successful requests in the measured phase
+ * @param errors      the number of failed requests in the measured phase
+ * @param latency     response time measured from the intended send time, corrected for coordinated omission
+ * @param service     response time measured from the actual send time
+ */
+public record LoadSummary(LoadGenerator.Mode mode, double targetRate, int concurrency, long durationMs,
+                          long requests, long errors, LatencyHistogram latency, LatencyHistogram service) {
+
+  /**
+   * Returns the achieved throughput in requests per second.
+   */
+  public double throughput() {
+    return durationMs == 0 ? 0 : requests * 1000.0 / durationMs;
+  }
+
+  /**
+   * Formats the summary as one JSON object; latencies are in microseconds.
+   */
+  public String toJson() {
+    return String.format(Locale.ROOT,
+      "{\"mode\":\"%s\",\"targetRate\":%.1f,\"concurrency\":%d,\"durationMs\":%d,\"requests\":%d,"
+        + "\"errors\":%d,\"throughput\":%.1f,\"latencyMicros\":%s,\"serviceMicros\":%s}",
+      mode.name().toLowerCase(Locale.ROOT), targetRate, concurrency, durationMs, requests, errors,
+      throughput(), histogramJson(latency), histogramJson(service));
+  }
+
+  static String histogramJson(LatencyHistogram histogram) {
+    return String.format(Locale.ROOT,
+      "{\"p50\":%.1f,\"p90\":%.1f,\"p99\":%.1f,\"p999\":%.1f,\"max\":%.1f,\"mean\":%.1f}",
+      histogram.getValueAtPercentile(50) / 1000.0,
+      histogram.getValueAtPercentile(90) / 1000.0,
+      histogram.getValueAtPercentile(99) / 1000.0,
+      histogram.getValueAtPercentile(99.9) / 1000.0,
+      histogram.getMax() / 1000.0,
+      histogram.getMean() / 1000.0);
+  }
+}
@@ -0,0 +1,44 @@
+package ntnu.idata2305.load;
+
+import ntnu.idata2305.metrics.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * The outcome of a trace replay, as a single machine-readable JSON line.
+ *
+ * @param speed       how many times faster than recorded the trace was replayed
+ * @param concurrency the number of concurrent connections
+ * @param recordedMs  the time from the first to the last recorded arrival in milliseconds
+ * @param durationMs  the time the replay took in milliseconds
+ * @param requests    the number of successful requests
+ * @param errors      the number of failed requests
+ * @param mismatches  the number of successful requests whose result differs from the recorded one
+ * @param latency     response time measured from the recorded arrival, scaled to the replay speed
+ * @param service     response time measured from the actual send time
+ * @param recorded    the service time the server reported when the trace was recorded
+ */
+public record ReplaySummary(double speed, int concurrency, long recordedMs, long durationMs, long requests,
+                            long errors, long mismatches, LatencyHistogram latency, LatencyHistogram service,
+                            LatencyHistogram recorded) {
+
+  /**
+   * Returns the achieved throughput in requests per second.
+   */
+  public double throughput() {
+    return durationMs == 0 ? 0 : requests * 1000.0 / durationMs;
+  }
+
+  /**
+   * Formats the summary as one JSON object; latencies are in microseconds.
+   */
+  public String toJson() {
+    return String.format(Locale.ROOT,
+      "{\"mode\":\"replay\",\"speed\":%.2f,\"concurrency\":%d,\"recordedMs\":%d,\"durationMs\":%d,"
+        + "\"requests\":%d,\"errors\":%d,\"mismatches\":%d,\"throughput\":%.1f,\"latencyMicros\":%s,"
+        + "\"serviceMicros\":%s,\"recordedServiceMicros\":%s}",
+      speed, concurrency, recordedMs, durationMs, requests, errors, mismatches, throughput(),
+      LoadSummary.histogramJson(latency), LoadSummary.histogramJson(service),
+      LoadSummary.histogramJson(recorded));
+  }
+}
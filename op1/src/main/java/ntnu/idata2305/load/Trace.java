@@ -0,0 +1,126 @@
+package ntnu.idata2305.load;
+
+import ntnu.idata2305.events.EventLog;
+import ntnu.idata2305.events.EventLogReader;
+import ntnu.idata2305.events.EventRecord;
+import ntnu.idata2305.events.EventType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The requests of a recorded {@link EventLog}, ordered by when they arrived at the server.
+ *
+ * <p>The log stores when a request was answered and how long it took, so its arrival is the difference.
+ * Arrivals are kept as offsets from the first one, so a trace can be replayed at any time and speed.
+ */
+public final class Trace {
+  private final long[] offsets;
+  private final double[] firsts;
+  private final double[] seconds;
+  private final double[] results;
+  private final char[] operators;
+  private final int[] serviceMicros;
+
+  private Trace(List<EventRecord> requests) {
+    int size = requests.size();
+    offsets = new long[size];
+    firsts = new double[size];
+    seconds = new double[size];
+    results = new double[size];
+    operators = new char[size];
+    serviceMicros = new int[size];
+
+    long first = size == 0 ? 0 : arrival(requests.get(0));
+    for (int i = 0; i < size; i++) {
+      EventRecord request = requests.get(i);
+      offsets[i] = arrival(request) - first;
+      firsts[i] = request.first();
+      seconds[i] = request.second();
+      results[i] = request.value();
+      operators[i] = request.operator();
+      serviceMicros[i] = request.serviceMicros();
+    }
+  }
+
+  /**
+   * Reads the requests of an event log file; connection events and batches are left out.
+   *
+   * @param path the event log file
+   * @return the trace
+   * @throws IOException if the file cannot be read
+   */
+  public static Trace read(Path path) throws IOException {
+    List<EventRecord> requests = new ArrayList<>();
+    EventLogReader.forEach(path, record -> {
+      if (record.type() == EventType.REQUEST) {
+        requests.add(record);
+      }
+    });
+    requests.sort(Comparator.comparingLong(Trace::arrival));
+    return new Trace(requests);
+  }
+
+  private static long arrival(EventRecord request) {
+    return request.timestampNanos() - request.serviceMicros() * 1000L;
+  }
+
+  /**
+   * Returns the number of requests.
+   */
+  public int size() {
+    return offsets.length;
+  }
+
+  /**
+   * Returns the time from the first to the last arrival, in nanoseconds.
+   */
+  public long spanNanos() {
+    return offsets.length == 0 ? 0 : offsets[offsets.length - 1];
+  }
+
+  /**
+   * Returns when request {@code i} arrived, in nanoseconds after the first request.
+   */
+  public long offset(int i) {
+    return offsets[i];
+  }
+
+  /**
+   * Returns the first operand of request {@code i}.
+   */
+  public double first(int i) {
+    return firsts[i];
+  }
+
+  /**
+   * Returns the second operand of request {@code i}.
+   */
+  public double second(int i) {
+    return seconds[i];
+  }
+
+  /**
+   * Returns the operator of request {@code i}.
+   */
+  public char operator(int i) {
+    return operators[i];
+  }
+
+  /**
+   * Returns the result the server sent for request {@code i}.
+   */
+  public double result(int i) {
+    return results[i];
+  }
+
+  /**
+   * Returns how long the server took to answer request {@code i} when it was recorded, in microseconds.
+   */
+  public int serviceMicros(int i) {
+    return serviceMicros[i];
+  }
+}
@@ -0,0 +1,170 @@
+package ntnu.idata2305.load;
+
+import ntnu.idata2305.Config;
+import ntnu.idata2305.metrics.LatencyHistogram;
+import ntnu.idata2305.tls.Transport;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a recorded {@link Trace} against a server with the same operands, operators and arrival pattern.
+ *
+ * <p>Like {@link LoadGenerator.Mode#RATE} mode the replay is open loop: every request has its own send time,
+ * the recorded arrival divided by {@code replaySpeed}, and {@code concurrency} connections take the
+ * requests in order, whichever is free first. Latency is measured from that send time, so bursts in the
+ * trace that the server cannot keep up with show up as queueing instead of being smoothed away. Each result
+ * is compared with the one the server sent when the trace was recorded.
+ */
+public class TraceReplayer {
+  private final Trace trace;
+  private final String host;
+  private final int port;
+  private final Transport transport;
+  private final int concurrency;
+  private final double speed;
+  private final boolean keepAlive;
+  private final boolean binary;
+
+  /**
+   * Creates a replayer from the {@code traceFile}, {@code replaySpeed}, {@code concurrency}, {@code port},
+   * {@code keepAlive}, {@code protocol} and {@code tls} properties.
+   *
+   * @param config the configuration to read
+   * @throws IOException if the trace, or with TLS the key or trust store, cannot be read
+   */
+  public TraceReplayer(Config config) throws IOException {
+    this(readTrace(config),
+      config.getString("host", "localhost"),
+      config.getInt("port", 5000),
+      Transport.fromConfig(config),
+      config.getInt("concurrency", 16),
+      Double.parseDouble(config.getString("replaySpeed", "1")),
+      config.getBoolean("keepAlive", false),
+      "binary".equalsIgnoreCase(config.getString("protocol", "text")));
+  }
+
+  private static Trace readTrace(Config config) throws IOException {
+    String file = config.getString("traceFile", "");
+    if (file.isEmpty()) {
+      throw new IllegalArgumentException("traceFile is not set");
+    }
+    return Trace.read(Path.of(file));
+  }
+
+  /**
+   * Creates a replayer.
+   *
+   * @param trace       the requests to replay
+   * @param host        the server host
+   * @param port        the server port
+   * @param transport   plaintext or TLS
+   * @param concurrency the number of concurrent connections
+   * @param speed       how many times faster than recorded to send the requests, e.g. 2 for twice as fast
+   * @param keepAlive   whether each connection is reused for all of its requests
+   * @param binary      whether to use binary frames instead of text lines
+   */
+  public TraceReplayer(Trace trace, String host, int port, Transport transport, int concurrency, double speed,
+                       boolean keepAlive, boolean binary) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be at least 1: " + concurrency);
+    }
+    if (!(speed > 0)) {
+      throw new IllegalArgumentException("replaySpeed must be positive: " + speed);
+    }
+    this.trace = trace;
+    this.host = host;
+    this.port = port;
+    this.transport = transport;
+    this.concurrency = concurrency;
+    this.speed = speed;
+    this.keepAlive = keepAlive;
+    this.binary = binary;
+  }
+
+  /**
+   * Replays every request of the trace once.
+   *
+   * @return the summary of the replay
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  public ReplaySummary run() throws InterruptedException {
+    LoadConnection[] connections = new LoadConnection[concurrency];
+    for (int i = 0; i < concurrency; i++) {
+      connections[i] = new LoadConnection(host, port, transport, keepAlive, binary);
+    }
+
+    Replay replay = new Replay(System.nanoTime());
+    try {
+      Thread[] workers = new Thread[concurrency];
+      for (int i = 0; i < concurrency; i++) {
+        LoadConnection connection = connections[i];
+        workers[i] = Thread.ofVirtual().name("replay-" + i).start(() -> work(connection, replay));
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+    } finally {
+      for (LoadConnection connection : connections) {
+        connection.close();
+      }
+    }
+
+    LatencyHistogram recorded = new LatencyHistogram();
+    for (int i = 0; i < trace.size(); i++) {
+      recorded.record(trace.serviceMicros(i) * 1000L);
+    }
+    return new ReplaySummary(speed, concurrency, TimeUnit.NANOSECONDS.toMillis(trace.spanNanos()),
+      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replay.start), replay.requests.sum(),
+      replay.errors.sum(), replay.mismatches.sum(), replay.latency, replay.service, recorded);
+  }
+
+  /**
+   * Sends the next unsent request of the trace on one connection until none are left.
+   */
+  private void work(LoadConnection connection, Replay replay) {
+    while (true) {
+      int i = replay.next.getAndIncrement();
+      if (i >= trace.size()) {
+        return;
+      }
+      long intended = replay.start + (long) (trace.offset(i) / speed);
+      LoadGenerator.waitUntil(intended);
+
+      long sent = System.nanoTime();
+      try {
+        double result = connection.call(trace.first(i), trace.second(i), trace.operator(i));
+        long done = System.nanoTime();
+
+        replay.latency.record(done - intended);
+        replay.service.record(done - sent);
+        replay.requests.increment();
+        if (Double.compare(result, trace.result(i)) != 0) {
+          replay.mismatches.increment();
+        }
+      } catch (IOException e) {
+        replay.errors.increment();
+      }
+    }
+  }
+
+  /**
+   * The shared state and recordings of one replay.
+   */
+  private static class Replay {
+    final long start;
+    final AtomicInteger next = new AtomicInteger();
+    final LongAdder requests = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder mismatches = new LongAdder();
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram service = new LatencyHistogram();
+
+    Replay(long start) {
+      this.start = start;
+    }
+  }
+}
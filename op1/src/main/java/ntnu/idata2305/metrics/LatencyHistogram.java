@@ -0,0 +1,151 @@
+package ntnu.idata2305.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe, fixed-memory latency histogram in the style of HdrHistogram.
+ *
+ * <p>Values are counted in log-linear buckets: every power of two is split into 64 linear
+ * sub-buckets, so any recorded value is reported with a relative error below 1/64 (about 1.6%).
+ * Values from 0 up to {@link #MAX_VALUE} are tracked; larger values are clamped. Recording is a
+ * single atomic increment and never allocates, so the histogram can be shared by many threads.
+ */
+public class LatencyHistogram {
+  /**
+   * The largest trackable value, about 2.4 hours when values are nanoseconds.
+   */
+  public static final long MAX_VALUE = 1L << 43;
+
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+  private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAdder totalSum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records one value.
+   *
+   * @param value the value, typically a latency in nanoseconds; negative values count as 0
+   */
+  public void record(long value) {
+    long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+    counts.incrementAndGet(indexOf(clamped));
+    totalCount.increment();
+    totalSum.add(clamped);
+    max.accumulateAndGet(clamped, Math::max);
+  }
+
+  /**
+   * Records a value and corrects for coordinated omission. When a measured latency is longer than
+   * the interval at which requests were expected to be sent, the requests that could not be sent in
+   * the meantime are recorded too, with latencies reduced by one interval each.
+   *
+   * @param value            the measured value
+   * @param expectedInterval the expected interval between requests, or 0 to skip correction
+   */
+  public void recordWithExpectedInterval(long value, long expectedInterval) {
+    record(value);
+    if (expectedInterval <= 0) {
+      return;
+    }
+    for (long missing = value - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+      record(missing);
+    }
+  }
+
+  /**
+   * Returns the number of recorded values.
+   */
+  public long getTotalCount() {
+    return totalCount.sum();
+  }
+
+  /**
+   * Returns the largest recorded value.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Returns the mean of the recorded values, or 0 if none have been recorded.
+   */
+  public double getMean() {
+    long count = totalCount.sum();
+    return count == 0 ? 0 : (double) totalSum.sum() / count;
+  }
+
+  /**
+   * Returns the value at the given percentile: the smallest value that at least {@code percentile}
+   * percent of all recorded values are equal to or below, reported as the upper end of its bucket.
+   *
+   * @param percentile a percentile between 0 and 100, e.g. 99.9
+   * @return the value at the percentile, or 0 if no values have been recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long count = totalCount.sum();
+    if (count == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= target) {
+        return Math.min(highestEquivalentValue(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Adds all values recorded in another histogram to this one.
+   *
+   * @param other the histogram to add
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < counts.length(); i++) {
+      long c = other.counts.get(i);
+      if (c != 0) {
+        counts.addAndGet(i, c);
+      }
+    }
+    totalCount.add(other.totalCount.sum());
+    totalSum.add(other.totalSum.sum());
+    max.accumulateAndGet(other.max.get(), Math::max);
+  }
+
+  /**
+   * Clears all recorded values. Values recorded concurrently with a reset may be partly lost.
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+    totalCount.reset();
+    totalSum.reset();
+    max.set(0);
+  }
+
+  /**
+   * Returns the bucket index of a value between 0 and {@link #MAX_VALUE}.
+   */
+  private static int indexOf(long value) {
+    int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1));
+    return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+  }
+
+  /**
+   * Returns the largest value that falls into the bucket with the given index.
+   */
+  private static long highestEquivalentValue(int index) {
+    int shift = Math.max(0, index / SUB_BUCKET_HALF - 1);
+    long subBucket = index - (long) shift * SUB_BUCKET_HALF;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,368 @@
+package ntnu.idata2305.metrics;
+
+import ntnu.idata2305.cache.ResultCache;
+import ntnu.idata2305.events.EventLog;
+import ntnu.idata2305.limit.AdaptiveLimiter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live instrumentation of a calculator server: connection and request counters, the queue of accepted
+ * connections waiting for a handler, and latency histograms for parsing, computing and serving a request.
+ *
+ * <p>Counters are {@link LongAdder}s and histograms are {@link LatencyHistogram}s, so the request path
+ * only pays for uncontended increments. Every snapshot interval the histograms of the interval are
+ * folded into a snapshot that JMX reads from and that is optionally printed as one line.
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+  private final String serverName;
+
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder active = new LongAdder();
+  private final LongAdder queued = new LongAdder();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+
+  private final LatencyHistogram parseTime = new LatencyHistogram();
+  private final LatencyHistogram computeTime = new LatencyHistogram();
+  private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+  private volatile ResultCache cache;
+  private volatile AdaptiveLimiter limiter;
+  private volatile EventLog events;
+  private volatile Snapshot snapshot;
+  private long lastSnapshotNanos = System.nanoTime();
+  private long lastAccepted;
+  private long lastRequests;
+  private ScheduledExecutorService reporter;
+
+  /**
+   * Creates the metrics for one server.
+   *
+   * @param serverName the name used for the JMX object name and the printed snapshots
+   */
+  public ServerMetrics(String serverName) {
+    this.serverName = serverName;
+    this.snapshot = new Snapshot(0, 0, new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram());
+  }
+
+  /**
+   * Registers these metrics with the platform MBean server as
+   * {@code ntnu.idata2305:type=ServerMetrics,name=<serverName>} and starts taking snapshots.
+   *
+   * @param intervalSeconds the snapshot interval
+   * @param print           whether to print every snapshot to the console
+   * @return this object
+   */
+  public ServerMetrics start(int intervalSeconds, boolean print) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName());
+    } catch (JMException e) {
+      System.out.println("Could not register metrics MBean: " + e.getMessage());
+    }
+
+    reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "metrics-reporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    reporter.scheduleAtFixedRate(() -> {
+      takeSnapshot();
+      if (print) {
+        System.out.println(format());
+      }
+    }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    return this;
+  }
+
+  /**
+   * Stops taking snapshots and unregisters the MBean.
+   */
+  public void stop() {
+    if (reporter != null) {
+      reporter.shutdownNow();
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName());
+    } catch (JMException ignored) {
+      // Never registered
+    }
+  }
+
+  /**
+   * Includes the hit rate and evictions of a result cache in these metrics.
+   *
+   * @param cache the cache of the server, or null if it has none
+   */
+  public void trackCache(ResultCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Includes the current limit and the rejections of an adaptive concurrency limiter in these metrics.
+   *
+   * @param limiter the limiter of the server, or null if it has none
+   */
+  public void trackLimiter(AdaptiveLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  /**
+   * Includes the records dropped by a full event log in these metrics.
+   *
+   * @param events the event log of the server, or null if it has none
+   */
+  public void trackEvents(EventLog events) {
+    this.events = events;
+  }
+
+  /**
+   * Records an accepted connection.
+   */
+  public void connectionAccepted() {
+    accepted.increment();
+    active.increment();
+  }
+
+  /**
+   * Records a connection that was turned away with a BUSY response.
+   */
+  public void connectionRejected() {
+    rejected.increment();
+  }
+
+  /**
+   * Records a closed connection.
+   */
+  public void connectionClosed() {
+    active.decrement();
+  }
+
+  /**
+   * Records a connection that is waiting for a handler thread.
+   */
+  public void connectionQueued() {
+    queued.increment();
+  }
+
+  /**
+   * Records a queued connection that a handler thread has picked up.
+   */
+  public void connectionDequeued() {
+    queued.decrement();
+  }
+
+  /**
+   * Records a served request.
+   *
+   * @param parseNanos   time spent decoding the request
+   * @param computeNanos time spent calculating, including the simulated processing delay
+   * @param serviceNanos time from the request being received to the response being written
+   */
+  public void requestServed(long parseNanos, long computeNanos, long serviceNanos) {
+    requests.increment();
+    parseTime.record(parseNanos);
+    computeTime.record(computeNanos);
+    serviceTime.record(serviceNanos);
+  }
+
+  /**
+   * Records a failed request or connection.
+   */
+  public void error() {
+    errors.increment();
+  }
+
+  /**
+   * Folds the histograms of the current interval into a new snapshot and computes the rates since
+   * the previous snapshot. Values recorded while the snapshot is taken may land in either interval.
+   */
+  public synchronized void takeSnapshot() {
+    long now = System.nanoTime();
+    double seconds = Math.max(1e-9, (now - lastSnapshotNanos) / 1e9);
+    long acceptedNow = accepted.sum();
+    long requestsNow = requests.sum();
+
+    snapshot = new Snapshot(
+      (acceptedNow - lastAccepted) / seconds,
+      (requestsNow - lastRequests) / seconds,
+      drain(parseTime), drain(computeTime), drain(serviceTime));
+
+    lastSnapshotNanos = now;
+    lastAccepted = acceptedNow;
+    lastRequests = requestsNow;
+  }
+
+  /**
+   * Formats the latest snapshot as one line.
+   */
+  public String format() {
+    Snapshot s = snapshot;
+    String line = String.format(Locale.ROOT,
+      "[%s] accepted=%d rejected=%d active=%d queued=%d requests=%d errors=%d acceptRate=%.1f/s requestRate=%.1f/s "
+        + "parseP99=%.1fus computeP99=%.1fus service p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+      serverName, getAcceptedConnections(), getRejectedConnections(), getActiveConnections(), getQueueDepth(), getRequests(), getErrors(),
+      s.acceptRate, s.requestRate, micros(s.parse, 99), micros(s.compute, 99),
+      micros(s.service, 50), micros(s.service, 99), micros(s.service, 99.9), s.service.getMax() / 1000.0);
+    if (cache != null) {
+      line += String.format(Locale.ROOT, " cacheHitRate=%.1f%% cacheHits=%d cacheEvictions=%d",
+        getCacheHitRate() * 100, getCacheHits(), getCacheEvictions());
+    }
+    if (limiter != null) {
+      line += String.format(Locale.ROOT, " limit=%d inFlight=%d limitRejected=%d",
+        getConcurrencyLimit(), getLimitInFlight(), getLimitRejected());
+    }
+    if (events != null) {
+      line += " eventsDropped=" + getEventsDropped();
+    }
+    return line;
+  }
+
+  @Override
+  public long getAcceptedConnections() {
+    return accepted.sum();
+  }
+
+  @Override
+  public long getRejectedConnections() {
+    return rejected.sum();
+  }
+
+  @Override
+  public long getActiveConnections() {
+    return active.sum();
+  }
+
+  @Override
+  public long getQueueDepth() {
+    return queued.sum();
+  }
+
+  @Override
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  @Override
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  @Override
+  public long getCacheHits() {
+    ResultCache c = cache;
+    return c == null ? 0 : c.hits();
+  }
+
+  @Override
+  public long getCacheMisses() {
+    ResultCache c = cache;
+    return c == null ? 0 : c.misses();
+  }
+
+  @Override
+  public long getCacheEvictions() {
+    ResultCache c = cache;
+    return c == null ? 0 : c.evictions();
+  }
+
+  @Override
+  public double getCacheHitRate() {
+    ResultCache c = cache;
+    return c == null ? 0 : c.hitRate();
+  }
+
+  @Override
+  public int getConcurrencyLimit() {
+    AdaptiveLimiter l = limiter;
+    return l == null ? 0 : l.limit();
+  }
+
+  @Override
+  public int getLimitInFlight() {
+    AdaptiveLimiter l = limiter;
+    return l == null ? 0 : l.inFlight();
+  }
+
+  @Override
+  public long getLimitRejected() {
+    AdaptiveLimiter l = limiter;
+    return l == null ? 0 : l.rejected();
+  }
+
+  @Override
+  public long getEventsDropped() {
+    EventLog e = events;
+    return e == null ? 0 : e.dropped();
+  }
+
+  @Override
+  public double getAcceptRate() {
+    return snapshot.acceptRate;
+  }
+
+  @Override
+  public double getRequestRate() {
+    return snapshot.requestRate;
+  }
+
+  @Override
+  public double getParseTimeP99Micros() {
+    return micros(snapshot.parse, 99);
+  }
+
+  @Override
+  public double getComputeTimeP99Micros() {
+    return micros(snapshot.compute, 99);
+  }
+
+  @Override
+  public double getServiceTimeP50Micros() {
+    return micros(snapshot.service, 50);
+  }
+
+  @Override
+  public double getServiceTimeP99Micros() {
+    return micros(snapshot.service, 99);
+  }
+
+  @Override
+  public double getServiceTimeP999Micros() {
+    return micros(snapshot.service, 99.9);
+  }
+
+  @Override
+  public double getServiceTimeMaxMicros() {
+    return snapshot.service.getMax() / 1000.0;
+  }
+
+  private ObjectName objectName() throws JMException {
+    return new ObjectName("ntnu.idata2305:type=ServerMetrics,name=" + serverName);
+  }
+
+  private static LatencyHistogram drain(LatencyHistogram interval) {
+    LatencyHistogram copy = new LatencyHistogram();
+    copy.add(interval);
+    interval.reset();
+    return copy;
+  }
+
+  private static double micros(LatencyHistogram histogram, double percentile) {
+    return histogram.getValueAtPercentile(percentile) / 1000.0;
+  }
+
+  /**
+   * The rates and latency distributions of one snapshot interval.
+   */
+  private record Snapshot(double acceptRate, double requestRate,
+                          LatencyHistogram parse, LatencyHistogram compute, LatencyHistogram service) {
+  }
+}
@@ -0,0 +1,51 @@
+package ntnu.idata2305.metrics;
+
+/**
+ * The JMX management interface of {@link ServerMetrics}. Counters are totals since the server started;
+ * rates and latency percentiles cover the most recent snapshot interval. Latencies are in microseconds.
+ */
+public interface ServerMetricsMBean {
+  long getAcceptedConnections();
+
+  long getRejectedConnections();
+
+  long getActiveConnections();
+
+  long getQueueDepth();
+
+  long getRequests();
+
+  long getErrors();
+
+  long getCacheHits();
+
+  long getCacheMisses();
+
+  long getCacheEvictions();
+
+  double getCacheHitRate();
+
+  int getConcurrencyLimit();
+
+  int getLimitInFlight();
+
+  long getLimitRejected();
+
+  long getEventsDropped();
+
+  double getAcceptRate();
+
+  double getRequestRate();
+
+  double getParseTimeP99Micros();
+
+  double getComputeTimeP99Micros();
+
+  double getServiceTimeP50Micros();
+
+  double getServiceTimeP99Micros();
+
+  double getServiceTimeP999Micros();
+
+  double getServiceTimeMaxMicros();
+}
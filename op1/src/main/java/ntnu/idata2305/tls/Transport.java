@@ -0,0 +1,175 @@
+package ntnu.idata2305.tls;
+
+import ntnu.idata2305.Config;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+/**
+ * Opens the sockets of the servers and clients, either in plaintext or over TLS.
+ *
+ * <p>A TLS transport holds one {@link SSLContext} for the whole process, and that is what makes session
+ * resumption work: the context caches the sessions it negotiated, so a client that connects to the same
+ * server again resumes its session with a pre-shared key instead of repeating the certificate exchange and
+ * key agreement. The cache size and session lifetime are configurable. Reusing connections with
+ * {@code keepAlive=true} or the binary format amortises even the shortened handshake.
+ *
+ * <p>The key store is a PKCS12 file with the private key and certificate of the server. The trust store
+ * defaults to the same file, which suits a self-signed certificate generated with {@code keytool}. Clients
+ * check that the certificate matches the host they connect to.
+ */
+public final class Transport {
+  /**
+   * The plaintext transport.
+   */
+  public static final Transport PLAIN = new Transport(null, null);
+
+  private final SSLContext context;
+  private final String[] protocols;
+
+  private Transport(SSLContext context, String[] protocols) {
+    this.context = context;
+    this.protocols = protocols;
+  }
+
+  /**
+   * Creates the transport described by the {@code tls}, {@code keyStore}, {@code keyStorePassword},
+   * {@code trustStore}, {@code tlsProtocols}, {@code tlsSessionCacheSize} and {@code tlsSessionTimeoutSeconds}
+   * properties.
+   *
+   * @param config the configuration to read
+   * @return {@link #PLAIN} unless {@code tls} is true
+   * @throws IOException if the key store or trust store cannot be loaded
+   */
+  public static Transport fromConfig(Config config) throws IOException {
+    if (!config.getBoolean("tls", false)) {
+      return PLAIN;
+    }
+    char[] password = config.getString("keyStorePassword", "changeit").toCharArray();
+    Path keyStore = Path.of(config.getString("keyStore", "calculator.p12"));
+    String trustStore = config.getString("trustStore", "");
+    return tls(keyStore, trustStore.isEmpty() ? keyStore : Path.of(trustStore), password,
+      config.getString("tlsProtocols", "TLSv1.3").split("\\s*,\\s*"),
+      config.getInt("tlsSessionCacheSize", 1024),
+      config.getInt("tlsSessionTimeoutSeconds", 86400));
+  }
+
+  /**
+   * Creates a TLS transport.
+   *
+   * @param keyStore              the PKCS12 file with the key and certificate the server presents
+   * @param trustStore            the PKCS12 file with the certificates clients trust
+   * @param password              the password of both files
+   * @param protocols             the TLS versions to enable, e.g. {@code TLSv1.3}
+   * @param sessionCacheSize      the number of sessions kept for resumption, 0 for no limit
+   * @param sessionTimeoutSeconds how long a session can be resumed
+   * @return the transport
+   * @throws IOException if a store cannot be loaded
+   */
+  public static Transport tls(Path keyStore, Path trustStore, char[] password, String[] protocols,
+                              int sessionCacheSize, int sessionTimeoutSeconds) throws IOException {
+    try {
+      KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      keys.init(load(keyStore, password), password);
+      TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      trust.init(load(trustStore, password));
+
+      SSLContext context = SSLContext.getInstance("TLS");
+      context.init(keys.getKeyManagers(), trust.getTrustManagers(), null);
+      for (SSLSessionContext sessions : new SSLSessionContext[] {
+        context.getServerSessionContext(), context.getClientSessionContext()}) {
+        sessions.setSessionCacheSize(sessionCacheSize);
+        sessions.setSessionTimeout(sessionTimeoutSeconds);
+      }
+      return new Transport(context, protocols);
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Cannot set up TLS with " + keyStore + ": " + e.getMessage(), e);
+    }
+  }
+
+  private static KeyStore load(Path path, char[] password) throws IOException, GeneralSecurityException {
+    KeyStore store = KeyStore.getInstance("PKCS12");
+    try (InputStream in = Files.newInputStream(path)) {
+      store.load(in, password);
+    }
+    return store;
+  }
+
+  /**
+   * Returns whether this transport encrypts its connections.
+   */
+  public boolean isSecure() {
+    return context != null;
+  }
+
+  /**
+   * Opens a listening socket. With TLS the handshake of an accepted socket runs on its first read or
+   * write, so on the thread that serves it rather than the one that accepts it.
+   *
+   * @param port    the port to listen on
+   * @param backlog the length of the accept queue
+   * @return the listening socket
+   * @throws IOException if the port cannot be bound
+   */
+  public ServerSocket bind(int port, int backlog) throws IOException {
+    if (context == null) {
+      return new ServerSocket(port, backlog);
+    }
+    SSLServerSocket serverSocket = (SSLServerSocket) context.getServerSocketFactory().createServerSocket(port, backlog);
+    serverSocket.setEnabledProtocols(protocols);
+    return serverSocket;
+  }
+
+  /**
+   * Connects to a server with Nagle's algorithm disabled. With TLS the handshake is completed before this
+   * returns, resuming an earlier session with the same server if the session cache still has one.
+   *
+   * @param host          the server host
+   * @param port          the server port
+   * @param timeoutMillis the timeout of the connect and of the handshake, 0 for none
+   * @return the connected socket
+   * @throws IOException if the server cannot be reached or the handshake fails
+   */
+  public Socket connect(String host, int port, int timeoutMillis) throws IOException {
+    Socket socket = new Socket();
+    try {
+      socket.setTcpNoDelay(true);
+      socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+      if (context == null) {
+        return socket;
+      }
+
+      SSLSocket secure = (SSLSocket) context.getSocketFactory().createSocket(socket, host, port, true);
+      SSLParameters parameters = secure.getSSLParameters();
+      parameters.setProtocols(protocols);
+      parameters.setEndpointIdentificationAlgorithm("HTTPS");
+      secure.setSSLParameters(parameters);
+      secure.setSoTimeout(timeoutMillis);
+      secure.startHandshake();
+      secure.setSoTimeout(0);
+      return secure;
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return context == null ? "plaintext" : "TLS (" + String.join(", ", protocols) + ")";
+  }
+}
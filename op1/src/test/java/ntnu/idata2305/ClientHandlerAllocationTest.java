@@ -0,0 +1,177 @@
+package ntnu.idata2305;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link ClientHandler} allocates nothing per request once a keep-alive connection is warmed up,
+ * by reading the allocated bytes of the handler thread from {@link com.sun.management.ThreadMXBean}
+ * before and after a run of requests.
+ */
+class ClientHandlerAllocationTest {
+  private static final int WARMUP_ROUNDS = 300;
+  private static final int MEASURED_ROUNDS = 200;
+  private static final int PIPELINE = 100;
+  private static final int BATCH = 16;
+  private static final char[] OPERATORS = {'A', 'S', 'M', 'D'};
+
+  /**
+   * Room for one-off allocations such as a lazily initialised JDK class; far less than a byte per request.
+   */
+  private static final long ALLOWED_BYTES = 1024;
+
+  @Test
+  void textKeepAliveRequestsDoNotAllocate() throws Exception {
+    byte[] requests = textRequests();
+    long allocated = measure("AllocationTestText", (in, out) -> {
+      out.write((CalculatorProtocol.KEEP_ALIVE + "\n").getBytes(StandardCharsets.US_ASCII));
+      return () -> {
+        out.write(requests);
+        out.flush();
+        int lines = 0;
+        byte[] first = new byte[16];
+        int firstLength = 0;
+        while (lines < PIPELINE) {
+          int b = in.read();
+          if (b < 0) {
+            throw new IOException("Server closed the connection");
+          }
+          if (b == '\n') {
+            lines++;
+          } else if (lines == 0) {
+            first[firstLength++] = (byte) b;
+          }
+        }
+        // 1 + 100 = 101.0
+        assertEquals("101.0", new String(first, 0, firstLength, StandardCharsets.US_ASCII));
+      };
+    });
+    assertTrue(allocated < ALLOWED_BYTES,
+      () -> "Handler allocated " + allocated + " bytes over " + MEASURED_ROUNDS * PIPELINE + " text requests");
+  }
+
+  @Test
+  void binaryRequestsDoNotAllocate() throws Exception {
+    byte[] requests = binaryRequests();
+    int responseBytes = PIPELINE * CalculatorProtocol.RESPONSE_FRAME_BYTES
+      + CalculatorProtocol.BATCH_RESPONSE_HEADER_BYTES + BATCH * Double.BYTES;
+    long allocated = measure("AllocationTestBinary", (in, out) -> {
+      out.write(CalculatorProtocol.BINARY_MAGIC);
+      out.flush();
+      DataInputStream data = new DataInputStream(in);
+      assertEquals(CalculatorProtocol.BINARY_MAGIC, data.readByte());
+      byte[] responses = new byte[responseBytes];
+      return () -> {
+        out.write(requests);
+        out.flush();
+        data.readFully(responses);
+        assertEquals(101.0, ByteBuffer.wrap(responses).getDouble(4));
+      };
+    });
+    assertTrue(allocated < ALLOWED_BYTES,
+      () -> "Handler allocated " + allocated + " bytes over " + MEASURED_ROUNDS * (PIPELINE + 1) + " binary requests");
+  }
+
+  /**
+   * One pipelined round of requests and their responses.
+   */
+  private interface Round {
+    void run() throws IOException;
+  }
+
+  /**
+   * Opens a connection, sends its first bytes and returns the round to repeat.
+   */
+  private interface Session {
+    Round open(InputStream in, OutputStream out) throws IOException;
+  }
+
+  /**
+   * Serves one connection with a handler on its own thread, warms it up and returns the bytes the handler
+   * thread allocated during the measured rounds.
+   */
+  private static long measure(String serverName, Session session) throws Exception {
+    System.setProperty("processingDelay", "0");
+    System.setProperty("printMetrics", "false");
+    // The idle and read timeouts stay as shipped, so the handler waits for requests the way it does in production
+    ServerContext context;
+    try {
+      context = new ServerContext(new Config("project.properties"), serverName);
+    } finally {
+      for (String key : new String[] {"processingDelay", "printMetrics"}) {
+        System.clearProperty(key);
+      }
+    }
+    try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+         Socket client = new Socket(server.getInetAddress(), server.getLocalPort())) {
+      client.setTcpNoDelay(true);
+      Thread handler = Thread.ofPlatform().name(serverName).start(new ClientHandler(server.accept(), context));
+
+      Round round = session.open(client.getInputStream(), client.getOutputStream());
+      for (int i = 0; i < WARMUP_ROUNDS; i++) {
+        round.run();
+      }
+      long before = allocatedBytes(handler);
+      for (int i = 0; i < MEASURED_ROUNDS; i++) {
+        round.run();
+      }
+      long after = allocatedBytes(handler);
+
+      client.shutdownOutput();
+      handler.join();
+      return after - before;
+    } finally {
+      context.close();
+      context.lifecycle().markStopped();
+    }
+  }
+
+  /**
+   * Returns the bytes a thread has allocated so far, once it has settled into waiting for the next request.
+   */
+  private static long allocatedBytes(Thread thread) throws InterruptedException {
+    Thread.sleep(50);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threads.getThreadAllocatedBytes(thread.threadId());
+  }
+
+  private static byte[] textRequests() {
+    StringBuilder requests = new StringBuilder();
+    for (int i = 0; i < PIPELINE; i++) {
+      requests.append(1 + i).append('\n')
+        .append(100 - i * 0.5).append('\n')
+        .append(OPERATORS[i % OPERATORS.length]).append('\n');
+    }
+    return requests.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[] binaryRequests() {
+    ByteBuffer requests = ByteBuffer.allocate(PIPELINE * CalculatorProtocol.REQUEST_FRAME_BYTES
+      + CalculatorProtocol.BATCH_HEADER_BYTES + 2 * BATCH * Double.BYTES);
+    for (int i = 0; i < PIPELINE; i++) {
+      ByteBuffer frame = requests.slice(i * CalculatorProtocol.REQUEST_FRAME_BYTES,
+        CalculatorProtocol.REQUEST_FRAME_BYTES);
+      CalculatorProtocol.encodeRequest(frame, OPERATORS[i % OPERATORS.length], 1 + i, 100 - i * 0.5, i);
+    }
+    requests.position(PIPELINE * CalculatorProtocol.REQUEST_FRAME_BYTES);
+    CalculatorProtocol.encodeBatchHeader(requests.slice(), 'M', PIPELINE, BATCH);
+    requests.position(requests.position() + CalculatorProtocol.BATCH_HEADER_BYTES);
+    for (int i = 0; i < 2 * BATCH; i++) {
+      requests.putDouble(i + 1);
+    }
+    return requests.array();
+  }
+}
@@ -2,8 +2,12 @@ package ntnu.idata2305;
 
 import ntnu.idata2305.algorithms.Algorithm;
 import ntnu.idata2305.algorithms.FCFS;
+import ntnu.idata2305.algorithms.MLFQ;
+import ntnu.idata2305.algorithms.Priority;
+import ntnu.idata2305.algorithms.RR;
 import ntnu.idata2305.algorithms.SJF;
 import ntnu.idata2305.algorithms.SRTF;
+import ntnu.idata2305.types.ScheduleResult;
 
 import java.util.List;
 
@@ -11,6 +15,7 @@ import java.util.List;
  * Main application class to run CPU scheduling algorithm comparisons.
  * It defines several test cases with different process arrival and burst time patterns,
  * and runs FCFS, SJF, and SRTF algorithms on each case while printing results in a formatted manner.
+ * A last case runs Round Robin, priority scheduling with and without aging, and MLFQ.
  */
 
 public class Application {
@@ -53,6 +58,17 @@ public class Application {
       new CpuProcess("P6", 5, 2)
     );
 
+    List<CpuProcess> case4Processes = List.of(
+      new CpuProcess("P1", 0, 20, 3),
+      new CpuProcess("P2", 1, 2, 1),
+      new CpuProcess("P3", 2, 2, 1),
+      new CpuProcess("P4", 3, 2, 0),
+      new CpuProcess("P5", 4, 2, 1),
+      new CpuProcess("P6", 5, 2, 0),
+      new CpuProcess("P7", 6, 2, 1),
+      new CpuProcess("P8", 7, 2, 0)
+    );
+
     // Create algorithm instances
     Algorithm fcfs = new FCFS();
     Algorithm sjf = new SJF();
@@ -69,17 +85,20 @@ public class Application {
     runCase("CASE 3 - Continuous Arrival of Short Processes",
       "Shows starvation risk",
       case3Processes, fcfs, sjf, srtf);
+
+    runCase("CASE 4 - Continuous Arrival of Short, Important Processes",
+      "Shows how aging and feedback queues keep P1 from starving",
+      case4Processes, new RR(4), new Priority(0), new Priority(3), new MLFQ(new int[] {2, 4}, 0));
   }
 
   /**
    * Helper method to run a test case
    * with given processes and algorithms.
    * It prints the case title, purpose, input processes,
-   * and runs each algorithm while printing results.
+   * and runs each algorithm, printing each result with the {@link ScheduleRenderer}.
    */
   private static void runCase(String title, String purpose,
-                              List<CpuProcess> processes,
-                              Algorithm fcfs, Algorithm sjf, Algorithm srtf) {
+                              List<CpuProcess> processes, Algorithm... algorithms) {
 
     printDivider();
 
@@ -90,29 +109,26 @@ public class Application {
 
     printInputTable(processes);
 
-    System.out.println("\n" + GREEN + ">>> Running FCFS" + RESET);
-    fcfs.run(processes);
-
-    System.out.println("\n" + GREEN + ">>> Running SJF (Non-preemptive)" + RESET);
-    sjf.run(processes);
-
-    System.out.println("\n" + GREEN + ">>> Running SRTF (Preemptive)" + RESET);
-    srtf.run(processes);
+    for (Algorithm algorithm : algorithms) {
+      ScheduleResult result = algorithm.run(processes);
+      System.out.println("\n" + GREEN + ">>> Running " + result.algorithmName + RESET);
+      ScheduleRenderer.print(result);
+    }
 
     System.out.println(BLUE + "\nFinished " + title + RESET);
   }
 
   /**
    * Helper method to print the input processes in a formatted table.
-   * It shows the process ID, arrival time, and burst time for each process.
+   * It shows the process ID, arrival time, burst time and priority for each process.
    */
   private static void printInputTable(List<CpuProcess> processes) {
     System.out.println(BLUE + "\nInput Processes:" + RESET);
-    System.out.println("Process ID | Arrival | Burst");
+    System.out.println("Process ID | Arrival | Burst | Priority");
 
     for (CpuProcess p : processes) {
-      System.out.printf("%-10s | %-7d | %-5d%n",
-        p.processId(), p.arrivalTime(), p.burstTime());
+      System.out.printf("%-10s | %-7d | %-5d | %-8d%n",
+        p.processId(), p.arrivalTime(), p.burstTime(), p.priority());
     }
   }
 
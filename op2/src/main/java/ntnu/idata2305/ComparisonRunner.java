@@ -0,0 +1,159 @@
+package ntnu.idata2305;
+
+import ntnu.idata2305.algorithms.Algorithm;
+import ntnu.idata2305.algorithms.FCFS;
+import ntnu.idata2305.algorithms.MLFQ;
+import ntnu.idata2305.algorithms.Priority;
+import ntnu.idata2305.algorithms.RR;
+import ntnu.idata2305.algorithms.SJF;
+import ntnu.idata2305.algorithms.SRTF;
+import ntnu.idata2305.types.ComparisonReport;
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
+import ntnu.idata2305.workload.WorkloadGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compares scheduling algorithms over many workloads at once.
+ *
+ * <p>Every algorithm and workload pair is an independent task on a {@link ForkJoinPool}: the pairs are split
+ * in halves until single pairs remain, and idle workers steal the other halves, which keeps all cores busy
+ * even when workloads differ a lot in size. Each task writes the averages of its pair into its own slot of
+ * the report's arrays, so no locking or merging is needed. This is safe because the algorithms keep no state
+ * between runs and never change the {@link ProcessTable} they are given.
+ */
+public class ComparisonRunner {
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructs a runner that uses the common fork-join pool.
+   */
+  public ComparisonRunner() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a runner that uses the given pool.
+   *
+   * @param pool the pool to run the pairs on
+   */
+  public ComparisonRunner(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Runs every algorithm on every workload and collects the average waiting and turnaround times.
+   *
+   * @param algorithms the algorithms to compare
+   * @param workloads  the workloads to schedule
+   * @return the report
+   */
+  public ComparisonReport run(List<Algorithm> algorithms, List<ProcessTable> workloads) {
+    String[] names = new String[algorithms.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = algorithms.get(i).getClass().getSimpleName();
+    }
+    double[][] waiting = new double[algorithms.size()][workloads.size()];
+    double[][] turnaround = new double[algorithms.size()][workloads.size()];
+    long processCount = 0;
+    for (ProcessTable workload : workloads) {
+      processCount += workload.size();
+    }
+
+    long start = System.nanoTime();
+    pool.invoke(new Pairs(algorithms, workloads, waiting, turnaround, 0, algorithms.size() * workloads.size()));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    return new ComparisonReport(names, waiting, turnaround, processCount, elapsedMillis, pool.getParallelism());
+  }
+
+  /**
+   * Schedules the pairs in {@code [from, to)}, numbered algorithm by algorithm.
+   */
+  private static class Pairs extends RecursiveAction {
+    // Tasks only ever live inside the pool; ForkJoinTask is Serializable by inheritance, not by use
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<Algorithm> algorithms;
+    private final transient List<ProcessTable> workloads;
+    private final transient double[][] waiting;
+    private final transient double[][] turnaround;
+    private final int from;
+    private final int to;
+
+    Pairs(List<Algorithm> algorithms, List<ProcessTable> workloads, double[][] waiting, double[][] turnaround,
+          int from, int to) {
+      this.algorithms = algorithms;
+      this.workloads = workloads;
+      this.waiting = waiting;
+      this.turnaround = turnaround;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new Pairs(algorithms, workloads, waiting, turnaround, from, middle),
+          new Pairs(algorithms, workloads, waiting, turnaround, middle, to));
+        return;
+      }
+      if (to == from) {
+        return;
+      }
+      int algorithm = from / workloads.size();
+      int workload = from % workloads.size();
+      ScheduleResult result = algorithms.get(algorithm).run(workloads.get(workload));
+      waiting[algorithm][workload] = result.averageWaitingTime();
+      turnaround[algorithm][workload] = result.averageTurnaroundTime();
+    }
+  }
+
+  /**
+   * Compares FCFS, SJF, SRTF, Round Robin with quantum 4, priority scheduling aging every 10 time units
+   * and the default MLFQ, and prints the report. The workloads are either the files given as
+   * arguments, see {@link ProcessTable#read}, or generated with
+   * {@code --generate <count> <workloads> [arrivals] [bursts] [meanInterarrival] [meanBurst] [seed]},
+   * where workload {@code i} uses seed {@code seed + i}; see {@link WorkloadGenerator#fromArgs}.
+   *
+   * @param args the workload files or the generator settings
+   */
+  public static void main(String[] args) {
+    if (args.length == 0) {
+      System.out.println("Usage: ComparisonRunner <workload.csv>...");
+      System.out.println("       ComparisonRunner --generate <count> <workloads> [poisson|bursty]"
+        + " [exponential|bimodal|heavy-tailed] [meanInterarrival] [meanBurst] [seed]");
+      return;
+    }
+    try {
+      List<ProcessTable> workloads = new ArrayList<>();
+      if (args[0].equals("--generate")) {
+        int count = Integer.parseInt(args[1]);
+        int workloadCount = Integer.parseInt(args[2]);
+        WorkloadGenerator generator = WorkloadGenerator.fromArgs(args, 3);
+        for (int i = 0; i < workloadCount; i++) {
+          workloads.add(generator.withSeed(generator.seed() + i).table(count));
+        }
+        System.out.println("Generated " + workloadCount + " workloads (" + generator + ")");
+      } else {
+        for (String file : args) {
+          workloads.add(ProcessTable.read(Path.of(file)));
+        }
+      }
+      ComparisonReport report = new ComparisonRunner().run(
+        List.of(new FCFS(), new SJF(), new SRTF(), new RR(4), new Priority(10), new MLFQ()), workloads);
+      ScheduleRenderer.print(report);
+    } catch (IOException e) {
+      System.out.println("Cannot read workload: " + e.getMessage());
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      System.out.println("Invalid arguments: " + e.getMessage());
+    }
+  }
+}
@@ -1,9 +1,29 @@
 package ntnu.idata2305;
 
-public record CpuProcess(String processId, int arrivalTime, int burstTime) {
+/**
+ * A process to schedule. The priority is only used by priority scheduling; lower numbers are
+ * more important, and 0 is the highest priority.
+ *
+ * @param processId   the name of the process, e.g. "P1"
+ * @param arrivalTime the time the process arrives
+ * @param burstTime   the CPU time the process needs
+ * @param priority    the priority of the process, at least 0
+ */
+public record CpuProcess(String processId, int arrivalTime, int burstTime, int priority) {
+
+  /**
+   * Constructs a process with the highest priority, for algorithms that ignore priorities.
+   *
+   * @param processId   the name of the process
+   * @param arrivalTime the time the process arrives
+   * @param burstTime   the CPU time the process needs
+   */
+  public CpuProcess(String processId, int arrivalTime, int burstTime) {
+    this(processId, arrivalTime, burstTime, 0);
+  }
 
   @Override
   public String toString() {
-    return String.format("%s[arrival=%d, burst=%d]", processId, arrivalTime, burstTime);
+    return String.format("%s[arrival=%d, burst=%d, priority=%d]", processId, arrivalTime, burstTime, priority);
   }
 }
@@ -0,0 +1,97 @@
+package ntnu.idata2305;
+
+import ntnu.idata2305.types.ComparisonReport;
+import ntnu.idata2305.types.ScheduleResult;
+
+import java.io.PrintStream;
+
+/**
+ * Prints the {@link ScheduleResult} of a CPU scheduling algorithm: its Gantt chart,
+ * a table with the CT, TAT and WT of every process, and the averages.
+ * It also prints the {@link ComparisonReport} of a comparison over many workloads.
+ */
+public final class ScheduleRenderer {
+
+  private ScheduleRenderer() {
+  }
+
+  /**
+   * Prints a result to the console.
+   *
+   * @param result the result to print
+   */
+  public static void print(ScheduleResult result) {
+    print(result, System.out);
+  }
+
+  /**
+   * Prints a result to the given stream.
+   *
+   * @param result the result to print
+   * @param out    the stream to print to
+   */
+  public static void print(ScheduleResult result, PrintStream out) {
+    out.println("--- " + result.algorithmName + " ---");
+
+    printGantt(result, out);
+
+    out.println("\nProcess ID | Arrival | Burst | CT | TAT | WT");
+    for (int i = 0; i < result.size(); i++) {
+      out.printf("%-10s | %-7d | %-5d | %-2d | %-3d | %-3d%n",
+        result.processName(result.processIds[i]), result.arrivalTimes[i], result.burstTimes[i],
+        result.completionTimes[i], result.turnaroundTimes[i], result.waitingTimes[i]);
+    }
+
+    out.printf("\nAverage Turnaround Time: %.2f\n", result.averageTurnaroundTime());
+    out.printf("Average Waiting Time: %.2f\n", result.averageWaitingTime());
+  }
+
+  /**
+   * Prints a comparison report to the console: for every algorithm, the spread of its average
+   * waiting and turnaround times across the workloads.
+   *
+   * @param report the report to print
+   */
+  public static void print(ComparisonReport report) {
+    PrintStream out = System.out;
+    out.printf("Compared %d algorithms on %d workloads (%d processes) in %d ms on %d threads%n%n",
+      report.algorithmNames().length, report.workloadCount(), report.processCount(),
+      report.elapsedMillis(), report.parallelism());
+    out.println("Algorithm | Metric   | Mean       | p50        | p90        | p99        | Max");
+    for (int i = 0; i < report.algorithmNames().length; i++) {
+      printStatistics(out, report.algorithmNames()[i], "Avg WT", report.waitingTime(i));
+      printStatistics(out, "", "Avg TAT", report.turnaroundTime(i));
+    }
+  }
+
+  private static void printStatistics(PrintStream out, String algorithm, String metric,
+                                      ComparisonReport.Statistics statistics) {
+    out.printf("%-9s | %-8s | %-10.2f | %-10.2f | %-10.2f | %-10.2f | %.2f%n",
+      algorithm, metric, statistics.mean(), statistics.p50(), statistics.p90(), statistics.p99(),
+      statistics.max());
+  }
+
+  private static void printGantt(ScheduleResult result, PrintStream out) {
+    out.println("\nGantt Chart:");
+
+    if (result.segmentCount() == 0) return;
+
+    // Process row, with the gaps where the CPU had nothing to run
+    StringBuilder processes = new StringBuilder();
+    StringBuilder times = new StringBuilder(String.format("%-5d", 0));
+    int end = 0;
+    for (int i = 0; i < result.segmentCount(); i++) {
+      if (result.segmentStart(i) > end) {
+        processes.append("| idle ");
+        times.append(String.format("%-5d", result.segmentStart(i)));
+      }
+      processes.append("| ").append(result.processName(result.segmentProcessId(i))).append(' ');
+      times.append(String.format("%-5d", result.segmentEnd(i)));
+      end = result.segmentEnd(i);
+    }
+    out.println(processes.append('|'));
+
+    // Time row
+    out.println(times);
+  }
+}
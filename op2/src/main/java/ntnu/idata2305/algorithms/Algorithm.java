@@ -1,9 +1,21 @@
 package ntnu.idata2305.algorithms;
 
 import ntnu.idata2305.CpuProcess;
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
 
 import java.util.List;
 
+/**
+ * A CPU scheduling algorithm.
+ *
+ * <p>Implementations keep no state between runs and do not change the table they are given, so one
+ * instance may run on many threads at once, as {@link ntnu.idata2305.ComparisonRunner} does.
+ */
 public interface Algorithm {
-  void run(List<CpuProcess> process);
+  ScheduleResult run(ProcessTable processes);
+
+  default ScheduleResult run(List<CpuProcess> processes) {
+    return run(ProcessTable.of(processes));
+  }
 }
@@ -1,10 +1,7 @@
 package ntnu.idata2305.algorithms;
 
-import ntnu.idata2305.CpuProcess;
-
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
 
 /**
  * Implements the First Come First Serve (FCFS) scheduling algorithm.
@@ -14,50 +11,31 @@ import java.util.List;
 public class FCFS implements Algorithm {
 
   /**
-   * Runs the FCFS scheduling logic on the provided list of processes.
-   * Calculates and displays CT, TAT, WT, and their averages.
+   * Runs the FCFS scheduling logic on the provided table of processes.
+   * Calculates CT, TAT and WT for every process, in order of arrival.
    *
-   * @param process The list of CPU processes to be scheduled.
+   * @param processes The table of CPU processes to be scheduled.
+   * @return the schedule
    */
   @Override
-  public void run(List<CpuProcess> process) {
-    List<CpuProcess> sortedProcesses = new ArrayList<>(process);
-    sortedProcesses.sort(Comparator.comparingInt(CpuProcess::arrivalTime));
-
+  public ScheduleResult run(ProcessTable processes) {
+    ProcessTable table = processes.sortedByArrival();
+    ScheduleResult result = new ScheduleResult("First Come First Serve (FCFS)", processes);
     int currentTime = 0;
-    double totalWT = 0;
-    double totalTAT = 0;
-
-    System.out.println("--- First Come First Serve (FCFS) ---");
-    System.out.println("Process ID | Arrival | Burst | CT | TAT | WT");
-
-    for (CpuProcess p : sortedProcesses) {
 
-      if (currentTime < p.arrivalTime()) {
-        currentTime = p.arrivalTime();
+    for (int i = 0; i < table.size(); i++) {
+      if (currentTime < table.arrivals[i]) {
+        currentTime = table.arrivals[i];
       }
 
       // Executes the process: add its burst time to the current time
-      currentTime += p.burstTime();
+      int start = currentTime;
+      currentTime += table.bursts[i];
+      table.completions[i] = currentTime;
 
-      // Calculates metrics using the formulas
-      int completionTime = currentTime;
-      int turnaroundTime = completionTime - p.arrivalTime(); // TAT = CT - Arrival Time
-      int waitingTime = turnaroundTime - p.burstTime();      // WT = TAT - Burst Time
-
-      // Adds to our running totals for the averages
-      totalTAT += turnaroundTime;
-      totalWT += waitingTime;
-
-      // Displays the results for this specific process
-      System.out.printf("%-10s | %-7d | %-5d | %-2d | %-3d | %-2d\n",
-              p.processId(), p.arrivalTime(), p.burstTime(),
-              completionTime, turnaroundTime, waitingTime);
+      result.set(i, table.ids[i], table.arrivals[i], table.bursts[i], currentTime);
+      result.addSegment(table.ids[i], start, currentTime);
     }
-
-    // Calculates and print the overall averages
-    int n = sortedProcesses.size();
-    System.out.printf("\nAverage Turnaround Time: %.2f\n", (totalTAT / n));
-    System.out.printf("Average Waiting Time: %.2f\n\n", (totalWT / n));
+    return result;
   }
-}
\ No newline at end of file
+}
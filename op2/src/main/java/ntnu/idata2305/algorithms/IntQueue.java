@@ -0,0 +1,45 @@
+package ntnu.idata2305.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * A first-in, first-out queue of primitive ints in a growable ring buffer, used as a ready
+ * queue of process indexes without boxing.
+ */
+final class IntQueue {
+  private int[] values;
+  private int head;
+  private int size;
+
+  IntQueue(int capacity) {
+    values = new int[Math.max(1, capacity)];
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void add(int value) {
+    if (size == values.length) {
+      // Unroll the ring into a larger array, oldest value first
+      int[] grown = Arrays.copyOfRange(values, head, head + values.length * 2);
+      System.arraycopy(values, 0, grown, values.length - head, head);
+      values = grown;
+      head = 0;
+    }
+    int tail = head + size;
+    values[tail < values.length ? tail : tail - values.length] = value;
+    size++;
+  }
+
+  int poll() {
+    int value = values[head];
+    head = head + 1 < values.length ? head + 1 : 0;
+    size--;
+    return value;
+  }
+}
@@ -0,0 +1,82 @@
+package ntnu.idata2305.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of primitive longs, used as a ready queue without boxing.
+ *
+ * <p>The schedulers pack their key and the index of a process into one long, for example
+ * {@code (long) burst << 32 | index}, so ties on the key are broken by the index.
+ */
+final class LongHeap {
+  private long[] values;
+  private int size;
+
+  LongHeap(int capacity) {
+    values = new long[Math.max(1, capacity)];
+  }
+
+  /**
+   * Packs a non-negative key and an index into one heap value that orders by key, then index.
+   */
+  static long pack(int key, int index) {
+    return (long) key << 32 | index;
+  }
+
+  /**
+   * Returns the index packed into a heap value.
+   */
+  static int index(long value) {
+    return (int) value;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void add(long value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    // Sift up: move parents down until the value fits
+    int i = size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (values[parent] <= value) {
+        break;
+      }
+      values[i] = values[parent];
+      i = parent;
+    }
+    values[i] = value;
+  }
+
+  long peek() {
+    return values[0];
+  }
+
+  long poll() {
+    long top = values[0];
+    long last = values[--size];
+    // Sift down: move the smaller child up until the last value fits
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && values[child + 1] < values[child]) {
+        child++;
+      }
+      if (last <= values[child]) {
+        break;
+      }
+      values[i] = values[child];
+      i = child;
+    }
+    values[i] = last;
+    return top;
+  }
+}
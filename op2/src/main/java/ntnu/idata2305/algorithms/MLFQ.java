@@ -0,0 +1,174 @@
+package ntnu.idata2305.algorithms;
+
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
+
+import java.util.Arrays;
+
+/**
+ * Implements a Multilevel Feedback Queue (MLFQ) scheduler.
+ *
+ * <p>There is one first-in, first-out queue per level. Every level but the last is Round Robin with its
+ * own quantum, and the last level is FCFS. The CPU runs the head of the highest non-empty level. New
+ * processes start at the top; a process that uses up the quantum of its level moves one level down,
+ * so short, interactive processes finish quickly at the top while long ones sink. The time a process
+ * used at its level is kept when it is preempted, so it cannot stay at the top by yielding just before
+ * its quantum ends. A process at a lower level is preempted as soon as a process arrives at the top,
+ * and goes to the back of its own queue.
+ *
+ * <p>A long process at the bottom can starve while short processes keep arriving. With a boost interval,
+ * every process is moved back to the top at every multiple of that interval, in the order of its queues,
+ * so each one gets a turn again.
+ *
+ * <p>The simulation is event driven: every step jumps to the next completion, quantum expiry, arrival
+ * that preempts, or boost. The results list the processes in order of arrival.
+ */
+public class MLFQ implements Algorithm {
+  private final int[] quanta;
+  private final int boostInterval;
+
+  /**
+   * Constructs the classic three-level scheduler: Round Robin with quanta 8 and 16, then FCFS, without boosts.
+   */
+  public MLFQ() {
+    this(new int[] {8, 16}, 0);
+  }
+
+  /**
+   * Constructs a scheduler with a Round Robin level per quantum and an FCFS level below them.
+   *
+   * @param quanta        the quantum of each Round Robin level, from the top
+   * @param boostInterval the time between moving every process back to the top, or 0 for no boosts
+   */
+  public MLFQ(int[] quanta, int boostInterval) {
+    for (int quantum : quanta) {
+      if (quantum < 1) {
+        throw new IllegalArgumentException("Quanta must be at least 1: " + Arrays.toString(quanta));
+      }
+    }
+    if (boostInterval < 0) {
+      throw new IllegalArgumentException("Boost interval must not be negative: " + boostInterval);
+    }
+    // The FCFS level is a level whose quantum never runs out
+    this.quanta = Arrays.copyOf(quanta, quanta.length + 1);
+    this.quanta[quanta.length] = Integer.MAX_VALUE;
+    this.boostInterval = boostInterval;
+  }
+
+  @Override
+  public ScheduleResult run(ProcessTable processes) {
+    ProcessTable table = processes.sortedByArrival();
+    int n = table.size();
+    int[] remaining = table.remaining;
+    int[] level = new int[n];
+    int[] used = new int[n];
+
+    IntQueue[] queues = new IntQueue[quanta.length];
+    for (int q = 0; q < queues.length; q++) {
+      queues[q] = new IntQueue(Math.min(n, 1024));
+    }
+    String name = "Multilevel Feedback Queue (MLFQ, quanta " + Arrays.toString(Arrays.copyOf(quanta, quanta.length - 1))
+      + (boostInterval > 0 ? ", boost every " + boostInterval + ")" : ")");
+    ScheduleResult result = new ScheduleResult(name, processes);
+
+    int time = 0;
+    int next = 0;
+    int running = -1;
+    int runStart = 0;
+    long nextBoost = boostInterval > 0 ? boostInterval : Long.MAX_VALUE;
+
+    while (running >= 0 || next < n || firstNonEmpty(queues, queues.length) >= 0) {
+      if (running < 0) {
+        // The CPU is free: jump over an idle gap, then start the head of the highest level
+        if (firstNonEmpty(queues, queues.length) < 0) {
+          time = Math.max(time, table.arrivals[next]);
+        }
+        while (next < n && table.arrivals[next] <= time) {
+          queues[0].add(next++);
+        }
+        if (time >= nextBoost) {
+          nextBoost = boost(queues, level, used, -1, time);
+        }
+        running = queues[firstNonEmpty(queues, queues.length)].poll();
+        runStart = time;
+      }
+
+      // Run until the process completes or its quantum expires, unless an arrival or a boost comes first
+      long end = time + (long) Math.min(remaining[running], quanta[level[running]] - used[running]);
+      if (level[running] > 0 && next < n) {
+        end = Math.min(end, table.arrivals[next]);
+      }
+      end = Math.min(end, nextBoost);
+      int slice = (int) (end - time);
+      time = (int) end;
+      remaining[running] -= slice;
+      used[running] += slice;
+      while (next < n && table.arrivals[next] <= time) {
+        queues[0].add(next++);
+      }
+
+      if (remaining[running] == 0) {
+        table.completions[running] = time;
+        result.addSegment(table.ids[running], runStart, time);
+        running = -1;
+        continue;
+      }
+      if (time >= nextBoost) {
+        nextBoost = boost(queues, level, used, running, time);
+      }
+      int waitingAbove;
+      if (used[running] == quanta[level[running]]) {
+        // The quantum is used up: move down a level, and yield to anyone waiting at that level or above
+        level[running] = Math.min(level[running] + 1, quanta.length - 1);
+        used[running] = 0;
+        waitingAbove = firstNonEmpty(queues, level[running] + 1);
+      } else {
+        waitingAbove = firstNonEmpty(queues, level[running]);
+      }
+      if (waitingAbove >= 0) {
+        result.addSegment(table.ids[running], runStart, time);
+        queues[level[running]].add(running);
+        running = -1;
+      }
+    }
+
+    for (int i = 0; i < n; i++) {
+      result.set(i, table.ids[i], table.arrivals[i], table.bursts[i], table.completions[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the highest of the first {@code levels} levels with a waiting process, or -1 if they are all empty.
+   */
+  private static int firstNonEmpty(IntQueue[] queues, int levels) {
+    for (int q = 0; q < levels; q++) {
+      if (!queues[q].isEmpty()) {
+        return q;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Moves every waiting process and the running one, if any, to the top level with a fresh quantum.
+   *
+   * @return the time of the next boost after {@code time}
+   */
+  private long boost(IntQueue[] queues, int[] level, int[] used, int running, int time) {
+    // Waiting processes at the top have a fresh quantum already, as they leave the top only by using it up
+    for (int q = 1; q < queues.length; q++) {
+      while (!queues[q].isEmpty()) {
+        int i = queues[q].poll();
+        level[i] = 0;
+        used[i] = 0;
+        queues[0].add(i);
+      }
+    }
+    if (running >= 0) {
+      level[running] = 0;
+      used[running] = 0;
+    }
+    return (time / boostInterval + 1L) * boostInterval;
+  }
+}
@@ -0,0 +1,120 @@
+package ntnu.idata2305.algorithms;
+
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
+
+/**
+ * Implements preemptive priority scheduling with aging. The CPU always runs the arrived process with
+ * the best priority, where lower numbers are more important, and an arrival with a better priority
+ * preempts the running process.
+ *
+ * <p>Plain priority scheduling lets a steady stream of important processes starve a less important one
+ * forever. With aging, the effective priority of a process improves steadily, by one level for every
+ * {@code agingInterval} time units since it arrived: at time {@code t} it is
+ * {@code priority - (t - arrival) / agingInterval}, taken as an exact fraction rather than rounded to whole
+ * levels. Every process ages at the same rate, so comparing effective priorities at any moment gives the
+ * same order as comparing the fixed key {@code priority * agingInterval + arrival}: a waiting process never
+ * has to be revisited as it ages, and a process that has waited long enough wins against every newcomer.
+ * Two processes only tie if their keys are equal, and then the one that arrived first wins.
+ *
+ * <p>Like {@link SRTF}, the simulation is event driven with a heap of waiting processes, and only
+ * arrivals and completions are events. The results list the processes in order of arrival.
+ */
+public class Priority implements Algorithm {
+  private final int agingInterval;
+
+  /**
+   * Constructs a priority scheduler.
+   *
+   * @param agingInterval the time it takes a waiting process to gain one priority level,
+   *                      or 0 for no aging
+   */
+  public Priority(int agingInterval) {
+    if (agingInterval < 0) {
+      throw new IllegalArgumentException("Aging interval must not be negative: " + agingInterval);
+    }
+    this.agingInterval = agingInterval;
+  }
+
+  /**
+   * Runs the schedule.
+   *
+   * @throws ArithmeticException if a priority times the aging interval plus the arrival does not fit in an int
+   */
+  @Override
+  public ScheduleResult run(ProcessTable processes) {
+    ProcessTable table = processes.sortedByArrival();
+    int n = table.size();
+    int[] remaining = table.remaining;
+
+    LongHeap ready = new LongHeap(n);
+    String name = agingInterval > 0
+      ? "Preemptive Priority (aging every " + agingInterval + ")"
+      : "Preemptive Priority (no aging)";
+    ScheduleResult result = new ScheduleResult(name, processes);
+
+    int time = 0;
+    int next = 0;
+    int running = -1;
+    long current = 0;
+    int runStart = 0;
+
+    while (running >= 0 || !ready.isEmpty() || next < n) {
+      if (running < 0) {
+        // The CPU is free: jump over an idle gap, then start the most important process
+        if (ready.isEmpty()) {
+          time = Math.max(time, table.arrivals[next]);
+        }
+        while (next < n && table.arrivals[next] <= time) {
+          ready.add(LongHeap.pack(key(table, next), next));
+          next++;
+        }
+        current = ready.poll();
+        running = LongHeap.index(current);
+        runStart = time;
+        continue;
+      }
+
+      int completion = time + remaining[running];
+      if (next < n && table.arrivals[next] < completion) {
+        // Arrival event: run until then and let the newcomers compete with the running process
+        int arrival = table.arrivals[next];
+        remaining[running] -= arrival - time;
+        time = arrival;
+        while (next < n && table.arrivals[next] == time) {
+          ready.add(LongHeap.pack(key(table, next), next));
+          next++;
+        }
+        if (ready.peek() < current) {
+          result.addSegment(table.ids[running], runStart, time);
+          ready.add(current);
+          current = ready.poll();
+          running = LongHeap.index(current);
+          runStart = time;
+        }
+      } else {
+        // Completion event
+        time = completion;
+        remaining[running] = 0;
+        table.completions[running] = time;
+        result.addSegment(table.ids[running], runStart, time);
+        running = -1;
+      }
+    }
+
+    for (int i = 0; i < n; i++) {
+      result.set(i, table.ids[i], table.arrivals[i], table.bursts[i], table.completions[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the heap key of a process, which orders processes by effective priority.
+   */
+  private int key(ProcessTable table, int i) {
+    if (agingInterval == 0) {
+      return table.priorities[i];
+    }
+    return Math.toIntExact((long) table.priorities[i] * agingInterval + table.arrivals[i]);
+  }
+}
@@ -0,0 +1,88 @@
+package ntnu.idata2305.algorithms;
+
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
+
+/**
+ * Implements the Round Robin (RR) scheduling algorithm: arrived processes take turns on the CPU
+ * in a first-in, first-out queue, each for at most one time quantum.
+ *
+ * <p>The simulation is event driven: every turn jumps straight to the end of the quantum or the
+ * completion of the process, whichever comes first, so the work is proportional to the number of turns
+ * rather than the length of the schedule. Processes that arrive during a turn join the queue before the
+ * process whose quantum expired. A process that is alone keeps the CPU without a context switch, runs
+ * through to the first quantum boundary after the next arrival in one step, and its turns form one
+ * segment of the Gantt chart. The results list the processes in order of arrival.
+ */
+public class RR implements Algorithm {
+  private final int quantum;
+
+  /**
+   * Constructs a Round Robin scheduler.
+   *
+   * @param quantum the longest time a process runs before the next one gets its turn
+   */
+  public RR(int quantum) {
+    if (quantum < 1) {
+      throw new IllegalArgumentException("Quantum must be at least 1: " + quantum);
+    }
+    this.quantum = quantum;
+  }
+
+  @Override
+  public ScheduleResult run(ProcessTable processes) {
+    ProcessTable table = processes.sortedByArrival();
+    int n = table.size();
+    int[] remaining = table.remaining;
+
+    IntQueue ready = new IntQueue(Math.min(n, 1024));
+    ScheduleResult result = new ScheduleResult("Round Robin (RR, quantum " + quantum + ")", processes);
+
+    int time = 0;
+    int next = 0;
+    int running = -1;
+    int runStart = 0;
+
+    while (running >= 0 || !ready.isEmpty() || next < n) {
+      if (running < 0) {
+        // The CPU is free: jump over an idle gap, then start the process at the head of the queue
+        if (ready.isEmpty()) {
+          time = Math.max(time, table.arrivals[next]);
+        }
+        while (next < n && table.arrivals[next] <= time) {
+          ready.add(next++);
+        }
+        running = ready.poll();
+        runStart = time;
+      }
+
+      int slice = Math.min(quantum, remaining[running]);
+      if (ready.isEmpty()) {
+        // Alone on the CPU: run whole quanta up to the first quantum boundary at or after the next arrival
+        long quanta = next < n ? (table.arrivals[next] - (long) time + quantum - 1) / quantum : Integer.MAX_VALUE;
+        slice = (int) Math.min(remaining[running], Math.max(1, quanta) * quantum);
+      }
+      time += slice;
+      remaining[running] -= slice;
+      while (next < n && table.arrivals[next] <= time) {
+        ready.add(next++);
+      }
+
+      if (remaining[running] == 0) {
+        table.completions[running] = time;
+        result.addSegment(table.ids[running], runStart, time);
+        running = -1;
+      } else if (!ready.isEmpty()) {
+        // The quantum expired and someone is waiting: go to the back of the queue
+        result.addSegment(table.ids[running], runStart, time);
+        ready.add(running);
+        running = -1;
+      }
+    }
+
+    for (int i = 0; i < n; i++) {
+      result.set(i, table.ids[i], table.arrivals[i], table.bursts[i], table.completions[i]);
+    }
+    return result;
+  }
+}
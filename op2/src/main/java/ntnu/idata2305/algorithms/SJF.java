@@ -1,68 +1,47 @@
 package ntnu.idata2305.algorithms;
 
-import ntnu.idata2305.CpuProcess;
-
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
+
+/**
+ * Implements the non-preemptive Shortest Job First (SJF) scheduling algorithm.
+ * Whenever the CPU is free, it runs the arrived process with the shortest burst to completion.
+ *
+ * <p>Processes are sorted by arrival once and fed into a min-heap keyed on burst as they arrive,
+ * so every choice costs O(log n) and the whole schedule O(n log n). Among equal bursts the
+ * process that arrived first wins, and among equal arrivals the one listed first.
+ */
 public class SJF implements Algorithm {
 
-  public void run(List<CpuProcess> processes){
-    List<ProcessState> states = processes.stream()
-      .map(ProcessState::new)
-      .sorted(Comparator.comparingInt(ProcessState::arrival)
-        .thenComparingInt(ProcessState::burst)
-      ).toList();
-
-    List<ProcessState> working = new ArrayList<>(states);
-
-    System.out.println("--- Shortest Job First (SJF) ---");
-    System.out.println("Process ID | Arrival | Burst | CT | TAT | WT");
+  @Override
+  public ScheduleResult run(ProcessTable processes) {
+    ProcessTable table = processes.sortedByArrival();
+    int n = table.size();
 
+    ScheduleResult result = new ScheduleResult("Shortest Job First (SJF)", processes);
+    LongHeap ready = new LongHeap(n);
+    int next = 0;
     int time = 0;
-    int totalWT = 0;
-    int totalTAT = 0;
-
-    ProcessState currentState = working.getFirst();
-    while (currentState != null){
-      //Calculating parameters
-      time = Math.max(time, currentState.arrival()); // Edge case for when process may not have arrived yet
-      currentState.completionTime = time + currentState.burst();
-      currentState.turnaroundTime = currentState.completionTime - currentState.arrival();
-      currentState.waitingTime = currentState.turnaroundTime - currentState.burst();
-      totalWT += currentState.waitingTime;
-      totalTAT += currentState.turnaroundTime;
 
-      // Displays the results for this specific process
-      System.out.printf("%-10s | %-7d | %-5d | %-2d | %-3d | %-2d\n",
-        currentState.process.processId(), currentState.arrival(), currentState.burst(),
-        currentState.completionTime, currentState.turnaroundTime, currentState.waitingTime);
-
-      //Updating params
-      time = currentState.completionTime;
-      working.remove(currentState);
-
-      //Finding new current state
-      int finalTime = time;
-      currentState = working.stream()
-        .filter(p -> p.arrival() <= finalTime)
-        .min(Comparator.comparingInt(ProcessState::burst))
-        .orElseGet(() ->
-          working.stream()
-            .min(Comparator.comparingInt(ProcessState::arrival))
-            .orElse(null)
-        );
-
-      if (currentState != null && currentState.arrival() > time) {
-        time = currentState.arrival();
+    for (int row = 0; row < n; row++) {
+      // Jump over an idle gap to the next arrival
+      if (ready.isEmpty()) {
+        time = Math.max(time, table.arrivals[next]);
+      }
+      while (next < n && table.arrivals[next] <= time) {
+        ready.add(LongHeap.pack(table.bursts[next], next));
+        next++;
+      }
+
+      int i = LongHeap.index(ready.poll());
+      int start = time;
+      time += table.bursts[i];
+      table.completions[i] = time;
+
+      // Records the results for this specific process, in the order the processes run
+      result.set(row, table.ids[i], table.arrivals[i], table.bursts[i], time);
+      result.addSegment(table.ids[i], start, time);
     }
+    return result;
   }
-    int n = processes.size();
-    double avgWT = (double) totalWT / n;
-    double avgTAT = (double) totalTAT / n;
-
-    System.out.printf("\nAverage Turnaround Time: %.2f\n", avgTAT);
-    System.out.printf("Average Waiting Time: %.2f\n", avgWT);
-}
 }
@@ -1,132 +1,81 @@
 package ntnu.idata2305.algorithms;
 
-import ntnu.idata2305.CpuProcess;
-
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
+
+/**
+ * Implements the Shortest Remaining Time First (SRTF) scheduling algorithm,
+ * the preemptive version of SJF.
+ *
+ * <p>The simulation is event driven: instead of advancing the clock one time unit at a time,
+ * it jumps straight to the next event, which is either the next arrival or the completion of the
+ * running process. Arrived processes wait in a heap ordered by remaining time, with ties going to
+ * the process that arrived first, so an arrival only preempts the running process if it needs
+ * strictly less time. The Gantt chart is kept as one segment per uninterrupted run, and the
+ * results list the processes in order of arrival.
+ */
 public class SRTF implements Algorithm {
 
   @Override
-  public void run(List<CpuProcess> processes) {
+  public ScheduleResult run(ProcessTable processes) {
+    ProcessTable table = processes.sortedByArrival();
+    int n = table.size();
+    int[] remaining = table.remaining;
 
-    List<ProcessState> states = processes.stream()
-      .map(ProcessState::new)
-      .sorted(Comparator.comparingInt(ProcessState::arrival))
-      .toList();
-    List<ProcessState> working = new ArrayList<>(states);
+    // The remaining time of a waiting process does not change, so it can be part of its heap key
+    LongHeap ready = new LongHeap(n);
+    ScheduleResult result = new ScheduleResult("Shortest Remaining Time First (SRTF)", processes);
 
     int time = 0;
-    int completed = 0;
-
-    List<String> gantt = new ArrayList<>();
-
-    while (completed < working.size()) {
-      ProcessState shortest = null;
-
-      // Get process with shortest remaining time
-      for (ProcessState p : working) {
-        if (p.arrival() <= time && p.remainingTime > 0) {
-
-          if (shortest == null ||
-            p.remainingTime < shortest.remainingTime) {
-            shortest = p;
-          }
+    int next = 0;
+    int running = -1;
+    int runStart = 0;
+
+    while (running >= 0 || !ready.isEmpty() || next < n) {
+      if (running < 0) {
+        // The CPU is free: jump over an idle gap, then start the shortest process
+        if (ready.isEmpty()) {
+          time = Math.max(time, table.arrivals[next]);
         }
-      }
-
-      // Skip if no process with a shortest time is found
-      if (shortest == null) {
-        time++;
+        while (next < n && table.arrivals[next] <= time) {
+          ready.add(LongHeap.pack(remaining[next], next));
+          next++;
+        }
+        running = LongHeap.index(ready.poll());
+        runStart = time;
         continue;
       }
-      gantt.add(shortest.id());
-      shortest.remainingTime--;
-
-      // Calculations for a completed process
-      if (shortest.remainingTime == 0) {
-        completed++;
-
-        shortest.completionTime = time + 1;
-        shortest.turnaroundTime =
-          shortest.completionTime - shortest.arrival();
-        shortest.waitingTime =
-          shortest.turnaroundTime - shortest.burst();
-      }
-      time++;
-    }
-
-    printGantt(gantt);
-    printResults(states);
-  }
-
-  private void printResults(List<ProcessState> processes) {
-
-    System.out.println("\nProcess ID | Arrival | Burst | CT | TAT | WT");
-
-    double totalTAT = 0;
-    double totalWT = 0;
-
-    for (ProcessState p : processes) {
 
-      System.out.printf(
-        "%-10s | %-7d | %-5d | %-2d | %-3d | %-3d%n",
-        p.id(),
-        p.arrival(),
-        p.burst(),
-        p.completionTime,
-        p.turnaroundTime,
-        p.waitingTime);
-
-      totalTAT += p.turnaroundTime;
-      totalWT += p.waitingTime;
-    }
-
-    System.out.printf("\nAverage Turnaround Time: %.2f\n",
-      totalTAT / processes.size());
-
-    System.out.printf("Average Waiting Time: %.2f\n",
-      totalWT / processes.size());
-  }
-
-  private void printGantt(List<String> gantt) {
-
-    System.out.println("\nGantt Chart:");
-
-    if (gantt.isEmpty()) return;
-
-    List<String> segments = new ArrayList<>();
-    List<Integer> times = new ArrayList<>();
-
-    times.add(0);
-
-    String prev = gantt.getFirst();
-    segments.add(prev);
-
-    for (int i = 1; i < gantt.size(); i++) {
-      String current = gantt.get(i);
-
-      if (!current.equals(prev)) {
-        segments.add(current);
-        times.add(i);
-        prev = current;
+      int completion = time + remaining[running];
+      if (next < n && table.arrivals[next] < completion) {
+        // Arrival event: run until then and let the newcomers compete with what is left
+        int arrival = table.arrivals[next];
+        remaining[running] -= arrival - time;
+        time = arrival;
+        while (next < n && table.arrivals[next] == time) {
+          ready.add(LongHeap.pack(remaining[next], next));
+          next++;
+        }
+        long current = LongHeap.pack(remaining[running], running);
+        if (ready.peek() < current) {
+          result.addSegment(table.ids[running], runStart, time);
+          ready.add(current);
+          running = LongHeap.index(ready.poll());
+          runStart = time;
+        }
+      } else {
+        // Completion event
+        time = completion;
+        remaining[running] = 0;
+        table.completions[running] = time;
+        result.addSegment(table.ids[running], runStart, time);
+        running = -1;
       }
     }
 
-    times.add(gantt.size());
-
-    // Process row
-    for (String p : segments) {
-      System.out.print("| " + p + " ");
-    }
-    System.out.println("|");
-
-    // Time row
-    for (Integer t : times) {
-      System.out.printf("%-5d", t);
+    for (int i = 0; i < n; i++) {
+      result.set(i, table.ids[i], table.arrivals[i], table.bursts[i], table.completions[i]);
     }
-
-    System.out.println();
+    return result;
   }
-}
\ No newline at end of file
+}
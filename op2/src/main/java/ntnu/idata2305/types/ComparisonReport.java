@@ -0,0 +1,85 @@
+package ntnu.idata2305.types;
+
+import java.util.Arrays;
+
+/**
+ * The outcome of running several scheduling algorithms on the same set of workloads.
+ * For every algorithm it holds the average waiting and turnaround time of each workload,
+ * indexed {@code [algorithm][workload]}, and summarises them across workloads.
+ *
+ * @param algorithmNames         the names of the algorithms
+ * @param averageWaitingTimes    the average waiting time per algorithm and workload
+ * @param averageTurnaroundTimes the average turnaround time per algorithm and workload
+ * @param processCount           the total number of processes over all workloads
+ * @param elapsedMillis          the wall-clock time of the whole comparison
+ * @param parallelism            the number of worker threads
+ */
+public record ComparisonReport(String[] algorithmNames, double[][] averageWaitingTimes,
+                               double[][] averageTurnaroundTimes, long processCount,
+                               long elapsedMillis, int parallelism) {
+
+  /**
+   * The spread of one metric of one algorithm across workloads.
+   *
+   * @param mean the mean over all workloads
+   * @param p50  the median
+   * @param p90  the 90th percentile
+   * @param p99  the 99th percentile
+   * @param max  the largest value
+   */
+  public record Statistics(double mean, double p50, double p90, double p99, double max) {
+
+    /**
+     * Summarises a set of values.
+     *
+     * @param values the values, which are not changed
+     * @return the statistics, all 0 if there are no values
+     */
+    public static Statistics of(double[] values) {
+      if (values.length == 0) {
+        return new Statistics(0, 0, 0, 0, 0);
+      }
+      double[] sorted = values.clone();
+      Arrays.sort(sorted);
+      double total = 0;
+      for (double value : sorted) {
+        total += value;
+      }
+      return new Statistics(total / sorted.length, percentile(sorted, 50), percentile(sorted, 90),
+        percentile(sorted, 99), sorted[sorted.length - 1]);
+    }
+
+    // Nearest-rank percentile of sorted values
+    private static double percentile(double[] sorted, double percentile) {
+      int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+      return sorted[Math.max(0, rank - 1)];
+    }
+  }
+
+  /**
+   * Returns the number of workloads.
+   */
+  public int workloadCount() {
+    return algorithmNames.length == 0 ? 0 : averageWaitingTimes[0].length;
+  }
+
+  /**
+   * Returns the spread of the average waiting time of one algorithm.
+   *
+   * @param algorithm the index of the algorithm
+   * @return the statistics
+   */
+  public Statistics waitingTime(int algorithm) {
+    return Statistics.of(averageWaitingTimes[algorithm]);
+  }
+
+  /**
+   * Returns the spread of the average turnaround time of one algorithm.
+   *
+   * @param algorithm the index of the algorithm
+   * @return the statistics
+   */
+  public Statistics turnaroundTime(int algorithm) {
+    return Statistics.of(averageTurnaroundTimes[algorithm]);
+  }
+}
@@ -0,0 +1,194 @@
+package ntnu.idata2305.types;
+
+import ntnu.idata2305.CpuProcess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact table of CPU processes, stored as parallel primitive arrays with one row per process.
+ *
+ * <p>Besides the id, arrival, burst and priority of every process, the table has room for the remaining and
+ * completion times a scheduler works with, so a scheduler runs over a few contiguous {@code int[]}
+ * arrays instead of one object per process. The id of a process is its position in the input;
+ * names are kept once per table, or derived from the id for generated workloads.
+ *
+ * <p>Schedulers never change the table they are given. They work on a copy from
+ * {@link #sortedByArrival()}, so one table can be scheduled by several algorithms at once.
+ */
+public final class ProcessTable {
+  public final int[] ids;
+  public final int[] arrivals;
+  public final int[] bursts;
+  public final int[] priorities;
+  public final int[] remaining;
+  public final int[] completions;
+
+  private final String[] names;
+  private int size;
+
+  /**
+   * Constructs an empty table for the given number of processes, named P1, P2 and so on.
+   *
+   * @param capacity the number of processes the table can hold
+   */
+  public ProcessTable(int capacity) {
+    this(capacity, null);
+  }
+
+  private ProcessTable(int capacity, String[] names) {
+    this.ids = new int[capacity];
+    this.arrivals = new int[capacity];
+    this.bursts = new int[capacity];
+    this.priorities = new int[capacity];
+    this.remaining = new int[capacity];
+    this.completions = new int[capacity];
+    this.names = names;
+  }
+
+  /**
+   * Builds a table from a list of processes, in list order.
+   *
+   * @param processes the processes
+   * @return the table
+   */
+  public static ProcessTable of(List<CpuProcess> processes) {
+    String[] names = new String[processes.size()];
+    ProcessTable table = new ProcessTable(processes.size(), names);
+    for (CpuProcess p : processes) {
+      names[table.add(p.arrivalTime(), p.burstTime(), p.priority())] = p.processId();
+    }
+    return table;
+  }
+
+  /**
+   * Reads a workload file with one process per line, written as {@code id,arrival,burst} or
+   * {@code id,arrival,burst,priority}, for example {@code P1,0,8}. Blank lines and lines starting with {@code #} are skipped.
+   *
+   * @param path the file to read
+   * @return the table, in file order
+   * @throws IOException if the file cannot be read or a line is not a process
+   */
+  public static ProcessTable read(Path path) throws IOException {
+    List<CpuProcess> processes = new ArrayList<>();
+    int lineNumber = 0;
+    for (String line : Files.readAllLines(path)) {
+      lineNumber++;
+      line = line.strip();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\\s*,\\s*");
+      try {
+        if (fields.length != 3 && fields.length != 4) {
+          throw new NumberFormatException("expected id,arrival,burst[,priority]");
+        }
+        int priority = fields.length == 4 ? Integer.parseInt(fields[3]) : 0;
+        processes.add(new CpuProcess(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), priority));
+      } catch (NumberFormatException e) {
+        throw new IOException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+      }
+    }
+    return of(processes);
+  }
+
+  /**
+   * Appends a process with the highest priority. Its id is the row it is stored in.
+   *
+   * @param arrival the arrival time
+   * @param burst   the burst time
+   * @return the id of the process
+   */
+  public int add(int arrival, int burst) {
+    return add(arrival, burst, 0);
+  }
+
+  /**
+   * Appends a process. Its id is the row it is stored in.
+   *
+   * @param arrival  the arrival time
+   * @param burst    the burst time
+   * @param priority the priority, where 0 is the most important
+   * @return the id of the process
+   * @throws IllegalArgumentException if the priority is negative
+   */
+  public int add(int arrival, int burst, int priority) {
+    if (priority < 0) {
+      throw new IllegalArgumentException("Priority must not be negative: " + priority);
+    }
+    if (size == ids.length) {
+      throw new IllegalStateException("Process table is full: " + size);
+    }
+    int row = size++;
+    ids[row] = row;
+    arrivals[row] = arrival;
+    bursts[row] = burst;
+    priorities[row] = priority;
+    remaining[row] = burst;
+    return row;
+  }
+
+  /**
+   * Returns the number of processes.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the name of the process with the given id, e.g. "P3".
+   *
+   * @param id the id of the process
+   * @return the name
+   */
+  public String name(int id) {
+    return names != null ? names[id] : "P" + (id + 1);
+  }
+
+  /**
+   * Returns a copy of the table ordered by arrival, keeping the input order for equal arrivals,
+   * with every remaining time reset to the burst and no completion times.
+   *
+   * @return the sorted copy
+   */
+  public ProcessTable sortedByArrival() {
+    ProcessTable sorted = new ProcessTable(size, names);
+    sorted.size = size;
+
+    if (isSortedByArrival()) {
+      System.arraycopy(ids, 0, sorted.ids, 0, size);
+      System.arraycopy(arrivals, 0, sorted.arrivals, 0, size);
+      System.arraycopy(bursts, 0, sorted.bursts, 0, size);
+      System.arraycopy(priorities, 0, sorted.priorities, 0, size);
+    } else {
+      // Sort packed (arrival, row) pairs, which is stable and needs no comparator
+      long[] order = new long[size];
+      for (int row = 0; row < size; row++) {
+        order[row] = (long) arrivals[row] << 32 | row;
+      }
+      Arrays.sort(order);
+      for (int i = 0; i < size; i++) {
+        int row = (int) order[i];
+        sorted.ids[i] = ids[row];
+        sorted.arrivals[i] = arrivals[row];
+        sorted.bursts[i] = bursts[row];
+        sorted.priorities[i] = priorities[row];
+      }
+    }
+    System.arraycopy(sorted.bursts, 0, sorted.remaining, 0, size);
+    return sorted;
+  }
+
+  private boolean isSortedByArrival() {
+    for (int row = 1; row < size; row++) {
+      if (arrivals[row] < arrivals[row - 1]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
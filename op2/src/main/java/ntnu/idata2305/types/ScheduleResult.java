@@ -0,0 +1,175 @@
+package ntnu.idata2305.types;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A data class used to store the results of a CPU scheduling algorithm simulation.
+ * It holds the completion, turnaround and waiting time of every process in primitive arrays,
+ * one row per process in the order the algorithm reports them, and the Gantt chart of the schedule.
+ * The Gantt chart is kept the same way, as growable parallel arrays with one entry per uninterrupted run,
+ * so a result holds no object per process or per run. Processes are identified by their id in the {@link ProcessTable} that was scheduled.
+ * Printing is left to the {@link ntnu.idata2305.ScheduleRenderer}.
+ */
+public class ScheduleResult {
+  public final String algorithmName;
+  public final int[] processIds;
+  public final int[] arrivalTimes;
+  public final int[] burstTimes;
+  public final int[] completionTimes;
+  public final int[] turnaroundTimes;
+  public final int[] waitingTimes;
+
+  private final ProcessTable processes;
+  private int[] segmentIds;
+  private int[] segmentStarts;
+  private int[] segmentEnds;
+  private int segmentCount;
+
+  /**
+   * Constructs a result with room for every process of a table.
+   *
+   * @param algorithmName the name of the algorithm, e.g. "Shortest Job First (SJF)"
+   * @param processes     the processes that are scheduled
+   */
+  public ScheduleResult(String algorithmName, ProcessTable processes) {
+    int size = processes.size();
+    this.algorithmName = algorithmName;
+    this.processes = processes;
+    this.processIds = new int[size];
+    this.arrivalTimes = new int[size];
+    this.burstTimes = new int[size];
+    this.completionTimes = new int[size];
+    this.turnaroundTimes = new int[size];
+    this.waitingTimes = new int[size];
+    // Every process runs at least once, so the chart has at least one run per process
+    int capacity = Math.max(size, 1);
+    this.segmentIds = new int[capacity];
+    this.segmentStarts = new int[capacity];
+    this.segmentEnds = new int[capacity];
+  }
+
+  /**
+   * Fills in one row from the completion time of a process.
+   *
+   * @param row            the row to fill
+   * @param processId      the id of the process
+   * @param arrivalTime    the arrival time of the process
+   * @param burstTime      the burst time of the process
+   * @param completionTime the time the process completed
+   */
+  public void set(int row, int processId, int arrivalTime, int burstTime, int completionTime) {
+    processIds[row] = processId;
+    arrivalTimes[row] = arrivalTime;
+    burstTimes[row] = burstTime;
+    completionTimes[row] = completionTime;
+    turnaroundTimes[row] = completionTime - arrivalTime; // TAT = CT - Arrival Time
+    waitingTimes[row] = turnaroundTimes[row] - burstTime; // WT = TAT - Burst Time
+  }
+
+  /**
+   * Adds a run of a process to the Gantt chart. Runs of zero length are left out.
+   *
+   * @param processId the id of the process that ran
+   * @param start     the time the run started
+   * @param end       the time the run ended
+   */
+  public void addSegment(int processId, int start, int end) {
+    if (end <= start) {
+      return;
+    }
+    if (segmentCount == segmentIds.length) {
+      int capacity = segmentCount * 2;
+      segmentIds = Arrays.copyOf(segmentIds, capacity);
+      segmentStarts = Arrays.copyOf(segmentStarts, capacity);
+      segmentEnds = Arrays.copyOf(segmentEnds, capacity);
+    }
+    segmentIds[segmentCount] = processId;
+    segmentStarts[segmentCount] = start;
+    segmentEnds[segmentCount] = end;
+    segmentCount++;
+  }
+
+  /**
+   * Returns the number of runs in the Gantt chart, which are in order of time.
+   */
+  public int segmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * Returns the id of the process of a run in the Gantt chart.
+   *
+   * @param segment the index of the run, below {@link #segmentCount()}
+   * @return the process id, see {@link #processName}
+   */
+  public int segmentProcessId(int segment) {
+    return segmentIds[checkSegment(segment)];
+  }
+
+  /**
+   * Returns the time a run in the Gantt chart started.
+   *
+   * @param segment the index of the run, below {@link #segmentCount()}
+   * @return the start time
+   */
+  public int segmentStart(int segment) {
+    return segmentStarts[checkSegment(segment)];
+  }
+
+  /**
+   * Returns the time a run in the Gantt chart ended, because the process completed or was preempted.
+   *
+   * @param segment the index of the run, below {@link #segmentCount()}
+   * @return the end time
+   */
+  public int segmentEnd(int segment) {
+    return segmentEnds[checkSegment(segment)];
+  }
+
+  private int checkSegment(int segment) {
+    return Objects.checkIndex(segment, segmentCount);
+  }
+
+  /**
+   * Returns the name of a process, e.g. "P3".
+   *
+   * @param processId the id of the process
+   * @return the name
+   */
+  public String processName(int processId) {
+    return processes.name(processId);
+  }
+
+  /**
+   * Returns the number of processes.
+   */
+  public int size() {
+    return processIds.length;
+  }
+
+  /**
+   * Returns the average turnaround time, or 0 if there are no processes.
+   */
+  public double averageTurnaroundTime() {
+    return average(turnaroundTimes);
+  }
+
+  /**
+   * Returns the average waiting time, or 0 if there are no processes.
+   */
+  public double averageWaitingTime() {
+    return average(waitingTimes);
+  }
+
+  private static double average(int[] values) {
+    if (values.length == 0) {
+      return 0;
+    }
+    long total = 0;
+    for (int value : values) {
+      total += value;
+    }
+    return (double) total / values.length;
+  }
+}
@@ -0,0 +1,30 @@
+package ntnu.idata2305.workload;
+
+/**
+ * How the processes of a generated workload arrive over time.
+ */
+public enum ArrivalPattern {
+  /**
+   * A Poisson process: the gaps between arrivals are exponentially distributed around the mean,
+   * so arrivals are independent of each other.
+   */
+  POISSON,
+
+  /**
+   * Arrivals in clusters: a geometric number of processes, {@value WorkloadGenerator#MEAN_CLUSTER_SIZE}
+   * on average, arrive close together, followed by a quiet period. The long-run arrival rate is the same
+   * as for {@link #POISSON}, but the ready queue sees sudden spikes.
+   */
+  BURSTY;
+
+  /**
+   * Returns the pattern with the given name, ignoring case.
+   *
+   * @param name the name, e.g. "poisson"
+   * @return the pattern
+   * @throws IllegalArgumentException if no pattern has that name
+   */
+  public static ArrivalPattern fromString(String name) {
+    return valueOf(name.trim().toUpperCase());
+  }
+}
@@ -0,0 +1,35 @@
+package ntnu.idata2305.workload;
+
+/**
+ * How the CPU burst times of a generated workload are distributed. Every distribution has the
+ * configured mean; they differ in how the work is spread over the processes.
+ */
+public enum BurstDistribution {
+  /**
+   * Exponentially distributed bursts: mostly short, with a few several times the mean.
+   */
+  EXPONENTIAL,
+
+  /**
+   * A mix of interactive and batch processes: 80% of the bursts are short, a quarter of the mean on
+   * average, and 20% are long, four times the mean on average.
+   */
+  BIMODAL,
+
+  /**
+   * Pareto distributed bursts with shape 1.5: most processes are short, but a small fraction are so long
+   * that they make up much of the total work, which is what makes SJF and SRTF starve them.
+   */
+  HEAVY_TAILED;
+
+  /**
+   * Returns the distribution with the given name, ignoring case and accepting "heavy-tailed".
+   *
+   * @param name the name, e.g. "bimodal"
+   * @return the distribution
+   * @throws IllegalArgumentException if no distribution has that name
+   */
+  public static BurstDistribution fromString(String name) {
+    return valueOf(name.trim().toUpperCase().replace('-', '_'));
+  }
+}
@@ -0,0 +1,257 @@
+package ntnu.idata2305.workload;
+
+import ntnu.idata2305.types.ProcessTable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic CPU scheduling workloads of any size, from a handful of processes up to tens of millions.
+ *
+ * <p>A workload is fully determined by its seed and settings, so the same generator always produces the same
+ * processes. Processes are produced one at a time, in order of arrival, and handed to a {@link ProcessSink}:
+ * {@link #table} fills a {@link ProcessTable} directly and {@link #write} streams a CSV file that
+ * {@link ProcessTable#read} understands. Neither keeps a {@code CpuProcess} per process in memory.
+ *
+ * <p>Times are whole time units. Every burst is at least 1, and bursts are capped at
+ * {@value #MAX_BURST_FACTOR} times the mean so that a heavy tail cannot overflow the completion times.
+ */
+public final class WorkloadGenerator {
+  /**
+   * The average number of processes in a cluster of {@link ArrivalPattern#BURSTY} arrivals.
+   */
+  public static final int MEAN_CLUSTER_SIZE = 10;
+
+  /**
+   * The largest burst, as a multiple of the mean burst.
+   */
+  public static final int MAX_BURST_FACTOR = 10_000;
+
+  /**
+   * The gap between arrivals inside a cluster, as a fraction of the mean gap.
+   */
+  private static final double CLUSTER_GAP = 0.1;
+
+  private static final double PARETO_SHAPE = 1.5;
+
+  private final long seed;
+  private final ArrivalPattern arrivals;
+  private final double meanInterarrival;
+  private final BurstDistribution bursts;
+  private final double meanBurst;
+
+  /**
+   * Receives the generated processes, in order of arrival.
+   */
+  @FunctionalInterface
+  public interface ProcessSink {
+    /**
+     * Takes one process.
+     *
+     * @param arrival the arrival time
+     * @param burst   the burst time
+     * @throws IOException if the process cannot be stored
+     */
+    void accept(int arrival, int burst) throws IOException;
+  }
+
+  /**
+   * Constructs a generator.
+   *
+   * @param seed             the seed of the random numbers
+   * @param arrivals         how the processes arrive
+   * @param meanInterarrival the average time between two arrivals; 0 makes every process arrive at time 0
+   * @param bursts           how the burst times are distributed
+   * @param meanBurst        the average burst time, at least 1
+   */
+  public WorkloadGenerator(long seed, ArrivalPattern arrivals, double meanInterarrival,
+                           BurstDistribution bursts, double meanBurst) {
+    if (meanInterarrival < 0) {
+      throw new IllegalArgumentException("Mean interarrival time must not be negative: " + meanInterarrival);
+    }
+    if (meanBurst < 1) {
+      throw new IllegalArgumentException("Mean burst time must be at least 1: " + meanBurst);
+    }
+    this.seed = seed;
+    this.arrivals = arrivals;
+    this.meanInterarrival = meanInterarrival;
+    this.bursts = bursts;
+    this.meanBurst = meanBurst;
+  }
+
+  /**
+   * Returns a generator with the same settings and another seed.
+   *
+   * @param seed the new seed
+   * @return the generator
+   */
+  public WorkloadGenerator withSeed(long seed) {
+    return new WorkloadGenerator(seed, arrivals, meanInterarrival, bursts, meanBurst);
+  }
+
+  /**
+   * Returns the seed.
+   */
+  public long seed() {
+    return seed;
+  }
+
+  /**
+   * Generates a workload and hands each process to the sink.
+   *
+   * @param count the number of processes
+   * @param sink  where the processes go
+   * @throws IOException              if the sink fails
+   * @throws IllegalArgumentException if the workload would not fit in {@code int} times
+   */
+  public void generate(int count, ProcessSink sink) throws IOException {
+    if (count < 0) {
+      throw new IllegalArgumentException("Process count must not be negative: " + count);
+    }
+    SplittableRandom random = new SplittableRandom(seed);
+    int maxBurst = (int) Math.min(Integer.MAX_VALUE, meanBurst * MAX_BURST_FACTOR);
+    double time = 0;
+    long totalBurst = 0;
+    int clusterLeft = 0;
+
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        if (arrivals == ArrivalPattern.POISSON) {
+          time += exponential(random, meanInterarrival);
+        } else if (clusterLeft > 0) {
+          time += exponential(random, meanInterarrival * CLUSTER_GAP);
+        } else {
+          // The quiet period makes up for the short gaps, so a whole cluster takes as long as
+          // MEAN_CLUSTER_SIZE Poisson arrivals would
+          time += exponential(random, meanInterarrival * (MEAN_CLUSTER_SIZE - (MEAN_CLUSTER_SIZE - 1) * CLUSTER_GAP));
+        }
+      }
+      if (arrivals == ArrivalPattern.BURSTY && clusterLeft-- <= 0) {
+        clusterLeft = geometric(random, MEAN_CLUSTER_SIZE) - 1;
+      }
+
+      int burst = Math.clamp(Math.round(burst(random)), 1, maxBurst);
+      totalBurst += burst;
+      if (time + totalBurst > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Workload of " + count + " processes does not fit in int times");
+      }
+      sink.accept((int) time, burst);
+    }
+  }
+
+  /**
+   * Generates a workload into a new process table, with processes named P1, P2 and so on.
+   *
+   * @param count the number of processes
+   * @return the table, in order of arrival
+   */
+  public ProcessTable table(int count) {
+    ProcessTable table = new ProcessTable(count);
+    try {
+      generate(count, table::add);
+    } catch (IOException e) {
+      // Adding to a table does not do I/O
+      throw new IllegalStateException(e);
+    }
+    return table;
+  }
+
+  /**
+   * Generates a workload into a CSV file of {@code id,arrival,burst} lines, one process at a time.
+   *
+   * @param count the number of processes
+   * @param path  the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void write(int count, Path path) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+      writer.write("# " + this + ", " + count + " processes");
+      writer.newLine();
+      int[] next = {0};
+      generate(count, (arrival, burst) -> {
+        writer.write("P" + ++next[0] + "," + arrival + "," + burst);
+        writer.newLine();
+      });
+    }
+  }
+
+  private double burst(SplittableRandom random) {
+    return switch (bursts) {
+      case EXPONENTIAL -> exponential(random, meanBurst);
+      case BIMODAL -> random.nextDouble() < 0.8
+        ? exponential(random, meanBurst / 4)
+        : exponential(random, meanBurst * 4);
+      case HEAVY_TAILED -> {
+        // A Pareto distribution with this scale has the configured mean
+        double scale = meanBurst * (PARETO_SHAPE - 1) / PARETO_SHAPE;
+        yield scale / Math.pow(1 - random.nextDouble(), 1 / PARETO_SHAPE);
+      }
+    };
+  }
+
+  private static double exponential(SplittableRandom random, double mean) {
+    return -mean * Math.log(1 - random.nextDouble());
+  }
+
+  /**
+   * Returns a geometrically distributed number of at least 1 with the given mean.
+   */
+  private static int geometric(SplittableRandom random, double mean) {
+    double p = 1 / mean;
+    return 1 + (int) Math.min(Integer.MAX_VALUE - 1, Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - p)));
+  }
+
+  @Override
+  public String toString() {
+    return String.format("seed=%d, arrivals=%s, mean interarrival=%s, bursts=%s, mean burst=%s",
+      seed, arrivals.name().toLowerCase(), meanInterarrival, bursts.name().toLowerCase(), meanBurst);
+  }
+
+  /**
+   * Writes a generated workload to a CSV file.
+   *
+   * <p>Usage: {@code WorkloadGenerator <count> <file> [poisson|bursty] [exponential|bimodal|heavy-tailed]
+   * [meanInterarrival] [meanBurst] [seed]}
+   *
+   * @param args the command-line arguments
+   */
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.out.println("Usage: WorkloadGenerator <count> <file> [poisson|bursty]"
+        + " [exponential|bimodal|heavy-tailed] [meanInterarrival] [meanBurst] [seed]");
+      return;
+    }
+    try {
+      WorkloadGenerator generator = fromArgs(args, 2);
+      int count = Integer.parseInt(args[0]);
+      long start = System.nanoTime();
+      generator.write(count, Path.of(args[1]));
+      System.out.printf("Wrote %d processes to %s in %d ms (%s)%n",
+        count, args[1], (System.nanoTime() - start) / 1_000_000, generator);
+    } catch (IllegalArgumentException | IOException e) {
+      System.out.println("Cannot generate workload: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Builds a generator from optional command-line arguments: arrival pattern, burst distribution,
+   * mean interarrival time, mean burst time and seed, in that order. Missing arguments default to
+   * Poisson arrivals every 5 time units, exponential bursts of 4 and seed 42.
+   *
+   * @param args  the arguments
+   * @param first the index of the arrival pattern
+   * @return the generator
+   * @throws IllegalArgumentException if an argument is invalid
+   */
+  public static WorkloadGenerator fromArgs(String[] args, int first) {
+    return new WorkloadGenerator(
+      args.length > first + 4 ? Long.parseLong(args[first + 4]) : 42,
+      args.length > first ? ArrivalPattern.fromString(args[first]) : ArrivalPattern.POISSON,
+      args.length > first + 2 ? Double.parseDouble(args[first + 2]) : 5,
+      args.length > first + 1 ? BurstDistribution.fromString(args[first + 1]) : BurstDistribution.EXPONENTIAL,
+      args.length > first + 3 ? Double.parseDouble(args[first + 3]) : 4);
+  }
+}
@@ -0,0 +1,143 @@
+package ntnu.idata2305.algorithms;
+
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.workload.ArrivalPattern;
+import ntnu.idata2305.workload.BurstDistribution;
+import ntnu.idata2305.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static ntnu.idata2305.algorithms.RRTest.completions;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Checks the event driven {@link MLFQ} against a tick based reference on seeded workloads from the
+ * {@link WorkloadGenerator}, with and without boosts, and on a small workload where demotion decides the order.
+ */
+class MLFQTest {
+  private static final int PROCESSES = 200;
+  private static final int SEEDS = 5;
+  private static final int[][] QUANTA = {{1}, {2, 4}, {1, 3, 9}};
+  private static final int[] BOOST_INTERVALS = {0, 5, 17};
+
+  @Test
+  void matchesTickBasedReference() {
+    for (ArrivalPattern arrivals : ArrivalPattern.values()) {
+      for (BurstDistribution bursts : BurstDistribution.values()) {
+        WorkloadGenerator generator = new WorkloadGenerator(0, arrivals, 3, bursts, 4);
+        for (long seed = 1; seed <= SEEDS; seed++) {
+          ProcessTable table = generator.withSeed(seed).table(PROCESSES);
+          for (int[] quanta : QUANTA) {
+            for (int boostInterval : BOOST_INTERVALS) {
+              assertArrayEquals(referenceCompletions(table, quanta, boostInterval),
+                completions(new MLFQ(quanta, boostInterval).run(table)),
+                "quanta=" + Arrays.toString(quanta) + ", boostInterval=" + boostInterval + ", "
+                  + generator.withSeed(seed));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void usedUpQuantumMovesProcessDown() {
+    ProcessTable table = new ProcessTable(2);
+    table.add(0, 6);
+    table.add(0, 3);
+    // P1 0-2 and P2 2-4 at the top, then one level down P1 finishes within its quantum of 4 at 8, and P2 at 9.
+    // Without demotion, Round Robin with quantum 2 would finish P2 at 7 and P1 at 9
+    int[] quanta = {2, 4};
+    assertArrayEquals(new int[] {8, 9}, completions(new MLFQ(quanta, 0).run(table)));
+    assertArrayEquals(referenceCompletions(table, quanta, 0), completions(new MLFQ(quanta, 0).run(table)));
+  }
+
+  /**
+   * Tick based MLFQ. At the start of every time unit, the processes arriving then join the top queue and,
+   * at a multiple of the boost interval, every process moves back to the top. Then a running process that
+   * used up its quantum moves down a level, and yields to anyone waiting at its level or above; one that
+   * did not yields only to a higher level. The CPU runs the head of the highest non-empty queue.
+   *
+   * @return the completion time of every process, indexed by id
+   */
+  private static int[] referenceCompletions(ProcessTable table, int[] roundRobinQuanta, int boostInterval) {
+    int levels = roundRobinQuanta.length + 1;
+    int[] quanta = Arrays.copyOf(roundRobinQuanta, levels);
+    quanta[levels - 1] = Integer.MAX_VALUE;
+
+    int n = table.size();
+    int[] order = IntStream.range(0, n).boxed()
+      .sorted(Comparator.comparingInt(i -> table.arrivals[i]))
+      .mapToInt(Integer::intValue)
+      .toArray();
+    int[] remaining = Arrays.copyOf(table.bursts, n);
+    int[] completions = new int[n];
+    int[] level = new int[n];
+    int[] used = new int[n];
+    List<ArrayDeque<Integer>> queues = IntStream.range(0, levels).mapToObj(l -> new ArrayDeque<Integer>()).toList();
+
+    int time = 0;
+    int next = 0;
+    int completed = 0;
+    int running = -1;
+    while (completed < n) {
+      while (next < n && table.arrivals[order[next]] == time) {
+        queues.get(0).add(order[next++]);
+      }
+      if (boostInterval > 0 && time > 0 && time % boostInterval == 0) {
+        for (int l = 1; l < levels; l++) {
+          while (!queues.get(l).isEmpty()) {
+            int i = queues.get(l).poll();
+            level[i] = 0;
+            used[i] = 0;
+            queues.get(0).add(i);
+          }
+        }
+        if (running >= 0) {
+          level[running] = 0;
+          used[running] = 0;
+        }
+      }
+      if (running >= 0) {
+        int yieldTo;
+        if (used[running] == quanta[level[running]]) {
+          level[running] = Math.min(level[running] + 1, levels - 1);
+          used[running] = 0;
+          yieldTo = level[running] + 1;
+        } else {
+          yieldTo = level[running];
+        }
+        for (int l = 0; l < yieldTo; l++) {
+          if (!queues.get(l).isEmpty()) {
+            queues.get(level[running]).add(running);
+            running = -1;
+            break;
+          }
+        }
+      }
+      if (running < 0) {
+        for (ArrayDeque<Integer> queue : queues) {
+          if (!queue.isEmpty()) {
+            running = queue.poll();
+            break;
+          }
+        }
+      }
+      time++;
+      if (running >= 0) {
+        used[running]++;
+        if (--remaining[running] == 0) {
+          completions[table.ids[running]] = time;
+          completed++;
+          running = -1;
+        }
+      }
+    }
+    return completions;
+  }
+}
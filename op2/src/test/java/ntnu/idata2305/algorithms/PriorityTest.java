@@ -0,0 +1,122 @@
+package ntnu.idata2305.algorithms;
+
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.workload.ArrivalPattern;
+import ntnu.idata2305.workload.BurstDistribution;
+import ntnu.idata2305.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static ntnu.idata2305.algorithms.RRTest.completions;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the event driven {@link Priority} against a tick based reference that recomputes every effective
+ * priority each time unit, on seeded workloads from the {@link WorkloadGenerator} with random priorities,
+ * and checks that aging lets a process through a steady stream of more important ones.
+ */
+class PriorityTest {
+  private static final int PROCESSES = 200;
+  private static final int SEEDS = 5;
+  private static final int PRIORITIES = 5;
+  private static final int[] AGING_INTERVALS = {0, 1, 3, 10};
+
+  @Test
+  void matchesTickBasedReference() {
+    for (ArrivalPattern arrivals : ArrivalPattern.values()) {
+      for (BurstDistribution bursts : BurstDistribution.values()) {
+        WorkloadGenerator generator = new WorkloadGenerator(0, arrivals, 3, bursts, 4);
+        for (long seed = 1; seed <= SEEDS; seed++) {
+          ProcessTable table = withPriorities(generator.withSeed(seed).table(PROCESSES), seed);
+          for (int agingInterval : AGING_INTERVALS) {
+            assertArrayEquals(referenceCompletions(table, agingInterval),
+              completions(new Priority(agingInterval).run(table)),
+              "agingInterval=" + agingInterval + ", " + generator.withSeed(seed));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void agingOvertakesSteadyStreamOfImportantArrivals() {
+    // P1 is unimportant; from time 1 an important process arrives every 2 time units and runs for 2
+    int stream = 50;
+    ProcessTable table = new ProcessTable(stream + 1);
+    table.add(0, 20, 3);
+    for (int k = 0; k < stream; k++) {
+      table.add(1 + 2 * k, 2, 0);
+    }
+
+    int[] plain = completions(new Priority(0).run(table));
+    assertEquals(Arrays.stream(plain).max().getAsInt(), plain[0], "Without aging P1 waits for the whole stream");
+    assertArrayEquals(referenceCompletions(table, 0), plain);
+
+    // With aging every 3, P1 has key 9 and wins from the stream process arriving at 9 on: 9 + 19 = 28
+    int[] aged = completions(new Priority(3).run(table));
+    assertEquals(28, aged[0]);
+    assertTrue(aged[0] < aged[stream], "With aging P1 finishes before the stream does");
+    assertArrayEquals(referenceCompletions(table, 3), aged);
+  }
+
+  /**
+   * Copies a table, giving each process a random priority.
+   */
+  private static ProcessTable withPriorities(ProcessTable table, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    ProcessTable copy = new ProcessTable(table.size());
+    for (int i = 0; i < table.size(); i++) {
+      copy.add(table.arrivals[i], table.bursts[i], random.nextInt(PRIORITIES));
+    }
+    return copy;
+  }
+
+  /**
+   * Tick based priority scheduling. Every time unit runs the arrived process with the lowest effective
+   * priority {@code priority - (t - arrival) / agingInterval}, compared exactly by multiplying through with
+   * the aging interval. Ties go to the process that arrived first, then to the one listed first.
+   *
+   * @return the completion time of every process, indexed by id
+   */
+  private static int[] referenceCompletions(ProcessTable table, int agingInterval) {
+    int n = table.size();
+    int[] order = IntStream.range(0, n).boxed()
+      .sorted(Comparator.comparingInt(i -> table.arrivals[i]))
+      .mapToInt(Integer::intValue)
+      .toArray();
+    int[] remaining = Arrays.copyOf(table.bursts, n);
+    int[] completions = new int[n];
+
+    int time = 0;
+    int completed = 0;
+    while (completed < n) {
+      int best = -1;
+      long bestPriority = 0;
+      for (int i : order) {
+        if (table.arrivals[i] > time || remaining[i] == 0) {
+          continue;
+        }
+        // The effective priority times the aging interval
+        long priority = agingInterval == 0
+          ? table.priorities[i]
+          : (long) table.priorities[i] * agingInterval - (time - table.arrivals[i]);
+        if (best < 0 || priority < bestPriority) {
+          best = i;
+          bestPriority = priority;
+        }
+      }
+      time++;
+      if (best >= 0 && --remaining[best] == 0) {
+        completions[table.ids[best]] = time;
+        completed++;
+      }
+    }
+    return completions;
+  }
+}
@@ -0,0 +1,129 @@
+package ntnu.idata2305.algorithms;
+
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
+import ntnu.idata2305.workload.ArrivalPattern;
+import ntnu.idata2305.workload.BurstDistribution;
+import ntnu.idata2305.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Checks the event driven {@link RR} against a tick based reference on seeded workloads from the
+ * {@link WorkloadGenerator}, and on small workloads where an arrival meets the end of a quantum.
+ */
+class RRTest {
+  private static final int PROCESSES = 200;
+  private static final int SEEDS = 5;
+
+  @Test
+  void matchesTickBasedReference() {
+    for (int quantum = 1; quantum <= 4; quantum++) {
+      // Integer arrivals about as fast as the processes run often coincide with a quantum boundary
+      check(quantum, 2, 4);
+      // Sparse arrivals leave processes alone on the CPU and the CPU idle
+      check(quantum, 20, 4);
+    }
+  }
+
+  @Test
+  void arrivalAtQuantumEndQueuesBeforeThePreemptedProcess() {
+    ProcessTable table = new ProcessTable(2);
+    table.add(0, 5);
+    table.add(2, 2);
+    // P2 arrives as the first quantum of P1 ends, so it runs 2-4 and P1 finishes 4-7
+    assertArrayEquals(new int[] {7, 4}, completions(new RR(2).run(table)));
+    assertArrayEquals(referenceCompletions(table, 2), completions(new RR(2).run(table)));
+  }
+
+  @Test
+  void loneProcessRunsOnToTheQuantumBoundaryAfterAnArrival() {
+    ProcessTable table = new ProcessTable(2);
+    table.add(0, 10);
+    table.add(5, 1);
+    // P1 is alone until 5 and keeps the CPU to the end of its current quantum at 8, then P2 runs 8-9 and P1 9-11
+    assertArrayEquals(new int[] {11, 9}, completions(new RR(4).run(table)));
+    assertArrayEquals(referenceCompletions(table, 4), completions(new RR(4).run(table)));
+  }
+
+  private static void check(int quantum, double meanInterarrival, double meanBurst) {
+    for (ArrivalPattern arrivals : ArrivalPattern.values()) {
+      for (BurstDistribution bursts : BurstDistribution.values()) {
+        WorkloadGenerator generator = new WorkloadGenerator(0, arrivals, meanInterarrival, bursts, meanBurst);
+        for (long seed = 1; seed <= SEEDS; seed++) {
+          ProcessTable table = generator.withSeed(seed).table(PROCESSES);
+          assertArrayEquals(referenceCompletions(table, quantum), completions(new RR(quantum).run(table)),
+            "quantum=" + quantum + ", " + generator.withSeed(seed));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the completion time of every process of a result, indexed by id.
+   */
+  static int[] completions(ScheduleResult result) {
+    int[] completions = new int[result.size()];
+    for (int row = 0; row < result.size(); row++) {
+      completions[result.processIds[row]] = result.completionTimes[row];
+    }
+    return completions;
+  }
+
+  /**
+   * Tick based Round Robin. At the start of every time unit the processes arriving then join the queue;
+   * a process whose quantum is used up goes to the back of the queue behind them if anyone is waiting,
+   * and keeps the CPU with a fresh quantum otherwise.
+   *
+   * @return the completion time of every process, indexed by id
+   */
+  private static int[] referenceCompletions(ProcessTable table, int quantum) {
+    int n = table.size();
+    int[] order = IntStream.range(0, n).boxed()
+      .sorted(Comparator.comparingInt(i -> table.arrivals[i]))
+      .mapToInt(Integer::intValue)
+      .toArray();
+    int[] remaining = Arrays.copyOf(table.bursts, n);
+    int[] completions = new int[n];
+    ArrayDeque<Integer> ready = new ArrayDeque<>();
+
+    int time = 0;
+    int next = 0;
+    int completed = 0;
+    int running = -1;
+    int used = 0;
+    while (completed < n) {
+      while (next < n && table.arrivals[order[next]] == time) {
+        ready.add(order[next++]);
+      }
+      if (running >= 0 && used == quantum) {
+        if (ready.isEmpty()) {
+          used = 0;
+        } else {
+          ready.add(running);
+          running = -1;
+        }
+      }
+      if (running < 0 && !ready.isEmpty()) {
+        running = ready.poll();
+        used = 0;
+      }
+      time++;
+      if (running >= 0) {
+        used++;
+        if (--remaining[running] == 0) {
+          completions[table.ids[running]] = time;
+          completed++;
+          running = -1;
+        }
+      }
+    }
+    return completions;
+  }
+}
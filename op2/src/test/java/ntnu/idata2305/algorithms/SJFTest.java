@@ -0,0 +1,89 @@
+package ntnu.idata2305.algorithms;
+
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
+import ntnu.idata2305.workload.ArrivalPattern;
+import ntnu.idata2305.workload.BurstDistribution;
+import ntnu.idata2305.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Checks the heap based {@link SJF} against the original list based implementation, which sorts the
+ * processes by arrival and burst and picks the next one with a stream over the processes left, on seeded
+ * workloads from the {@link WorkloadGenerator}. Both the order the processes run in and their completion
+ * times have to match.
+ */
+class SJFTest {
+  private static final int PROCESSES = 300;
+  private static final int SEEDS = 5;
+
+  @Test
+  void matchesListBasedReference() {
+    // All at time 0 with short bursts: equal arrivals and many equal bursts
+    check(0, 2);
+    // Arrivals about as fast as the processes run: a ready queue with ties
+    check(3, 3);
+    // Arrivals much slower than the processes run: idle gaps
+    check(30, 3);
+  }
+
+  private static void check(double meanInterarrival, double meanBurst) {
+    for (ArrivalPattern arrivals : ArrivalPattern.values()) {
+      for (BurstDistribution bursts : BurstDistribution.values()) {
+        WorkloadGenerator generator = new WorkloadGenerator(0, arrivals, meanInterarrival, bursts, meanBurst);
+        for (long seed = 1; seed <= SEEDS; seed++) {
+          ProcessTable table = generator.withSeed(seed).table(PROCESSES);
+          ScheduleResult result = new SJF().run(table);
+
+          int[][] expected = reference(table);
+          assertArrayEquals(expected[0], result.processIds, "Run order, " + generator.withSeed(seed));
+          assertArrayEquals(expected[1], result.completionTimes, "Completion times, " + generator.withSeed(seed));
+        }
+      }
+    }
+  }
+
+  /**
+   * The original SJF: sorted by arrival, then burst, it starts with the first process and then always
+   * takes the arrived process with the shortest burst, or the earliest arrival after an idle gap.
+   * Ties go to the process first in the sorted list.
+   *
+   * @return the ids in the order they ran, and their completion times in that order
+   */
+  private static int[][] reference(ProcessTable table) {
+    int n = table.size();
+    List<Integer> working = new ArrayList<>(IntStream.range(0, n).boxed()
+      .sorted(Comparator.<Integer>comparingInt(i -> table.arrivals[i]).thenComparingInt(i -> table.bursts[i]))
+      .toList());
+    int[] order = new int[n];
+    int[] completions = new int[n];
+
+    int time = 0;
+    int row = 0;
+    Integer current = working.getFirst();
+    while (current != null) {
+      time = Math.max(time, table.arrivals[current]);
+      time += table.bursts[current];
+      order[row] = table.ids[current];
+      completions[row] = time;
+      row++;
+      working.remove(current);
+
+      int finalTime = time;
+      current = working.stream()
+        .filter(i -> table.arrivals[i] <= finalTime)
+        .min(Comparator.comparingInt(i -> table.bursts[i]))
+        .orElseGet(() -> working.stream()
+          .min(Comparator.comparingInt(i -> table.arrivals[i]))
+          .orElse(null));
+    }
+    return new int[][] {order, completions};
+  }
+}
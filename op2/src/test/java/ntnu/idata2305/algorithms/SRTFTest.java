@@ -0,0 +1,78 @@
+package ntnu.idata2305.algorithms;
+
+import ntnu.idata2305.types.ProcessTable;
+import ntnu.idata2305.types.ScheduleResult;
+import ntnu.idata2305.workload.ArrivalPattern;
+import ntnu.idata2305.workload.BurstDistribution;
+import ntnu.idata2305.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Checks the event driven {@link SRTF} against a tick based reference, which advances the clock one time unit
+ * at a time like the original implementation did, on seeded workloads from the {@link WorkloadGenerator}.
+ */
+class SRTFTest {
+  private static final int PROCESSES = 200;
+  private static final int SEEDS = 5;
+
+  @Test
+  void matchesTickBasedReference() {
+    for (ArrivalPattern arrivals : ArrivalPattern.values()) {
+      for (BurstDistribution bursts : BurstDistribution.values()) {
+        // A mean interarrival below the mean burst keeps a queue, so arrivals actually preempt
+        WorkloadGenerator generator = new WorkloadGenerator(0, arrivals, 4, bursts, 6);
+        for (long seed = 1; seed <= SEEDS; seed++) {
+          ProcessTable table = generator.withSeed(seed).table(PROCESSES);
+          ScheduleResult result = new SRTF().run(table);
+
+          int[] expected = referenceCompletions(table);
+          int[] actual = new int[table.size()];
+          for (int row = 0; row < result.size(); row++) {
+            actual[result.processIds[row]] = result.completionTimes[row];
+          }
+          assertArrayEquals(expected, actual, generator.withSeed(seed).toString());
+        }
+      }
+    }
+  }
+
+  /**
+   * Tick based SRTF: every time unit, runs the arrived process with the least remaining time, with ties going to
+   * the process that arrived first, then to the one listed first.
+   *
+   * @return the completion time of every process, indexed by id
+   */
+  private static int[] referenceCompletions(ProcessTable table) {
+    int n = table.size();
+    int[] order = IntStream.range(0, n).boxed()
+      .sorted(Comparator.comparingInt(i -> table.arrivals[i]))
+      .mapToInt(Integer::intValue)
+      .toArray();
+    int[] remaining = Arrays.copyOf(table.bursts, n);
+    int[] completions = new int[n];
+
+    int time = 0;
+    int completed = 0;
+    while (completed < n) {
+      int shortest = -1;
+      for (int i : order) {
+        if (table.arrivals[i] <= time && remaining[i] > 0
+          && (shortest < 0 || remaining[i] < remaining[shortest])) {
+          shortest = i;
+        }
+      }
+      time++;
+      if (shortest >= 0 && --remaining[shortest] == 0) {
+        completions[table.ids[shortest]] = time;
+        completed++;
+      }
+    }
+    return completions;
+  }
+}